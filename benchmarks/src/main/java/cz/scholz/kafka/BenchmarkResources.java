@@ -0,0 +1,93 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResourceBuilder;
+import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kubernetes resources used in the benchmarks
+ */
+final class BenchmarkResources {
+    static final String NAMESPACE = "myproject";
+    static final String NAME = "my-cluster";
+    static final String PATH = "kafka.strimzi.io/v1beta2/Kafka/" + NAMESPACE + "/" + NAME;
+    static final ResourceDefinitionContext CONTEXT = new ResourceDefinitionContext.Builder()
+            .withGroup("kafka.strimzi.io")
+            .withVersion("v1beta2")
+            .withKind("Kafka")
+            .withPlural("kafkas")
+            .withNamespaced(true)
+            .build();
+
+    static final String BOOTSTRAP_KEY = "$.status.listeners[?(@.name=='external')].bootstrapServers";
+    static final String CERTIFICATE_KEY = "$.status.listeners[?(@.name=='external')].certificates[0]";
+    static final String CLUSTER_ID_KEY = "$.status.clusterId";
+    static final Set<String> KEYS = Set.of(BOOTSTRAP_KEY, CERTIFICATE_KEY, CLUSTER_ID_KEY);
+
+    private BenchmarkResources() { }
+
+    /**
+     * Creates a Kafka custom resource. The size of the resource is driven by the number of the additional listeners
+     * and configuration options. Each listener adds roughly 1.5KB.
+     *
+     * @param listeners     Number of additional listeners
+     *
+     * @return  Kafka custom resource
+     */
+    static GenericKubernetesResource kafka(int listeners)   {
+        Map<String, Object> config = new LinkedHashMap<>();
+        List<Object> specListeners = new ArrayList<>();
+        List<Object> statusListeners = new ArrayList<>();
+
+        for (int i = 0; i < listeners; i++) {
+            config.put("option.number." + i, "value-" + i);
+            specListeners.add(Map.of("name", "listener" + i, "port", 9100 + i, "type", "internal", "tls", true));
+            statusListeners.add(listener("listener" + i, "my-cluster-kafka-listener" + i + "." + NAMESPACE + ".svc:" + (9100 + i)));
+        }
+
+        specListeners.add(Map.of("name", "external", "port", 9094, "type", "loadbalancer", "tls", true));
+        statusListeners.add(listener("external", "10.0.0.1:9094"));
+
+        return new GenericKubernetesResourceBuilder()
+                .withApiVersion("kafka.strimzi.io/v1beta2")
+                .withKind("Kafka")
+                .withNewMetadata()
+                    .withName(NAME)
+                    .withNamespace(NAMESPACE)
+                .endMetadata()
+                .withAdditionalProperties(Map.of(
+                        "spec", Map.of("kafka", Map.of("replicas", 3, "listeners", specListeners, "config", config)),
+                        "status", Map.of("clusterId", "Y8UmHiIYQGuUjx3OQAWEEw", "observedGeneration", 1, "listeners", statusListeners)))
+                .build();
+    }
+
+    private static Map<String, Object> listener(String name, String bootstrapServers)   {
+        return Map.of(
+                "name", name,
+                "bootstrapServers", bootstrapServers,
+                "addresses", List.of(Map.of("host", bootstrapServers.substring(0, bootstrapServers.indexOf(':')), "port", 9094)),
+                "certificates", List.of(certificate(name)));
+    }
+
+    private static String certificate(String name)  {
+        StringBuilder sb = new StringBuilder("-----BEGIN CERTIFICATE-----\n");
+
+        for (int i = 0; i < 16; i++)    {
+            sb.append("MIIFLTCCAxWgAwIBAgIUV2ZsZW1pZW50LWNlcnRpZmljYXRlLWZvci0")
+                    .append(name)
+                    .append('\n');
+        }
+
+        return sb.append("-----END CERTIFICATE-----\n").toString();
+    }
+}
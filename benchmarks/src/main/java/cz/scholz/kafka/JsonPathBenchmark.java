@@ -0,0 +1,104 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.utils.KubernetesSerialization;
+import org.apache.kafka.common.config.ConfigException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the evaluation of the JSON Path keys over small and large custom resources
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonPathBenchmark {
+    /**
+     * Number of additional listeners in the Kafka resource. 1 listener gives a resource of a few KB, 250 listeners give
+     * a resource of several hundreds of KB.
+     */
+    @Param({"1", "250"})
+    public int listeners;
+
+    private GenericKubernetesResource resource;
+    private ResourceDocument document;
+
+    /**
+     * Prepares the resources
+     */
+    @Setup
+    public void setup()    {
+        resource = BenchmarkResources.kafka(listeners);
+        document = ResourceDocument.fromResource(resource);
+    }
+
+    /**
+     * Evaluates the keys over an already converted resource (for example a cached one)
+     *
+     * @return  Extracted values
+     */
+    @Benchmark
+    public Map<String, String> extractFromDocument()    {
+        return ValueExtractor.extract(document, BenchmarkResources.KEYS);
+    }
+
+    /**
+     * Converts the resource retrieved from Kubernetes and evaluates the keys over it
+     *
+     * @return  Extracted values
+     */
+    @Benchmark
+    public Map<String, String> convertAndExtract()    {
+        return ValueExtractor.extract(ResourceDocument.fromResource(resource), BenchmarkResources.KEYS);
+    }
+
+    /**
+     * The original evaluation which serialized the resource into JSON and parsed the JSON again for every key. Used as
+     * a baseline. The values are extracted in the same way as by the original implementation, including the error for
+     * the results which are not a String or a List.
+     *
+     * @return  Extracted values
+     */
+    @Benchmark
+    public Map<String, String> serializeAndParseBaseline()    {
+        String jsonResource = new KubernetesSerialization().asJson(resource);
+        Map<String, String> configs = new HashMap<>(0);
+
+        for (String key : BenchmarkResources.KEYS) {
+            Object result = JsonPath.using(Configuration.defaultConfiguration()).parse(jsonResource).read(key);
+
+            if (result instanceof String stringResult)   {
+                configs.put(key, stringResult);
+            } else if (result instanceof List<?> listResult)  {
+                configs.put(key, listResult.isEmpty() ? null : listResult.get(0).toString());
+            } else {
+                throw new ConfigException("Unexpected type " + result.getClass());
+            }
+        }
+
+        return configs;
+    }
+}
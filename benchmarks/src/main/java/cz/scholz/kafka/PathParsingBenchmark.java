@@ -0,0 +1,74 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the parsing of the resource paths
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathParsingBenchmark {
+    private static final String LEGACY_REGEX = "([A-Za-z0-9.-]+/)?([A-Za-z0-9.-]+/)([A-Za-z0-9.-]+/)([A-Za-z0-9.-]+/)[A-Za-z0-9.-]+";
+
+    /**
+     * Repeated lookup of the same path served from the parsed identifiers
+     *
+     * @return  Parsed identifier
+     */
+    @Benchmark
+    public Object parseCached()    {
+        return NamespacedResourceIdentifier.fromPath(BenchmarkResources.PATH);
+    }
+
+    /**
+     * Single-pass parsing of the path without the identifier cache
+     *
+     * @return  Path segments
+     */
+    @Benchmark
+    public Object parseUncached()    {
+        return ResourcePathParser.split(BenchmarkResources.PATH, 5);
+    }
+
+    /**
+     * The original regular expression based parsing used as a baseline
+     *
+     * @return  Path segments
+     */
+    @Benchmark
+    public Object parseRegexBaseline()    {
+        if (!BenchmarkResources.PATH.matches(LEGACY_REGEX)) {
+            throw new IllegalStateException("Invalid path");
+        }
+
+        return BenchmarkResources.PATH.split("/");
+    }
+
+    /**
+     * Lookup of the resource definition context of a parsed identifier
+     *
+     * @return  Resource definition context
+     */
+    @Benchmark
+    public Object resourceDefinitionContext()    {
+        return NamespacedResourceIdentifier.fromPath(BenchmarkResources.PATH).resourceDefinitionContext();
+    }
+}
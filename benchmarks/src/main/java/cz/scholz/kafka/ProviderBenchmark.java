@@ -0,0 +1,114 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesCrudDispatcher;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.mockwebserver.Context;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.kafka.common.config.ConfigData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the whole lookup pipeline of the config provider against a local Kubernetes mock API server
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProviderBenchmark {
+    // The mock web server logs every request => the logger is kept referenced to keep the level
+    private static final java.util.logging.Logger MOCK_SERVER_LOGGER = java.util.logging.Logger.getLogger(MockWebServer.class.getName());
+
+    /**
+     * Number of additional listeners in the Kafka resource
+     */
+    @Param({"1", "250"})
+    public int listeners;
+
+    /**
+     * Cache TTL of the provider. 0 disables the cache and every lookup goes to the API server.
+     */
+    @Param({"0", "60000"})
+    public long cacheTtlMs;
+
+    private KubernetesMockServer server;
+    private KubernetesClient client;
+    private KubernetesRawNamespacedResourceConfigProvider provider;
+
+    /**
+     * Starts the mock API server and configures the provider
+     */
+    @Setup(Level.Trial)
+    public void setup()    {
+        MOCK_SERVER_LOGGER.setLevel(java.util.logging.Level.WARNING);
+
+        server = new KubernetesMockServer(new Context(), new MockWebServer(), new HashMap<>(), new KubernetesCrudDispatcher(), false);
+        server.init();
+        client = server.createClient();
+        client.genericKubernetesResources(BenchmarkResources.CONTEXT)
+                .inNamespace(BenchmarkResources.NAMESPACE)
+                .resource(BenchmarkResources.kafka(listeners))
+                .create();
+
+        provider = new KubernetesRawNamespacedResourceConfigProvider();
+        provider.configure(Map.of(KubernetesRawResourceConfigProviderConfig.CACHE_TTL_MS_CONFIG, String.valueOf(cacheTtlMs)), server.createClient());
+    }
+
+    /**
+     * Closes the provider and stops the mock API server
+     *
+     * @throws IOException  Thrown when closing the provider fails
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        provider.close();
+        client.close();
+        server.destroy();
+    }
+
+    /**
+     * Lookup from a single thread
+     *
+     * @return  Configuration data
+     */
+    @Benchmark
+    @Threads(1)
+    public ConfigData getSingleThreaded()    {
+        return provider.get(BenchmarkResources.PATH, BenchmarkResources.KEYS);
+    }
+
+    /**
+     * Concurrent lookups of the same resource from multiple threads
+     *
+     * @return  Configuration data
+     */
+    @Benchmark
+    @Threads(8)
+    public ConfigData getMultiThreaded()    {
+        return provider.get(BenchmarkResources.PATH, BenchmarkResources.KEYS);
+    }
+}
@@ -4,32 +4,37 @@
  */
 package cz.scholz.kafka;
 
-import com.jayway.jsonpath.Configuration;
-import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.JsonPathException;
 import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.kubernetes.client.KubernetesClientBuilder;
-import io.fabric8.kubernetes.client.utils.KubernetesSerialization;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import org.apache.kafka.common.config.ConfigChangeCallback;
 import org.apache.kafka.common.config.ConfigData;
-import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.common.config.provider.ConfigProvider;
+import org.apache.kafka.common.utils.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Abstract class for Kafka configuration providers using Kubernetes resources
+ *
+ * @param <T>   Type of the identifier of the Kubernetes resources
  */
-abstract class AbstractKubernetesRawResourceConfigProvider implements ConfigProvider {
+abstract class AbstractKubernetesRawResourceConfigProvider<T extends ResourceIdentifier> implements ConfigProvider {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractKubernetesRawResourceConfigProvider.class);
 
     protected KubernetesClient client;
+    private Runnable clientRelease;
+    private ProviderMetrics metrics;
+    private ResourceLookup<T> lookup;
+    private ConfigResolver<T> resolver;
+    private ResourceSubscriptions subscriptions;
 
     /**
      * Creates the configuration provider
@@ -40,66 +45,173 @@ abstract class AbstractKubernetesRawResourceConfigProvider implements ConfigProv
     @Override
     public void close() throws IOException {
         LOG.info("Closing Kubernetes Raw Resource config provider");
-        client.close();
+        release();
     }
 
     @Override
     public void configure(Map<String, ?> config) {
-        LOG.info("Configuring Kubernetes Raw Resource config provider with configuration {}", config);
-        client = new KubernetesClientBuilder().build();
+        KubernetesRawResourceConfigProviderConfig providerConfig = new KubernetesRawResourceConfigProviderConfig(config);
+        // The client is configured from the environment and the HTTP options => provider instances with the same
+        // HTTP options share the same client
+        Map<String, Object> clientConfig = providerConfig.clientConfig();
+
+        configure(providerConfig, KubernetesClientRegistry.SHARED.acquire(clientConfig), () -> KubernetesClientRegistry.SHARED.release(clientConfig));
+    }
+
+    /**
+     * Configures the provider with given Kubernetes client. The client is closed when the provider is closed.
+     *
+     * @param config    Configuration of the provider
+     * @param client    Kubernetes client
+     */
+    /* test */ void configure(Map<String, ?> config, KubernetesClient client) {
+        configure(new KubernetesRawResourceConfigProviderConfig(config), client, client::close);
+    }
+
+    private void configure(KubernetesRawResourceConfigProviderConfig providerConfig, KubernetesClient client, Runnable clientRelease) {
+        LOG.info("Configuring Kubernetes Raw Resource config provider with configuration {}", providerConfig.originals());
+
+        this.client = client;
+        this.clientRelease = clientRelease;
+
+        try {
+            metrics = new ProviderMetrics(getClass().getSimpleName(), Time.SYSTEM);
+            StreamingResourceReader reader = new StreamingResourceReader(client);
+            lookup = new ResourceLookup<>(providerConfig, this::getResource, reader::read, reader::readResourceVersion, this::listResources, this::informResources, metrics);
+            resolver = new ConfigResolver<>(providerConfig, lookup, this::parsePath, metrics);
+            subscriptions = new ResourceSubscriptions(resolver::reload, resolver::update, resolver::remove, (path, watcher) -> watchResource(parsePath(path), watcher),
+                    providerConfig.getLong(KubernetesRawResourceConfigProviderConfig.RETRY_BACKOFF_MS_CONFIG),
+                    providerConfig.getLong(KubernetesRawResourceConfigProviderConfig.RETRY_BACKOFF_MAX_MS_CONFIG));
+
+            lookup.prefetch(providerConfig, this::parsePath);
+        } catch (RuntimeException e) {
+            LOG.error("Failed to configure Kubernetes Raw Resource config provider", e);
+            // The provider might never be closed => the client, the metrics and the threads are released right away
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the parts of the provider which were created. It is used to close the provider as well as to clean up
+     * after a failed configuration.
+     */
+    private void release()  {
+        if (subscriptions != null)  {
+            subscriptions.close();
+        }
+
+        if (resolver != null)   {
+            resolver.close();
+        }
+
+        if (lookup != null) {
+            lookup.close();
+        }
+
+        if (metrics != null)    {
+            metrics.close();
+        }
+
+        if (clientRelease != null)  {
+            // Released only once even when the provider is closed multiple times
+            clientRelease.run();
+            clientRelease = null;
+        }
     }
 
+    /**
+     * Gets all values from the Kubernetes resource flattened into dotted keys (such as {@code spec.kafka.replicas}).
+     * Only the sub-tree configured using the flatten.root option is returned.
+     *
+     * @param path  Path to the Kubernetes resource
+     *
+     * @return      Kafka ConfigData with the configuration
+     */
     @Override
     public ConfigData get(String path) {
-        // Not supported
-        return new ConfigData(Map.of());
+        return resolver.getFlattened(path);
     }
 
     @Override
     public ConfigData get(String path, Set<String> keys) {
-        return getValues(path, keys);
+        return resolver.get(path, keys);
     }
 
     /**
-     * Gets the values from the Kubernetes resource.
+     * Gets the values from multiple Kubernetes resources. The resources are retrieved in parallel, so resolving a
+     * configuration which uses multiple resources takes about as long as a single request to the Kubernetes API.
      *
-     * @param path  Path to the Kubernetes resource
-     * @param keys  Keys which should be extracted from the resource
+     * @param pathsWithKeys     Map with the paths to the Kubernetes resources and the keys which should be extracted
+     *                          from them
      *
-     * @return      Kafka ConfigData with the configuration
+     * @return  Map with the paths and the Kafka ConfigData with their configuration
      */
-    private <T> ConfigData getValues(String path, Set<String> keys)    {
-        String jsonResource = new KubernetesSerialization().asJson(getResource(path));
-        Map<String, String> configs = new HashMap<>(0);
-
-        for (String key : keys) {
-            try {
-                T result = JsonPath.using(Configuration.defaultConfiguration()).parse(jsonResource).read(key);
-
-                if (result instanceof String stringResult)   {
-                    configs.put(key, stringResult);
-                } else if (result instanceof List listResult)  {
-                    configs.put(key, listResult.isEmpty() ? null : listResult.get(0).toString());
-                } else {
-                    throw new ConfigException("Unexpected type " + result.getClass());
-                }
-            } catch (JsonPathException e)   {
-                LOG.error("Failed to query the JSON Path {}", key, e);
-                throw new ConfigException("Failed to query the JSON Path " + key);
-            }
-        }
+    public Map<String, ConfigData> getAll(Map<String, Set<String>> pathsWithKeys) {
+        return resolver.getAll(pathsWithKeys);
+    }
+
+    @Override
+    public void subscribe(String path, Set<String> keys, ConfigChangeCallback callback) {
+        subscriptions.subscribe(path, keys, callback);
+    }
+
+    @Override
+    public void unsubscribe(String path, Set<String> keys, ConfigChangeCallback callback) {
+        subscriptions.unsubscribe(path, keys, callback);
+    }
 
-        return new ConfigData(configs);
+    @Override
+    public void unsubscribeAll() {
+        subscriptions.unsubscribeAll();
     }
 
     // Kubernetes helper methods
 
     /**
-     * Gets the resource from Kubernetes
+     * Parses the path into the resource identifier
      *
      * @param path  Path to the Kubernetes resource
      *
+     * @return      Resource identifier
+     */
+    abstract protected T parsePath(String path);
+
+    /**
+     * Gets the resource from Kubernetes
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
      * @return      Resource retrieved from the Kubernetes cluster
      */
-    abstract protected GenericKubernetesResource getResource(String path);
+    abstract protected GenericKubernetesResource getResource(T ri);
+
+    /**
+     * Lists the resources of given kind from Kubernetes
+     *
+     * @param kind          Kind and namespace of the resources (the namespace is null for all namespaces)
+     * @param labelSelector Label selector of the resources or null to list all resources
+     *
+     * @return      Resources retrieved from the Kubernetes cluster
+     */
+    abstract protected List<GenericKubernetesResource> listResources(ResourceKind kind, String labelSelector);
+
+    /**
+     * Watches the resource in Kubernetes
+     *
+     * @param ri        Identifier of the Kubernetes resource
+     * @param watcher   Watcher which should receive the events about the resource
+     *
+     * @return      The Kubernetes watch
+     */
+    abstract protected Watch watchResource(T ri, Watcher<GenericKubernetesResource> watcher);
+
+    /**
+     * Starts an informer for the kind and namespace of the resource. The method blocks until the informer is synced.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return      The started informer
+     */
+    abstract protected SharedIndexInformer<GenericKubernetesResource> informResources(T ri);
 }
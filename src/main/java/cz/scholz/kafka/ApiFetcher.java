@@ -0,0 +1,216 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.ExponentialBackoff;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Retrieves the resources from the Kubernetes API. The requests which fail because the Kubernetes API is unavailable
+ * or overloaded are retried with a jittered exponential backoff. When a lookup timeout is configured, the whole lookup
+ * including the retries has to complete before the deadline. The requests are subject to the rate limit and the
+ * limit of the requests in flight shared by all config providers in the JVM. A request which misses the deadline is
+ * cancelled by interrupting its thread, which makes the Kubernetes client cancel the underlying HTTP call. It keeps its
+ * slot of the requests in flight until it completes.
+ *
+ * @param <T>   Type of the identifier of the Kubernetes resources
+ */
+class ApiFetcher<T extends ResourceIdentifier> {
+    private static final Logger LOG = LoggerFactory.getLogger(ApiFetcher.class);
+    private static final int BACKOFF_MULTIPLIER = 2;
+    private static final double BACKOFF_JITTER = 0.2;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+
+    private final Function<T, GenericKubernetesResource> resourceGetter;
+    private final ProviderMetrics metrics;
+    private final Time time;
+    private final long timeoutMs;
+    private final int retries;
+    private final ExponentialBackoff backoff;
+    private final ApiRateLimiter rateLimiter;
+
+    /**
+     * Creates the fetcher
+     *
+     * @param config            Configuration of the config provider
+     * @param resourceGetter    Function which gets the resource from the Kubernetes API
+     * @param metrics           Metrics of the config provider
+     * @param time              Time used for the deadlines and backoff
+     */
+    ApiFetcher(KubernetesRawResourceConfigProviderConfig config, Function<T, GenericKubernetesResource> resourceGetter, ProviderMetrics metrics, Time time) {
+        this(config, resourceGetter, metrics, time, ApiRateLimiter.shared(
+                config.getDouble(KubernetesRawResourceConfigProviderConfig.API_RATE_LIMIT_CONFIG),
+                config.getInt(KubernetesRawResourceConfigProviderConfig.API_MAX_IN_FLIGHT_CONFIG)));
+    }
+
+    /**
+     * Creates the fetcher with the given rate limiter
+     *
+     * @param config            Configuration of the config provider
+     * @param resourceGetter    Function which gets the resource from the Kubernetes API
+     * @param metrics           Metrics of the config provider
+     * @param time              Time used for the deadlines and backoff
+     * @param rateLimiter       Limiter of the rate and the concurrency of the requests
+     */
+    ApiFetcher(KubernetesRawResourceConfigProviderConfig config, Function<T, GenericKubernetesResource> resourceGetter, ProviderMetrics metrics, Time time, ApiRateLimiter rateLimiter) {
+        this.resourceGetter = resourceGetter;
+        this.metrics = metrics;
+        this.time = time;
+        this.timeoutMs = config.getLong(KubernetesRawResourceConfigProviderConfig.LOOKUP_TIMEOUT_MS_CONFIG);
+        this.retries = config.getInt(KubernetesRawResourceConfigProviderConfig.RETRIES_CONFIG);
+        this.backoff = new ExponentialBackoff(
+                config.getLong(KubernetesRawResourceConfigProviderConfig.RETRY_BACKOFF_MS_CONFIG),
+                BACKOFF_MULTIPLIER,
+                config.getLong(KubernetesRawResourceConfigProviderConfig.RETRY_BACKOFF_MAX_MS_CONFIG),
+                BACKOFF_JITTER);
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Gets the resource from the Kubernetes API
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return  Resource retrieved from the Kubernetes cluster
+     */
+    GenericKubernetesResource fetch(T ri)  {
+        return execute(ri, () -> resourceGetter.apply(ri));
+    }
+
+    /**
+     * Executes a request to the Kubernetes API with the retries and the deadline
+     *
+     * @param ri        Identifier of the requested resource or resource kind
+     * @param request   The request
+     *
+     * @return  Result of the request
+     *
+     * @param <R>   Type of the result
+     */
+    <R> R execute(ResourceIdentifier ri, Supplier<R> request)  {
+        long deadlineMs = timeoutMs > 0 ? time.milliseconds() + timeoutMs : Long.MAX_VALUE;
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return attempt(ri, request, deadlineMs);
+            } catch (ConfigException e) {
+                long backoffMs = backoff.backoff(attempt);
+
+                if (!isUnavailable(e) || attempt >= retries || time.milliseconds() + backoffMs >= deadlineMs)  {
+                    throw e;
+                }
+
+                LOG.warn("Failed to retrieve resource {} (attempt {} of {}). Retrying in {} ms.", ri.description(), attempt + 1, retries + 1, backoffMs);
+                time.sleep(backoffMs);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the lookup failed because the Kubernetes API is unavailable or overloaded. Such lookups might
+     * succeed when retried later. Other failures such as missing resources or missing access rights are not retried.
+     *
+     * @param e     Exception thrown by the lookup
+     *
+     * @return  True if the Kubernetes API was unavailable. False otherwise.
+     */
+    static boolean isUnavailable(ConfigException e)  {
+        if (e.getCause() instanceof TimeoutException) {
+            return true;
+        } else if (e.getCause() instanceof KubernetesClientException kce) {
+            // Code 0 is used for I/O errors where the API server did not respond at all
+            return kce.getCode() == 0 || kce.getCode() == HTTP_TOO_MANY_REQUESTS || kce.getCode() >= HTTP_SERVER_ERROR;
+        } else {
+            return false;
+        }
+    }
+
+    private <R> R attempt(ResourceIdentifier ri, Supplier<R> request, long deadlineMs)    {
+        if (rateLimiter.enabled())  {
+            long queueStartNs = metrics.startTimer();
+            rateLimiter.acquire(ri, deadlineMs);
+            metrics.recordApiQueueTime(queueStartNs);
+        }
+
+        long startNs = metrics.startTimer();
+        // The slot of the request is released only when the request completes, even when it completes in the
+        // background after the deadline
+        Supplier<R> releasingRequest = () -> {
+            try {
+                return request.get();
+            } finally {
+                rateLimiter.release();
+            }
+        };
+
+        try {
+            R result = deadlineMs == Long.MAX_VALUE ? releasingRequest.get() : withDeadline(ri, releasingRequest, deadlineMs);
+            metrics.recordApiRequest(ri, startNs, false);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordApiRequest(ri, startNs, true);
+            throw e;
+        }
+    }
+
+    private <R> R withDeadline(ResourceIdentifier ri, Supplier<R> request, long deadlineMs)   {
+        Future<R> future;
+
+        try {
+            future = RequestExecutor.submit(request::get);
+        } catch (RejectedExecutionException e) {
+            // Rejected because all threads are busy => the request did not start and its slot is released here
+            rateLimiter.release();
+            LOG.error("Too many requests to the Kubernetes API are still running. Cannot retrieve resource {}", ri.description());
+            throw withCause(new ConfigException("Too many requests to the Kubernetes API are still running. Cannot retrieve resource " + ri.description() + "!"), new TimeoutException());
+        }
+
+        try {
+            return future.get(Math.max(deadlineMs - time.milliseconds(), 0L), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Interrupting the request cancels the HTTP call. Its slot is released once the request completes.
+            future.cancel(true);
+            LOG.error("Timed out while retrieving resource {} after {} ms", ri.description(), timeoutMs);
+            throw withCause(new ConfigException("Timed out while retrieving resource " + ri.description() + " after " + timeoutMs + " ms!"), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            } else {
+                throw withCause(new ConfigException("Failed to retrieve resource " + ri.description() + "!"), e.getCause());
+            }
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw withCause(new ConfigException("Interrupted while retrieving resource " + ri.description() + "!"), e);
+        }
+    }
+
+    /**
+     * Attaches the cause to the ConfigException. ConfigException has no constructor accepting the cause.
+     *
+     * @param e         The ConfigException
+     * @param cause     Cause of the exception
+     *
+     * @return  The ConfigException with the cause
+     */
+    static ConfigException withCause(ConfigException e, Throwable cause)    {
+        e.initCause(cause);
+        return e;
+    }
+}
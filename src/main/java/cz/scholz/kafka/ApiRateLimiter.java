@@ -0,0 +1,177 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Limits the rate and the concurrency of the requests to the Kubernetes API. The rate is limited using a token bucket
+ * which allows bursts of up to one second worth of requests. The requests over the rate wait for their turn instead of
+ * being rejected. The number of requests in flight is limited using a fair semaphore. The slot of the request is taken
+ * only after it gets its token, right before the request is sent. A single limiter is shared by all config providers
+ * in the JVM. It uses the limits of the first config provider.
+ */
+class ApiRateLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(ApiRateLimiter.class);
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static ApiRateLimiter shared;
+
+    private final double requestsPerSecond;
+    private final int maxInFlight;
+    private final double capacity;
+    private final Semaphore inFlight;
+    private final Time time;
+
+    private double tokens;
+    private long lastRefillNs;
+
+    /**
+     * Creates the rate limiter
+     *
+     * @param requestsPerSecond Maximal rate of the requests per second. The value 0 means no rate limit.
+     * @param maxInFlight       Maximal number of the requests in flight. The value 0 means no limit.
+     * @param time              Time used to refill the token bucket and to wait for the tokens
+     */
+    ApiRateLimiter(double requestsPerSecond, int maxInFlight, Time time) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxInFlight = maxInFlight;
+        this.capacity = Math.max(1.0, requestsPerSecond);
+        this.inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight, true) : null;
+        this.time = time;
+        this.tokens = capacity;
+        this.lastRefillNs = time.nanoseconds();
+    }
+
+    /**
+     * Returns the rate limiter shared by all config providers in the JVM. It is created with the limits of the first
+     * config provider. The different limits of the other config providers are ignored.
+     *
+     * @param requestsPerSecond Maximal rate of the requests per second. The value 0 means no rate limit.
+     * @param maxInFlight       Maximal number of the requests in flight. The value 0 means no limit.
+     *
+     * @return  The shared rate limiter
+     */
+    static synchronized ApiRateLimiter shared(double requestsPerSecond, int maxInFlight)  {
+        if (shared == null) {
+            LOG.info("Limiting the requests to the Kubernetes API from all config providers to {} requests per second and {} requests in flight (0 means no limit)", requestsPerSecond, maxInFlight);
+            shared = create(requestsPerSecond, maxInFlight);
+        } else if (shared.requestsPerSecond != requestsPerSecond || shared.maxInFlight != maxInFlight) {
+            LOG.warn("The requests to the Kubernetes API are already limited to {} requests per second and {} requests in flight by another config provider. "
+                    + "The limits of {} requests per second and {} requests in flight are ignored.", shared.requestsPerSecond, shared.maxInFlight, requestsPerSecond, maxInFlight);
+        }
+
+        return shared;
+    }
+
+    /**
+     * Creates a rate limiter which is not shared with the other config providers
+     *
+     * @param requestsPerSecond Maximal rate of the requests per second. The value 0 means no rate limit.
+     * @param maxInFlight       Maximal number of the requests in flight. The value 0 means no limit.
+     *
+     * @return  The new rate limiter
+     */
+    static ApiRateLimiter create(double requestsPerSecond, int maxInFlight)  {
+        return new ApiRateLimiter(requestsPerSecond, maxInFlight, Time.SYSTEM);
+    }
+
+    /**
+     * @return  True if the rate or the concurrency of the requests is limited. False otherwise.
+     */
+    boolean enabled()   {
+        return requestsPerSecond > 0 || inFlight != null;
+    }
+
+    /**
+     * Waits until the request can be sent. Every successful call has to be followed by a call to {@link #release()}
+     * once the request completes.
+     *
+     * @param ri            Identifier of the requested resource
+     * @param deadlineMs    Deadline of the lookup in milliseconds
+     */
+    void acquire(ResourceIdentifier ri, long deadlineMs)  {
+        // The request waits for its token without holding a slot, so that the slots are not blocked by the requests
+        // waiting for the rate limit
+        if (requestsPerSecond > 0) {
+            waitForToken(ri, deadlineMs);
+        }
+
+        try {
+            if (inFlight != null && !inFlight.tryAcquire(Math.max(deadlineMs - time.milliseconds(), 0L), TimeUnit.MILLISECONDS)) {
+                returnToken();
+                throw timedOut(ri);
+            }
+        } catch (InterruptedException e) {
+            returnToken();
+            Thread.currentThread().interrupt();
+            throw ApiFetcher.withCause(new ConfigException("Interrupted while waiting to retrieve resource " + ri.description() + "!"), e);
+        }
+    }
+
+    /**
+     * Releases the slot of a completed request
+     */
+    void release()  {
+        if (inFlight != null)   {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Takes a token from the bucket and waits until the token is available. The token is returned when it would not
+     * be available before the deadline.
+     *
+     * @param ri            Identifier of the requested resource
+     * @param deadlineMs    Deadline of the lookup in milliseconds
+     */
+    private void waitForToken(ResourceIdentifier ri, long deadlineMs)    {
+        long waitMs = reserve();
+
+        if (waitMs <= 0)    {
+            return;
+        } else if (waitMs > deadlineMs - time.milliseconds()) {
+            returnToken();
+            throw timedOut(ri);
+        }
+
+        time.sleep(waitMs);
+    }
+
+    /**
+     * Returns the token of a request which was not sent
+     */
+    private synchronized void returnToken()  {
+        if (requestsPerSecond > 0)  {
+            tokens += 1.0;
+        }
+    }
+
+    /**
+     * Refills the bucket and takes a token. The number of tokens can go negative, so that the waiting requests are
+     * spread over time in the order in which they arrived.
+     *
+     * @return  How long (in milliseconds) does the request have to wait for its token
+     */
+    private synchronized long reserve() {
+        long nowNs = time.nanoseconds();
+        tokens = Math.min(capacity, tokens + (nowNs - lastRefillNs) * requestsPerSecond / NANOS_PER_SECOND);
+        lastRefillNs = nowNs;
+        tokens -= 1.0;
+
+        return tokens >= 0 ? 0L : (long) Math.ceil(-tokens * 1_000 / requestsPerSecond);
+    }
+
+    private static ConfigException timedOut(ResourceIdentifier ri)  {
+        return ApiFetcher.withCause(new ConfigException("Timed out while waiting to retrieve resource " + ri.description() + "!"), new TimeoutException());
+    }
+}
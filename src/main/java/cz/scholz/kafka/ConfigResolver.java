@@ -0,0 +1,402 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigData;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.ThreadUtils;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Resolves the configuration values from the Kubernetes resources. Multiple paths can be resolved in parallel with a
+ * single batch call. The paths with a label selector resolve the keys from all selected resources and join their
+ * values. When the lookahead is enabled, the lookup of a path schedules the lookups of the paths which followed it in
+ * the previous lookups from the same thread. When the snapshot is enabled, the values loaded from the snapshot file
+ * are used right away and revalidated against Kubernetes in the background. In the values cache mode, the resolved
+ * values are cached instead of the resources. The paths looked up without keys return the flattened resource.
+ *
+ * @param <T>   Type of the identifier of the Kubernetes resources
+ */
+class ConfigResolver<T extends ResourceIdentifier> {
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigResolver.class);
+
+    private final ResourceLookup<T> lookup;
+    private final Function<String, T> pathParser;
+    private final ProviderMetrics metrics;
+    private final boolean streaming;
+    private final String selectorDelimiter;
+    private final List<String> flattenRoot;
+    private final ResourceProjection flattenProjection;
+    private final NegativeCache<String> invalidPaths;
+    private final ExecutorService executor;
+    private final Lookahead lookahead;
+    private final ValueSnapshot snapshot;
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final ValueCache valueCache;
+
+    /**
+     * Creates the resolver
+     *
+     * @param config        Configuration of the config provider
+     * @param lookup        Lookup of the Kubernetes resources
+     * @param pathParser    Function which parses the path into the resource identifier
+     * @param metrics       Metrics of the config provider
+     */
+    ConfigResolver(KubernetesRawResourceConfigProviderConfig config, ResourceLookup<T> lookup, Function<String, T> pathParser, ProviderMetrics metrics) {
+        this.lookup = lookup;
+        this.pathParser = pathParser;
+        this.metrics = metrics;
+        this.streaming = KubernetesRawResourceConfigProviderConfig.FETCH_MODE_STREAMING.equals(config.getString(KubernetesRawResourceConfigProviderConfig.FETCH_MODE_CONFIG));
+        this.selectorDelimiter = config.getString(KubernetesRawResourceConfigProviderConfig.SELECTOR_DELIMITER_CONFIG);
+
+        String root = config.getString(KubernetesRawResourceConfigProviderConfig.FLATTEN_ROOT_CONFIG);
+        this.flattenRoot = FlattenedResource.rootChain(root);
+        this.flattenProjection = streaming ? ResourceProjection.of(Set.of(root)) : ResourceProjection.ALL;
+
+        this.invalidPaths = new NegativeCache<>(
+                config.getLong(KubernetesRawResourceConfigProviderConfig.NEGATIVE_CACHE_TTL_MS_CONFIG),
+                config.getInt(KubernetesRawResourceConfigProviderConfig.CACHE_MAX_ENTRIES_CONFIG),
+                Time.SYSTEM
+        );
+
+        // The threads are started only when needed
+        this.executor = Executors.newFixedThreadPool(
+                config.getInt(KubernetesRawResourceConfigProviderConfig.LOOKUP_PARALLELISM_CONFIG),
+                ThreadUtils.createThreadFactory("kubernetes-raw-resource-config-provider-lookup-%d", true));
+
+        if (config.getBoolean(KubernetesRawResourceConfigProviderConfig.LOOKAHEAD_ENABLED_CONFIG)) {
+            this.lookahead = new Lookahead(
+                    config.getLong(KubernetesRawResourceConfigProviderConfig.LOOKAHEAD_WINDOW_MS_CONFIG),
+                    config.getInt(KubernetesRawResourceConfigProviderConfig.CACHE_MAX_ENTRIES_CONFIG),
+                    Time.SYSTEM,
+                    path -> executor.execute(() -> warm(path)));
+        } else {
+            this.lookahead = null;
+        }
+
+        if (KubernetesRawResourceConfigProviderConfig.CACHE_MODE_VALUES.equals(config.getString(KubernetesRawResourceConfigProviderConfig.CACHE_MODE_CONFIG))
+                && config.getLong(KubernetesRawResourceConfigProviderConfig.CACHE_TTL_MS_CONFIG) > 0) {
+            this.valueCache = new ValueCache(
+                    config.getLong(KubernetesRawResourceConfigProviderConfig.CACHE_TTL_MS_CONFIG),
+                    config.getInt(KubernetesRawResourceConfigProviderConfig.CACHE_MAX_ENTRIES_CONFIG),
+                    config.getLong(KubernetesRawResourceConfigProviderConfig.CACHE_MAX_BYTES_CONFIG),
+                    Time.SYSTEM);
+            metrics.registerValueCache(valueCache);
+        } else {
+            this.valueCache = null;
+        }
+
+        String snapshotFile = config.getString(KubernetesRawResourceConfigProviderConfig.SNAPSHOT_FILE_CONFIG);
+        if (snapshotFile != null)  {
+            this.snapshot = new ValueSnapshot(
+                    Paths.get(snapshotFile),
+                    config.getLong(KubernetesRawResourceConfigProviderConfig.SNAPSHOT_MAX_STALENESS_MS_CONFIG),
+                    Time.SYSTEM,
+                    executor);
+        } else {
+            this.snapshot = null;
+        }
+    }
+
+    /**
+     * Gets the values from the Kubernetes resource.
+     *
+     * @param path  Path to the Kubernetes resource
+     * @param keys  Keys which should be extracted from the resource
+     *
+     * @return      Kafka ConfigData with the configuration
+     */
+    ConfigData get(String path, Set<String> keys)  {
+        if (lookahead != null)  {
+            lookahead.record(path);
+        }
+
+        if (snapshot != null)   {
+            Map<String, String> values = snapshot.get(path, keys);
+
+            if (values != null) {
+                // The values from the snapshot are used only until they are revalidated against Kubernetes
+                LOG.debug("Using values of {} from the snapshot", path);
+                metrics.recordSnapshotHit();
+                scheduleRevalidation(path, keys);
+                return new ConfigData(values);
+            }
+        }
+
+        return resolve(path, keys);
+    }
+
+    /**
+     * Gets all values from the Kubernetes resource (or from its configured sub-tree) flattened into dotted keys. The
+     * flattened view is computed only once for every version of the resource.
+     *
+     * @param path  Path to the Kubernetes resource
+     *
+     * @return      Kafka ConfigData with the configuration
+     */
+    ConfigData getFlattened(String path)    {
+        long startNs = metrics.startTimer();
+        ResourceDocument document = getDocument(path, flattenProjection);
+
+        if (document.items() != null)   {
+            throw new ConfigException("Paths with a label selector cannot be looked up without keys");
+        }
+
+        Map<String, String> values = FlattenedResource.of(document, flattenRoot);
+
+        metrics.recordLookup(startNs);
+        return new ConfigData(values);
+    }
+
+    /**
+     * Gets the values from multiple Kubernetes resources in parallel. When any of the lookups fails, its exception
+     * is thrown.
+     *
+     * @param pathsWithKeys     Map with the paths to the Kubernetes resources and the keys which should be extracted
+     *                          from them
+     *
+     * @return  Map with the paths and the Kafka ConfigData with their configuration
+     */
+    Map<String, ConfigData> getAll(Map<String, Set<String>> pathsWithKeys)  {
+        Map<String, CompletableFuture<ConfigData>> futures = new LinkedHashMap<>(pathsWithKeys.size());
+        pathsWithKeys.forEach((path, keys) -> futures.put(path, CompletableFuture.supplyAsync(() -> resolve(path, keys), executor)));
+
+        Map<String, ConfigData> results = new LinkedHashMap<>(pathsWithKeys.size());
+        futures.forEach((path, future) -> results.put(path, join(future)));
+
+        return results;
+    }
+
+    /**
+     * Gets the resource document from Kubernetes even when it is cached. The cached resource and the values resolved
+     * from it are replaced.
+     *
+     * @param path  Path to the Kubernetes resource
+     *
+     * @return      Resource document
+     */
+    ResourceDocument reload(String path)  {
+        ResourceDocument document = lookup.reload(pathParser.apply(path));
+        updateValues(path, document);
+        return document;
+    }
+
+    /**
+     * Replaces the cached resource and the values resolved from it with the new version of the resource received
+     * from a watch, so that the lookups triggered by the change do not use the previous version.
+     *
+     * @param path      Path to the Kubernetes resource
+     * @param document  New version of the resource
+     */
+    void update(String path, ResourceDocument document)  {
+        if (lookup.update(pathParser.apply(path), document))  {
+            updateValues(path, document);
+        }
+    }
+
+    /**
+     * Removes the cached resource and the values resolved from it after the resource was deleted, so that the
+     * following lookups fail because the resource does not exist
+     *
+     * @param path  Path to the Kubernetes resource
+     */
+    void remove(String path)  {
+        lookup.invalidate(pathParser.apply(path));
+
+        if (snapshot != null)   {
+            snapshot.invalidate(path);
+        }
+
+        if (valueCache != null) {
+            valueCache.invalidate(path);
+        }
+    }
+
+    /**
+     * Gets the resource document containing the parts of the resource needed by the projection
+     *
+     * @param path          Path to the Kubernetes resource
+     * @param projection    Parts of the resource which are needed
+     *
+     * @return      Resource document
+     */
+    private ResourceDocument getDocument(String path, ResourceProjection projection)  {
+        ConfigException invalid = invalidPaths.get(path);
+
+        if (invalid != null)    {
+            metrics.recordNegativeCacheHit();
+            throw invalid;
+        }
+
+        T ri;
+
+        try {
+            ri = pathParser.apply(path);
+        } catch (ConfigException e) {
+            invalidPaths.put(path, e);
+            throw e;
+        }
+
+        return lookup.get(ri, projection);
+    }
+
+    /**
+     * Saves the snapshot, stops the threads and clears the cached invalid paths and values
+     */
+    void close()    {
+        if (snapshot != null)   {
+            snapshot.save();
+        }
+
+        executor.shutdownNow();
+        invalidPaths.clear();
+
+        if (valueCache != null) {
+            valueCache.clear();
+        }
+
+        if (lookahead != null)  {
+            lookahead.clear();
+        }
+    }
+
+    /**
+     * Replaces the cached values resolved from the previous version of the resource with the values resolved from the
+     * new version and stops using the values of the path from the snapshot. The keys which are missing in the new
+     * version are not cached, so that their lookups fail the same way as without the cache.
+     *
+     * @param path      Path to the Kubernetes resource
+     * @param document  New version of the resource
+     */
+    private void updateValues(String path, ResourceDocument document)  {
+        if (snapshot != null)   {
+            snapshot.invalidate(path);
+        }
+
+        Set<String> cachedKeys = valueCache != null ? valueCache.invalidate(path) : Set.of();
+
+        if (!cachedKeys.isEmpty())  {
+            Map<String, String> values = new HashMap<>(cachedKeys.size());
+
+            for (String key : cachedKeys)   {
+                try {
+                    values.put(key, ValueExtractor.extract(document, key));
+                } catch (ConfigException e) {
+                    // The key might not be present in all versions of the resource
+                    LOG.debug("Key {} is missing in the new version of {}", key, path);
+                }
+            }
+
+            valueCache.put(path, document.resourceVersion(), values);
+        }
+    }
+
+    private ConfigData resolve(String path, Set<String> keys)    {
+        long startNs = metrics.startTimer();
+
+        if (valueCache != null) {
+            Map<String, String> cached = valueCache.get(path, keys);
+
+            if (cached != null) {
+                LOG.debug("Using cached values of {}", path);
+                metrics.recordCacheHit();
+                metrics.recordLookup(startNs);
+                return new ConfigData(cached);
+            }
+
+            metrics.recordCacheMiss();
+        }
+
+        // With the streaming fetch mode, only the parts of the resource needed by the keys are materialized
+        ResourceDocument document = getDocument(path, streaming ? ResourceProjection.of(keys) : ResourceProjection.ALL);
+
+        long evaluationStartNs = metrics.startTimer();
+        // The values from the resources selected by a label selector are joined
+        Map<String, String> values = document.items() != null
+                ? ValueExtractor.extractJoined(document.items(), keys, selectorDelimiter)
+                : ValueExtractor.extract(document, keys);
+        metrics.recordEvaluation(evaluationStartNs, keys.size());
+
+        if (valueCache != null) {
+            // Only the values are kept => the document can be garbage collected right away
+            valueCache.put(path, document.resourceVersion(), values);
+        }
+
+        if (snapshot != null)   {
+            snapshot.put(path, document.resourceVersion(), values);
+        }
+
+        metrics.recordLookup(startNs);
+        return new ConfigData(values);
+    }
+
+    /**
+     * Schedules the revalidation of the values from the snapshot. Only one revalidation of every path is pending at a
+     * time, so that the lookups served from the snapshot while the Kubernetes API is not available do not queue up
+     * the requests.
+     *
+     * @param path  Path to the Kubernetes resource
+     * @param keys  Keys which should be extracted from the resource
+     */
+    private void scheduleRevalidation(String path, Set<String> keys)  {
+        if (revalidating.add(path)) {
+            try {
+                executor.execute(() -> revalidate(path, keys));
+            } catch (RuntimeException e)    {
+                revalidating.remove(path);
+                throw e;
+            }
+        }
+    }
+
+    private void revalidate(String path, Set<String> keys)  {
+        try {
+            resolve(path, keys);
+        } catch (RuntimeException e)    {
+            // The next lookup of the path served from the snapshot schedules the revalidation again
+            LOG.warn("Failed to revalidate the values of {} from the snapshot", path, e);
+        } finally {
+            revalidating.remove(path);
+        }
+    }
+
+    private void warm(String path)  {
+        try {
+            if (invalidPaths.get(path) == null) {
+                lookup.warm(pathParser.apply(path));
+            }
+        } catch (RuntimeException e)    {
+            // The error is raised again when the path is looked up
+            LOG.debug("Failed to look ahead resource {}", path, e);
+        }
+    }
+
+    private static ConfigData join(CompletableFuture<ConfigData> future)    {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            } else {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the definite JSON Path keys (such as {@code $.spec.kafka.replicas},
+ * {@code $.metadata.annotations['strimzi.io/node-pools']} or {@code $.status.conditions[0].type}) by walking the tree
+ * of the resource directly instead of using the JSON Path engine. The keys are parsed into the chain of property
+ * names and array indexes once and kept in the {@link ParsedKeyCache}.
+ *
+ * Only the keys which consist of single properties and non-negative array indexes are evaluated directly. When the
+ * walk does not reach an existing value (for example because of a missing property), the key has to be evaluated with
+ * JSON Path which raises the same error as before.
+ */
+final class DefinitePath {
+    /**
+     * Returned when the key is not a definite path or when its value cannot be resolved directly
+     */
+    static final Object UNRESOLVED = new Object();
+
+    // Property names (Strings) and array indexes (Integers)
+    private final Object[] segments;
+
+    private DefinitePath(Object[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Parses the key consisting of properties in the dot notation (e.g. {@code .status}), properties in the bracket
+     * notation (e.g. {@code ['status']}) and array indexes (e.g. {@code [0]})
+     *
+     * @param key   JSON Path key
+     *
+     * @return  The parsed path or null if the key is not a definite path
+     */
+    static DefinitePath parse(String key)  {
+        if (!key.startsWith("$"))   {
+            return null;
+        }
+
+        List<Object> segments = new ArrayList<>();
+        int i = 1;
+
+        while (i < key.length())    {
+            i = key.charAt(i) == '.' ? dotPropertyEnd(key, i + 1, segments) : bracketEnd(key, i, segments);
+
+            if (i < 0)  {
+                return null;
+            }
+        }
+
+        return segments.isEmpty() ? null : new DefinitePath(segments.toArray());
+    }
+
+    /**
+     * Evaluates the path by walking the tree
+     *
+     * @param tree  Tree of the resource
+     *
+     * @return  The value at the end of the path or UNRESOLVED when the key has to be evaluated with JSON Path
+     */
+    Object evaluate(Map<String, Object> tree)   {
+        Object current = tree;
+
+        for (Object segment : segments) {
+            if (segment instanceof String property && current instanceof Map<?, ?> map) {
+                current = map.get(property);
+            } else if (segment instanceof Integer index && current instanceof List<?> list && index < list.size()) {
+                current = list.get(index);
+            } else {
+                // Missing values, properties of arrays, indexes of objects or indexes out of bounds
+                return UNRESOLVED;
+            }
+        }
+
+        return current != null ? current : UNRESOLVED;
+    }
+
+    /**
+     * Parses the property in the dot notation. Only property names made of letters, digits, underscores and dashes
+     * are accepted, so that wildcards, deep scans, functions and any other special syntax are left to JSON Path.
+     *
+     * @param key       JSON Path key
+     * @param start     Index of the first character of the property name
+     * @param segments  List where the property name is added
+     *
+     * @return  Index after the end of the property or -1 if it is not a single property
+     */
+    private static int dotPropertyEnd(String key, int start, List<Object> segments)  {
+        int end = start;
+
+        while (end < key.length() && isPropertyCharacter(key.charAt(end)))  {
+            end++;
+        }
+
+        if (end == start || end < key.length() && key.charAt(end) != '.' && key.charAt(end) != '[') {
+            return -1;
+        }
+
+        segments.add(key.substring(start, end));
+        return end;
+    }
+
+    /**
+     * Parses the property in the bracket notation or the array index
+     *
+     * @param key       JSON Path key
+     * @param start     Index of the opening bracket
+     * @param segments  List where the property name or the index is added
+     *
+     * @return  Index after the closing bracket or -1 if it is not a single property or index
+     */
+    private static int bracketEnd(String key, int start, List<Object> segments)   {
+        int closing = key.indexOf(']', start);
+
+        if (key.charAt(start) != '[' || closing < start + 2)   {
+            return -1;
+        }
+
+        String content = key.substring(start + 1, closing);
+
+        if (isQuotedName(content)) {
+            segments.add(content.substring(1, content.length() - 1));
+        } else if (content.chars().allMatch(Character::isDigit) && content.length() < 10) {
+            segments.add(Integer.parseInt(content));
+        } else {
+            // Multiple properties, escaped characters, filters, wildcards, slices or negative indexes
+            return -1;
+        }
+
+        return closing + 1;
+    }
+
+    private static boolean isQuotedName(String content)  {
+        char quote = content.charAt(0);
+        int closingQuote = content.indexOf(quote, 1);
+
+        return (quote == '\'' || quote == '"') && closingQuote == content.length() - 1 && content.indexOf('\\') < 0;
+    }
+
+    private static boolean isPropertyCharacter(char c)    {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+}
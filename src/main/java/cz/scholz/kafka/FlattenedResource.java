@@ -0,0 +1,97 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flattened view of a Kubernetes resource (or of its sub-tree) with the dotted paths of the values as keys. For
+ * example, the resource {@code {"spec": {"config": {"retention.ms": 1000}, "hosts": ["a", "b"]}}} is flattened into
+ * {@code spec.config.retention.ms=1000}, {@code spec.hosts.0=a} and {@code spec.hosts.1=b}. The null values and the
+ * empty objects and arrays are left out.
+ *
+ * The view is computed only when it is used for the first time and is shared by all following lookups of the same
+ * version of the resource.
+ */
+final class FlattenedResource {
+    private FlattenedResource() { }
+
+    /**
+     * Parses the root of the flattened sub-tree
+     *
+     * @param root  Definite JSON Path of the root (e.g. {@code $.spec.config}). {@code $} means the whole resource.
+     *
+     * @return  Chain of the property names leading to the root
+     */
+    static List<String> rootChain(String root)  {
+        List<String> chain = new ArrayList<>();
+
+        if (!root.startsWith("$") || ResourceProjection.chainEnd(root, 1, chain) != root.length()) {
+            throw new ConfigException(KubernetesRawResourceConfigProviderConfig.FLATTEN_ROOT_CONFIG, root, "The root has to be a JSON Path consisting only of single properties");
+        }
+
+        return List.copyOf(chain);
+    }
+
+    /**
+     * Returns the flattened view of the resource document
+     *
+     * @param document  Resource document
+     * @param rootChain Chain of the property names leading to the flattened sub-tree
+     *
+     * @return  Unmodifiable map with the dotted paths relative to the root and their values. Empty map when the root
+     *          does not exist or is not an object or an array.
+     */
+    static Map<String, String> of(ResourceDocument document, List<String> rootChain)    {
+        return document.derived(new RootKey(rootChain), tree -> flatten(tree, rootChain));
+    }
+
+    private static Map<String, String> flatten(Map<String, Object> tree, List<String> rootChain)  {
+        Object root = tree;
+
+        for (String property : rootChain)   {
+            root = root instanceof Map<?, ?> map ? map.get(property) : null;
+        }
+
+        Map<String, String> values = new HashMap<>();
+
+        if (root instanceof Map<?, ?> || root instanceof List<?>)  {
+            flatten(values, null, root);
+        }
+
+        return Collections.unmodifiableMap(values);
+    }
+
+    private static void flatten(Map<String, String> values, String prefix, Object node)  {
+        if (node instanceof Map<?, ?> map)   {
+            for (Map.Entry<?, ?> entry : map.entrySet())    {
+                flatten(values, key(prefix, String.valueOf(entry.getKey())), entry.getValue());
+            }
+        } else if (node instanceof List<?> list)    {
+            for (int i = 0; i < list.size(); i++)  {
+                flatten(values, key(prefix, String.valueOf(i)), list.get(i));
+            }
+        } else if (node != null)    {
+            values.put(prefix, node.toString());
+        }
+    }
+
+    private static String key(String prefix, String name)    {
+        return prefix == null ? name : prefix + "." + name;
+    }
+
+    /**
+     * Identifies the flattened view among the values derived from the document
+     *
+     * @param rootChain Chain of the property names leading to the flattened sub-tree
+     */
+    private record RootKey(List<String> rootChain) { }
+}
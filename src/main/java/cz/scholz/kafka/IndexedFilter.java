@@ -0,0 +1,231 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the JSON Path keys with an equality filter on the array items (such as
+ * {@code $.status.listeners[?(@.name=='external')].bootstrapServers}) using an index instead of scanning the array.
+ * The index maps the values of the filtered field to the array items. It is built once for every resource document
+ * and shared by all keys filtering the same array by the same field.
+ *
+ * Only the keys and the documents where the result is the same as with JSON Path are evaluated using the index. The
+ * array has to contain only objects and the filtered field has to be a string when present. Otherwise, the key has to
+ * be evaluated with JSON Path.
+ */
+final class IndexedFilter {
+    /**
+     * Returned when the key or the document cannot be evaluated using the index
+     */
+    static final Object NOT_INDEXED = new Object();
+
+    private static final Object MISSING = new Object();
+
+    private final IndexKey indexKey;
+    private final String value;
+    private final List<String> tail;
+
+    private IndexedFilter(IndexKey indexKey, String value, List<String> tail) {
+        this.indexKey = indexKey;
+        this.value = value;
+        this.tail = tail;
+    }
+
+    /**
+     * Parses the key in the format {@code $<properties>[?(@.<field>=='<value>')]<properties>}
+     *
+     * @param key   JSON Path key
+     *
+     * @return  The parsed filter or null if the key has a different format
+     */
+    static IndexedFilter parse(String key)  {
+        List<String> arrayChain = new ArrayList<>();
+
+        if (!key.startsWith("$"))   {
+            return null;
+        }
+
+        int i = ResourceProjection.chainEnd(key, 1, arrayChain);
+
+        if (arrayChain.isEmpty() || !key.startsWith("[?(@.", i)) {
+            return null;
+        }
+
+        int fieldStart = i + "[?(@.".length();
+        int fieldEnd = fieldStart;
+        while (fieldEnd < key.length() && isFieldCharacter(key.charAt(fieldEnd)))   {
+            fieldEnd++;
+        }
+
+        int literal = literalStart(key, fieldStart, fieldEnd);
+        int literalEnd = literal >= 0 ? literalEnd(key, literal) : -1;
+
+        if (literalEnd < 0) {
+            return null;
+        }
+
+        List<String> tail = new ArrayList<>();
+        if (ResourceProjection.chainEnd(key, literalEnd + 3, tail) != key.length())   {
+            return null;
+        }
+
+        return new IndexedFilter(new IndexKey(List.copyOf(arrayChain), key.substring(fieldStart, fieldEnd)), key.substring(literal + 1, literalEnd), List.copyOf(tail));
+    }
+
+    /**
+     * Evaluates the filter using the index
+     *
+     * @param document  Resource document
+     *
+     * @return  The first value matched by the key, null when the key does not match any value or NOT_INDEXED when the
+     *          key has to be evaluated with JSON Path
+     */
+    @SuppressWarnings("unchecked")
+    Object evaluate(ResourceDocument document)  {
+        Object index = document.derived(indexKey, tree -> buildIndex(tree, indexKey));
+
+        if (index == NOT_INDEXED)   {
+            return NOT_INDEXED;
+        }
+
+        List<Map<?, ?>> items = ((Map<String, List<Map<?, ?>>>) index).get(value);
+
+        if (items != null)  {
+            for (Map<?, ?> item : items) {
+                Object result = resolve(item, tail);
+
+                // The items where the tail does not exist are skipped the same way as by JSON Path
+                if (result != MISSING)  {
+                    return result;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Builds the index of the array items by the value of the field
+     *
+     * @param tree      Tree of the resource
+     * @param indexKey  Path to the array and the filtered field
+     *
+     * @return  Map with the field values and the items with given value in the array order or NOT_INDEXED when the
+     *          array cannot be indexed
+     */
+    private static Object buildIndex(Map<String, Object> tree, IndexKey indexKey) {
+        Object array = resolve(tree, indexKey.arrayChain());
+
+        if (!(array instanceof List<?> list))   {
+            return NOT_INDEXED;
+        }
+
+        Map<String, List<Map<?, ?>>> index = new HashMap<>();
+
+        for (Object item : list)    {
+            if (!(item instanceof Map<?, ?> map))    {
+                return NOT_INDEXED;
+            } else if (map.containsKey(indexKey.field()))   {
+                if (!(map.get(indexKey.field()) instanceof String fieldValue))    {
+                    return NOT_INDEXED;
+                }
+
+                index.computeIfAbsent(fieldValue, v -> new ArrayList<>(1)).add(map);
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Follows the chain of properties
+     *
+     * @param node  Node where the chain starts
+     * @param chain Chain of property names
+     *
+     * @return  The value at the end of the chain, MISSING when the last property does not exist or NOT_INDEXED when
+     *          the chain cannot be followed the same way as by JSON Path
+     */
+    private static Object resolve(Object node, List<String> chain) {
+        Object current = node;
+
+        for (String property : chain)   {
+            if (!(current instanceof Map<?, ?> map))    {
+                return NOT_INDEXED;
+            } else if (!map.containsKey(property))  {
+                return MISSING;
+            }
+
+            current = map.get(property);
+        }
+
+        return current != null ? current : NOT_INDEXED;
+    }
+
+    /**
+     * Finds the quote starting the literal compared with the field
+     *
+     * @param key           JSON Path key
+     * @param fieldStart    Index where the field name starts
+     * @param fieldEnd      Index after the end of the field name
+     *
+     * @return  Index of the opening quote of the literal or -1 if the filter does not have the expected format
+     */
+    private static int literalStart(String key, int fieldStart, int fieldEnd)  {
+        int operator = skipSpaces(key, fieldEnd);
+
+        if (fieldEnd == fieldStart || !key.startsWith("==", operator))    {
+            return -1;
+        }
+
+        int literal = skipSpaces(key, operator + 2);
+        return literal < key.length() && (key.charAt(literal) == '\'' || key.charAt(literal) == '"') ? literal : -1;
+    }
+
+    /**
+     * Finds the quote ending the literal. The literal has to be followed by the end of the filter.
+     *
+     * @param key       JSON Path key
+     * @param literal   Index of the opening quote of the literal
+     *
+     * @return  Index of the closing quote of the literal or -1 if the filter does not have the expected format
+     */
+    private static int literalEnd(String key, int literal)  {
+        int literalEnd = key.indexOf(key.charAt(literal), literal + 1);
+
+        if (literalEnd < 0 || key.lastIndexOf('\\', literalEnd) > literal || !key.startsWith(")]", literalEnd + 1))  {
+            // Escaped characters or invalid filter
+            return -1;
+        }
+
+        return literalEnd;
+    }
+
+    private static int skipSpaces(String key, int start)  {
+        int i = start;
+
+        while (i < key.length() && key.charAt(i) == ' ')    {
+            i++;
+        }
+
+        return i;
+    }
+
+    private static boolean isFieldCharacter(char c)    {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    /**
+     * Identifies the index of a document
+     *
+     * @param arrayChain    Chain of properties leading to the indexed array
+     * @param field         Field of the array items used as the index key
+     */
+    private record IndexKey(List<String> arrayChain, String field) { }
+}
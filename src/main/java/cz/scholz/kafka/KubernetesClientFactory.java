@@ -0,0 +1,97 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.ConfigBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientBuilder;
+import io.fabric8.kubernetes.client.http.HttpClient;
+import io.fabric8.kubernetes.client.jdkhttp.JdkHttpClientFactory;
+import org.apache.kafka.common.config.ConfigException;
+
+import java.util.Map;
+
+/**
+ * Creates the Kubernetes clients. The clients are configured from the environment (kubeconfig file, service account
+ * or system properties) and the HTTP options of the config provider override the environment configuration.
+ */
+final class KubernetesClientFactory {
+    private static final String VERTX_HTTP_CLIENT_FACTORY = "io.fabric8.kubernetes.client.vertx.VertxHttpClientFactory";
+
+    private KubernetesClientFactory() { }
+
+    /**
+     * Creates the Kubernetes client
+     *
+     * @param clientConfig  Explicitly set HTTP options of the config provider
+     *
+     * @return  Kubernetes client
+     */
+    static KubernetesClient create(Map<String, Object> clientConfig) {
+        KubernetesClientBuilder builder = new KubernetesClientBuilder();
+
+        if (clientConfig.isEmpty()) {
+            return builder.build();
+        }
+
+        builder.withConfig(config(clientConfig));
+
+        if (clientConfig.get(KubernetesRawResourceConfigProviderConfig.HTTP_CLIENT_CONFIG) instanceof String httpClient)  {
+            builder.withHttpClientFactory(httpClientFactory(httpClient));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Creates the configuration of the Kubernetes client
+     *
+     * @param clientConfig  Explicitly set HTTP options of the config provider
+     *
+     * @return  Configuration from the environment with the HTTP options applied
+     */
+    static Config config(Map<String, Object> clientConfig) {
+        ConfigBuilder builder = new ConfigBuilder(Config.autoConfigure(null));
+
+        if (clientConfig.get(KubernetesRawResourceConfigProviderConfig.HTTP_HTTP2_ENABLED_CONFIG) instanceof Boolean http2Enabled) {
+            builder.withHttp2Disable(!http2Enabled);
+        }
+
+        if (clientConfig.get(KubernetesRawResourceConfigProviderConfig.HTTP_MAX_CONCURRENT_REQUESTS_PER_HOST_CONFIG) instanceof Integer maxConcurrentRequests) {
+            builder.withMaxConcurrentRequestsPerHost(maxConcurrentRequests);
+        }
+
+        if (clientConfig.get(KubernetesRawResourceConfigProviderConfig.HTTP_CONNECT_TIMEOUT_MS_CONFIG) instanceof Integer connectTimeoutMs) {
+            builder.withConnectionTimeout(connectTimeoutMs);
+        }
+
+        if (clientConfig.get(KubernetesRawResourceConfigProviderConfig.HTTP_REQUEST_TIMEOUT_MS_CONFIG) instanceof Integer requestTimeoutMs) {
+            builder.withRequestTimeout(requestTimeoutMs);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Creates the factory of the HTTP client implementation. The Vert.x client is loaded dynamically, because it is
+     * not a dependency of the config provider.
+     *
+     * @param httpClient    Name of the HTTP client implementation
+     *
+     * @return  HTTP client factory
+     */
+    static HttpClient.Factory httpClientFactory(String httpClient)   {
+        if (KubernetesRawResourceConfigProviderConfig.HTTP_CLIENT_JDK.equals(httpClient)) {
+            return new JdkHttpClientFactory();
+        }
+
+        try {
+            return (HttpClient.Factory) Class.forName(VERTX_HTTP_CLIENT_FACTORY).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw ApiFetcher.withCause(new ConfigException(KubernetesRawResourceConfigProviderConfig.HTTP_CLIENT_CONFIG, httpClient, "The Vert.x HTTP client is not available. Add the kubernetes-httpclient-vertx library to the classpath."), e);
+        }
+    }
+}
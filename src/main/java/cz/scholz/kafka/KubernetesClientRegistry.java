@@ -0,0 +1,98 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Registry of Kubernetes clients shared by the config provider instances within the JVM. The clients are identified by
+ * the client configuration of the config providers. They are reference counted and closed when the last config
+ * provider using them releases them.
+ */
+class KubernetesClientRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesClientRegistry.class);
+
+    /**
+     * Registry shared by all config provider instances in the JVM
+     */
+    static final KubernetesClientRegistry SHARED = new KubernetesClientRegistry(KubernetesClientFactory::create);
+
+    private final Function<Map<String, Object>, KubernetesClient> clientFactory;
+    private final Map<Map<String, Object>, SharedClient> clients = new HashMap<>();
+
+    /**
+     * Creates the client registry
+     *
+     * @param clientFactory     Function used to create new Kubernetes client from the client configuration
+     */
+    KubernetesClientRegistry(Function<Map<String, Object>, KubernetesClient> clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Gets the Kubernetes client for given configuration. The client is created if no other config provider uses a
+     * client with the same configuration. Every acquired client has to be released using the release method.
+     *
+     * @param clientConfig  Client configuration
+     *
+     * @return  Kubernetes client
+     */
+    synchronized KubernetesClient acquire(Map<String, Object> clientConfig)  {
+        SharedClient shared = clients.get(clientConfig);
+
+        if (shared == null) {
+            LOG.debug("Creating new shared Kubernetes client");
+            shared = new SharedClient(clientFactory.apply(clientConfig));
+            clients.put(Map.copyOf(clientConfig), shared);
+        }
+
+        shared.references++;
+        return shared.client;
+    }
+
+    /**
+     * Releases the Kubernetes client. The client is closed when it is not used by any other config provider.
+     *
+     * @param clientConfig  Client configuration used to acquire the client
+     */
+    synchronized void release(Map<String, Object> clientConfig)  {
+        SharedClient shared = clients.get(clientConfig);
+
+        if (shared != null) {
+            shared.references--;
+
+            if (shared.references <= 0)  {
+                LOG.debug("Closing shared Kubernetes client");
+                clients.remove(clientConfig);
+                shared.client.close();
+            }
+        }
+    }
+
+    /**
+     * @return  Number of clients in the registry
+     */
+    synchronized int size() {
+        return clients.size();
+    }
+
+    /**
+     * Kubernetes client with the number of its users
+     */
+    private static class SharedClient {
+        private final KubernetesClient client;
+        private int references = 0;
+
+        SharedClient(KubernetesClient client) {
+            this.client = client;
+        }
+    }
+}
@@ -5,15 +5,24 @@
 package cz.scholz.kafka;
 
 import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResourceList;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
 import org.apache.kafka.common.config.ConfigException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * Abstract class for Kafka configuration providers using Kubernetes resources
  */
-public class KubernetesRawNamespacedResourceConfigProvider extends AbstractKubernetesRawResourceConfigProvider {
+public class KubernetesRawNamespacedResourceConfigProvider extends AbstractKubernetesRawResourceConfigProvider<NamespacedResourceIdentifier> {
     private static final Logger LOG = LoggerFactory.getLogger(KubernetesRawNamespacedResourceConfigProvider.class);
 
     /**
@@ -24,16 +33,26 @@ public class KubernetesRawNamespacedResourceConfigProvider extends AbstractKuber
     // Kubernetes helper methods
 
     /**
-     * Gets the resource from Kubernetes
+     * Parses the path into the resource identifier
      *
      * @param path  Path to the Kubernetes resource
      *
-     * @return      Resource retrieved from the Kubernetes cluster
+     * @return      Resource identifier
      */
     @Override
-    protected GenericKubernetesResource getResource(String path)   {
-        final NamespacedResourceIdentifier ri = NamespacedResourceIdentifier.fromPath(path);
+    protected NamespacedResourceIdentifier parsePath(String path)   {
+        return NamespacedResourceIdentifier.fromPath(path);
+    }
 
+    /**
+     * Gets the resource from Kubernetes
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return      Resource retrieved from the Kubernetes cluster
+     */
+    @Override
+    protected GenericKubernetesResource getResource(NamespacedResourceIdentifier ri)   {
         LOG.info("Retrieving resource {}/{} {} with name {} from namespace {}", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace());
 
         try {
@@ -41,13 +60,79 @@ public class KubernetesRawNamespacedResourceConfigProvider extends AbstractKuber
 
             if (resource == null)   {
                 LOG.error("Resource {}/{} {} with name {} from namespace {} was not found", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace());
-                throw new ConfigException("Resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found in namespace " + ri.namespace() + "!");
+                throw new ResourceNotFoundException("Resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found in namespace " + ri.namespace() + "!");
             }
 
             return resource;
         } catch (KubernetesClientException e)   {
             LOG.error("Failed to retrieve resource {}/{} {} with name {} from namespace {}", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace(), e);
-            throw new ConfigException("Failed to retrieve resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found in namespace " + ri.namespace() + "!", e);
+            throw ApiFetcher.withCause(new ConfigException("Failed to retrieve resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found in namespace " + ri.namespace() + "!"), e);
+        }
+    }
+
+    /**
+     * Lists the resources of given kind from Kubernetes
+     *
+     * @param kind          Kind and namespace of the resources (the namespace is null for all namespaces)
+     * @param labelSelector Label selector of the resources or null to list all resources
+     *
+     * @return      Resources retrieved from the Kubernetes cluster
+     */
+    @Override
+    protected List<GenericKubernetesResource> listResources(ResourceKind kind, String labelSelector)   {
+        LOG.info("Listing resources {}/{} {} in namespace {} with label selector {}", kind.group(), kind.version(), kind.kind(), kind.namespace(), labelSelector);
+
+        try {
+            MixedOperation<GenericKubernetesResource, GenericKubernetesResourceList, Resource<GenericKubernetesResource>> operation = client.genericKubernetesResources(ResourcePathParser.definitionContext(kind.group(), kind.version(), kind.kind(), true));
+            FilterWatchListDeletable<GenericKubernetesResource, GenericKubernetesResourceList, Resource<GenericKubernetesResource>> resources = kind.namespace() != null ? operation.inNamespace(kind.namespace()) : operation.inAnyNamespace();
+
+            return (labelSelector != null ? resources.withLabelSelector(labelSelector) : resources).list().getItems();
+        } catch (KubernetesClientException e)   {
+            LOG.error("Failed to list resources {}/{} {} in namespace {}", kind.group(), kind.version(), kind.kind(), kind.namespace(), e);
+            throw ApiFetcher.withCause(new ConfigException("Failed to list resources " + kind.group() + "/" + kind.version() + "/" + kind.kind() + " in namespace " + kind.namespace() + "!"), e);
+        }
+    }
+
+    /**
+     * Watches the resource in Kubernetes
+     *
+     * @param ri        Identifier of the Kubernetes resource
+     * @param watcher   Watcher which should receive the events about the resource
+     *
+     * @return      The Kubernetes watch
+     */
+    @Override
+    protected Watch watchResource(NamespacedResourceIdentifier ri, Watcher<GenericKubernetesResource> watcher)   {
+        if (ri.labelSelector() != null) {
+            throw new ConfigException("Paths with a label selector cannot be watched for changes");
+        }
+
+        LOG.info("Watching resource {}/{} {} with name {} in namespace {}", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace());
+
+        try {
+            return client.genericKubernetesResources(ri.resourceDefinitionContext()).inNamespace(ri.namespace()).withName(ri.name()).watch(watcher);
+        } catch (KubernetesClientException e)   {
+            LOG.error("Failed to watch resource {}/{} {} with name {} in namespace {}", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace(), e);
+            throw ApiFetcher.withCause(new ConfigException("Failed to watch resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " in namespace " + ri.namespace() + "!"), e);
+        }
+    }
+
+    /**
+     * Starts an informer for the kind and namespace of the resource. The method blocks until the informer is synced.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return      The started informer
+     */
+    @Override
+    protected SharedIndexInformer<GenericKubernetesResource> informResources(NamespacedResourceIdentifier ri)   {
+        LOG.info("Starting informer for resources {}/{} {} in namespace {}", ri.group(), ri.version(), ri.kind(), ri.namespace());
+
+        try {
+            return client.genericKubernetesResources(ri.resourceDefinitionContext()).inNamespace(ri.namespace()).inform();
+        } catch (KubernetesClientException e)   {
+            LOG.error("Failed to start informer for resources {}/{} {} in namespace {}", ri.group(), ri.version(), ri.kind(), ri.namespace(), e);
+            throw ApiFetcher.withCause(new ConfigException("Failed to start informer for resources " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " in namespace " + ri.namespace() + "!"), e);
         }
     }
 }
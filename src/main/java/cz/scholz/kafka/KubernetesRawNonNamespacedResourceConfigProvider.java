@@ -5,15 +5,23 @@
 package cz.scholz.kafka;
 
 import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResourceList;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
 import org.apache.kafka.common.config.ConfigException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * Abstract class for Kafka configuration providers using Kubernetes resources
  */
-public class KubernetesRawNonNamespacedResourceConfigProvider extends AbstractKubernetesRawResourceConfigProvider {
+public class KubernetesRawNonNamespacedResourceConfigProvider extends AbstractKubernetesRawResourceConfigProvider<NonNamespacedResourceIdentifier> {
     private static final Logger LOG = LoggerFactory.getLogger(KubernetesRawNonNamespacedResourceConfigProvider.class);
 
     /**
@@ -24,16 +32,26 @@ public class KubernetesRawNonNamespacedResourceConfigProvider extends AbstractKu
     // Kubernetes helper methods
 
     /**
-     * Gets the resource from Kubernetes
+     * Parses the path into the resource identifier
      *
      * @param path  Path to the Kubernetes resource
      *
-     * @return      Resource retrieved from the Kubernetes cluster
+     * @return      Resource identifier
      */
     @Override
-    protected GenericKubernetesResource getResource(String path)   {
-        final NonNamespacedResourceIdentifier ri = NonNamespacedResourceIdentifier.fromPath(path);
+    protected NonNamespacedResourceIdentifier parsePath(String path)   {
+        return NonNamespacedResourceIdentifier.fromPath(path);
+    }
 
+    /**
+     * Gets the resource from Kubernetes
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return      Resource retrieved from the Kubernetes cluster
+     */
+    @Override
+    protected GenericKubernetesResource getResource(NonNamespacedResourceIdentifier ri)   {
         LOG.info("Retrieving resource {}/{} {} with name {}", ri.group(), ri.version(), ri.kind(), ri.name());
 
         try {
@@ -41,13 +59,78 @@ public class KubernetesRawNonNamespacedResourceConfigProvider extends AbstractKu
 
             if (resource == null)   {
                 LOG.error("Resource {}/{} {} with name {} was not found", ri.group(), ri.version(), ri.kind(), ri.name());
-                throw new ConfigException("Resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found!");
+                throw new ResourceNotFoundException("Resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found!");
             }
 
             return resource;
         } catch (KubernetesClientException e)   {
             LOG.error("Failed to retrieve resource {}/{} {} with name {}", ri.group(), ri.version(), ri.kind(), ri.name(), e);
-            throw new ConfigException("Failed to retrieve resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found!", e);
+            throw ApiFetcher.withCause(new ConfigException("Failed to retrieve resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found!"), e);
+        }
+    }
+
+    /**
+     * Lists the resources of given kind from Kubernetes
+     *
+     * @param kind          Kind of the resources
+     * @param labelSelector Label selector of the resources or null to list all resources
+     *
+     * @return      Resources retrieved from the Kubernetes cluster
+     */
+    @Override
+    protected List<GenericKubernetesResource> listResources(ResourceKind kind, String labelSelector)   {
+        LOG.info("Listing resources {}/{} {} with label selector {}", kind.group(), kind.version(), kind.kind(), labelSelector);
+
+        try {
+            NonNamespaceOperation<GenericKubernetesResource, GenericKubernetesResourceList, Resource<GenericKubernetesResource>> resources = client.genericKubernetesResources(ResourcePathParser.definitionContext(kind.group(), kind.version(), kind.kind(), false));
+
+            return (labelSelector != null ? resources.withLabelSelector(labelSelector) : resources).list().getItems();
+        } catch (KubernetesClientException e)   {
+            LOG.error("Failed to list resources {}/{} {}", kind.group(), kind.version(), kind.kind(), e);
+            throw ApiFetcher.withCause(new ConfigException("Failed to list resources " + kind.group() + "/" + kind.version() + "/" + kind.kind() + "!"), e);
+        }
+    }
+
+    /**
+     * Watches the resource in Kubernetes
+     *
+     * @param ri        Identifier of the Kubernetes resource
+     * @param watcher   Watcher which should receive the events about the resource
+     *
+     * @return      The Kubernetes watch
+     */
+    @Override
+    protected Watch watchResource(NonNamespacedResourceIdentifier ri, Watcher<GenericKubernetesResource> watcher)   {
+        if (ri.labelSelector() != null) {
+            throw new ConfigException("Paths with a label selector cannot be watched for changes");
+        }
+
+        LOG.info("Watching resource {}/{} {} with name {}", ri.group(), ri.version(), ri.kind(), ri.name());
+
+        try {
+            return client.genericKubernetesResources(ri.resourceDefinitionContext()).withName(ri.name()).watch(watcher);
+        } catch (KubernetesClientException e)   {
+            LOG.error("Failed to watch resource {}/{} {} with name {}", ri.group(), ri.version(), ri.kind(), ri.name(), e);
+            throw ApiFetcher.withCause(new ConfigException("Failed to watch resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + "!"), e);
+        }
+    }
+
+    /**
+     * Starts an informer for the kind and namespace of the resource. The method blocks until the informer is synced.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return      The started informer
+     */
+    @Override
+    protected SharedIndexInformer<GenericKubernetesResource> informResources(NonNamespacedResourceIdentifier ri)   {
+        LOG.info("Starting informer for resources {}/{} {}", ri.group(), ri.version(), ri.kind());
+
+        try {
+            return client.genericKubernetesResources(ri.resourceDefinitionContext()).inform();
+        } catch (KubernetesClientException e)   {
+            LOG.error("Failed to start informer for resources {}/{} {}", ri.group(), ri.version(), ri.kind(), e);
+            throw ApiFetcher.withCause(new ConfigException("Failed to start informer for resources " + ri.group() + "/" + ri.version() + "/" + ri.kind() + "!"), e);
         }
     }
 }
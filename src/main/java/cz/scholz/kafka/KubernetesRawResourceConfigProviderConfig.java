@@ -0,0 +1,241 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration of the Kubernetes Raw Resource config providers
+ */
+class KubernetesRawResourceConfigProviderConfig extends AbstractConfig {
+    public static final String HTTP_CLIENT_CONFIG = "kubernetes.http.client";
+    public static final String HTTP_CLIENT_JDK = "jdk";
+    public static final String HTTP_CLIENT_VERTX = "vertx";
+    private static final String HTTP_CLIENT_DOC = "HTTP client implementation used by the Kubernetes client (jdk or vertx). "
+            + "The vertx client requires the kubernetes-httpclient-vertx library on the classpath. "
+            + "When not set, the Kubernetes client picks the implementation available on the classpath.";
+    public static final String HTTP_HTTP2_ENABLED_CONFIG = "kubernetes.http.http2.enabled";
+    private static final String HTTP_HTTP2_ENABLED_DOC = "When enabled, HTTP/2 is used when supported by the Kubernetes API server, so that the concurrent requests are multiplexed over a single connection. "
+            + "When disabled, HTTP/1.1 is used.";
+    public static final String HTTP_MAX_CONCURRENT_REQUESTS_PER_HOST_CONFIG = "kubernetes.http.max.concurrent.requests.per.host";
+    private static final String HTTP_MAX_CONCURRENT_REQUESTS_PER_HOST_DOC = "Maximal number of concurrent requests to the Kubernetes API server. "
+            + "It is used only by the HTTP client implementations with a connection pool limit (such as vertx).";
+    public static final String HTTP_CONNECT_TIMEOUT_MS_CONFIG = "kubernetes.http.connect.timeout.ms";
+    private static final String HTTP_CONNECT_TIMEOUT_MS_DOC = "Timeout (in milliseconds) for opening a connection to the Kubernetes API server.";
+    public static final String HTTP_REQUEST_TIMEOUT_MS_CONFIG = "kubernetes.http.request.timeout.ms";
+    private static final String HTTP_REQUEST_TIMEOUT_MS_DOC = "Timeout (in milliseconds) for reading the response of a single request to the Kubernetes API server.";
+
+    /**
+     * Options passed to the Kubernetes client. They are applied only when they are set explicitly, so that the
+     * Kubernetes client defaults and its configuration from the environment are used otherwise.
+     */
+    static final List<String> HTTP_CONFIGS = List.of(HTTP_CLIENT_CONFIG, HTTP_HTTP2_ENABLED_CONFIG,
+            HTTP_MAX_CONCURRENT_REQUESTS_PER_HOST_CONFIG, HTTP_CONNECT_TIMEOUT_MS_CONFIG, HTTP_REQUEST_TIMEOUT_MS_CONFIG);
+
+    public static final String CACHE_TTL_MS_CONFIG = "cache.ttl.ms";
+    private static final String CACHE_TTL_MS_DOC = "How long (in milliseconds) are the resources retrieved from the Kubernetes API cached. "
+            + "The value 0 disables the cache.";
+
+    public static final String CACHE_MAX_ENTRIES_CONFIG = "cache.max.entries";
+    private static final String CACHE_MAX_ENTRIES_DOC = "Maximal number of resources kept in the cache. "
+            + "When the cache is full, the least recently used resources are evicted.";
+
+    public static final String CACHE_MAX_BYTES_CONFIG = "cache.max.bytes";
+    private static final String CACHE_MAX_BYTES_DOC = "Maximal estimated heap size (in bytes) of the resources kept in the cache. "
+            + "When the cache is full, the least recently used resources are evicted.";
+
+    public static final String CACHE_MODE_CONFIG = "cache.mode";
+    public static final String CACHE_MODE_RESOURCES = "resources";
+    public static final String CACHE_MODE_VALUES = "values";
+    private static final String CACHE_MODE_DOC = "What is cached. In the resources mode, the whole resources are cached and any key can be resolved from them. "
+            + "In the values mode, only the resolved values of the looked up keys are cached together with the resource version and the resources are dropped right after the values are extracted. "
+            + "The cache size limits apply to the cached values. Serving stale resources, the revalidation and the refresh-ahead need the resources mode.";
+
+    public static final String CACHE_REVALIDATE_CONFIG = "cache.revalidate";
+    private static final String CACHE_REVALIDATE_DOC = "When enabled, the expired cached resources are revalidated by retrieving only their metadata. "
+            + "The whole resource is retrieved again only when its resource version changed. "
+            + "The expired resources are kept in the cache for the revalidation and are subject to its size limits.";
+
+    public static final String REFRESH_AHEAD_ENABLED_CONFIG = "refresh.ahead.enabled";
+    private static final String REFRESH_AHEAD_ENABLED_DOC = "When enabled, the cached resources which are looked up regularly are refreshed in the background shortly before they expire. "
+            + "It requires the cache to be enabled.";
+
+    public static final String REFRESH_AHEAD_IDLE_TIMEOUT_MS_CONFIG = "refresh.ahead.idle.timeout.ms";
+    private static final String REFRESH_AHEAD_IDLE_TIMEOUT_MS_DOC = "Time (in milliseconds) after which the resources which were not looked up are not refreshed in the background anymore.";
+
+    public static final String INFORMERS_ENABLED_CONFIG = "informers.enabled";
+    private static final String INFORMERS_ENABLED_DOC = "When enabled, a single informer is started for each resource kind and namespace on the first lookup. "
+            + "The following lookups of resources of the same kind from the same namespace are served from the local informer store.";
+
+    public static final String LOOKUP_TIMEOUT_MS_CONFIG = "lookup.timeout.ms";
+    private static final String LOOKUP_TIMEOUT_MS_DOC = "Deadline (in milliseconds) for retrieving a resource from the Kubernetes API including all retries. "
+            + "The value 0 means no deadline and the lookup is bounded only by the timeouts of the Kubernetes client.";
+
+    public static final String RETRIES_CONFIG = "retries";
+    private static final String RETRIES_DOC = "How many times is the request to the Kubernetes API retried when the API server is unavailable or responds with 429 or 5xx status code.";
+
+    public static final String RETRY_BACKOFF_MS_CONFIG = "retry.backoff.ms";
+    private static final String RETRY_BACKOFF_MS_DOC = "Initial backoff (in milliseconds) before retrying a failed request to the Kubernetes API. "
+            + "The backoff grows exponentially with every failed attempt and is randomized by up to 20%.";
+
+    public static final String RETRY_BACKOFF_MAX_MS_CONFIG = "retry.backoff.max.ms";
+    private static final String RETRY_BACKOFF_MAX_MS_DOC = "Maximal backoff (in milliseconds) before retrying a failed request to the Kubernetes API.";
+
+    public static final String API_RATE_LIMIT_CONFIG = "api.rate.limit";
+    private static final String API_RATE_LIMIT_DOC = "Maximal rate of the requests per second sent to the Kubernetes API by all config providers in the JVM. The limit is shared and is set by the first config provider in the JVM. "
+            + "Bursts of up to one second worth of requests are allowed. The requests over the rate wait for their turn. "
+            + "The value 0 disables the rate limit.";
+
+    public static final String API_MAX_IN_FLIGHT_CONFIG = "api.max.in.flight";
+    private static final String API_MAX_IN_FLIGHT_DOC = "Maximal number of concurrent requests to the Kubernetes API from all config providers in the JVM. The limit is shared and is set by the first config provider in the JVM. "
+            + "The requests over the limit wait until another request completes. The value 0 disables the limit.";
+
+    public static final String SERVE_STALE_ON_ERROR_CONFIG = "serve.stale.on.error";
+    private static final String SERVE_STALE_ON_ERROR_DOC = "When enabled, the last successfully retrieved version of the resource is used when the Kubernetes API is unavailable or responds with 429 or 5xx status code. "
+            + "The last retrieved versions are kept in the cache even after they expire and are subject to its size limits.";
+
+    public static final String NEGATIVE_CACHE_TTL_MS_CONFIG = "negative.cache.ttl.ms";
+    private static final String NEGATIVE_CACHE_TTL_MS_DOC = "How long (in milliseconds) are the lookups of missing resources and of invalid paths remembered. "
+            + "The repeated lookups fail immediately without retrieving the resource again. The value 0 disables the negative cache.";
+
+    public static final String PREFETCH_PATHS_CONFIG = "prefetch.paths";
+    private static final String PREFETCH_PATHS_DOC = "Comma-separated list of paths to the resources which are retrieved already when the config provider is configured. "
+            + "The resources are retrieved in parallel.";
+
+    public static final String PREFETCH_PATHS_LIST_CONFIG = "prefetch.paths.list";
+    private static final String PREFETCH_PATHS_LIST_DOC = "When enabled, multiple prefetch paths of the same kind from the same namespace are retrieved with a single list request. "
+            + "The list request retrieves all resources of the kind from the namespace and needs the list access rights. "
+            + "When the list request is forbidden, the resources are retrieved one by one.";
+
+    public static final String PREFETCH_KINDS_CONFIG = "prefetch.kinds";
+    private static final String PREFETCH_KINDS_DOC = "Comma-separated list of resource kinds in the format <group>/<version>/<kind> (or <version>/<kind> for core package APIs). "
+            + "All resources of these kinds matching the prefetch label selector are retrieved with a list request when the config provider is configured.";
+
+    public static final String PREFETCH_NAMESPACES_CONFIG = "prefetch.namespaces";
+    private static final String PREFETCH_NAMESPACES_DOC = "Comma-separated list of namespaces from which the prefetch kinds are retrieved. "
+            + "When empty, the resources are retrieved from all namespaces.";
+
+    public static final String PREFETCH_LABEL_SELECTOR_CONFIG = "prefetch.label.selector";
+    private static final String PREFETCH_LABEL_SELECTOR_DOC = "Label selector used to select the prefetched resources of the prefetch kinds.";
+
+    public static final String PREFETCH_TTL_MS_CONFIG = "prefetch.ttl.ms";
+    private static final String PREFETCH_TTL_MS_DOC = "How long (in milliseconds) are the prefetched resources kept in memory when the cache is disabled. "
+            + "When the cache is enabled, the prefetched resources expire after the cache TTL.";
+
+    public static final String LOOKUP_PARALLELISM_CONFIG = "lookup.parallelism";
+    private static final String LOOKUP_PARALLELISM_DOC = "Maximal number of resources retrieved in parallel by the batch lookups, by the lookahead and by the refresh-ahead.";
+
+    public static final String LOOKAHEAD_ENABLED_CONFIG = "lookahead.enabled";
+    private static final String LOOKAHEAD_ENABLED_DOC = "When enabled, the provider remembers which paths were looked up by the same thread shortly after each other. "
+            + "When the first of these paths is looked up again, the other paths are retrieved in the background.";
+
+    public static final String LOOKAHEAD_WINDOW_MS_CONFIG = "lookahead.window.ms";
+    private static final String LOOKAHEAD_WINDOW_MS_DOC = "Maximal time (in milliseconds) between the lookups from the same thread for them to be remembered as looked up together.";
+
+    public static final String FETCH_MODE_CONFIG = "fetch.mode";
+    public static final String FETCH_MODE_FULL = "full";
+    public static final String FETCH_MODE_STREAMING = "streaming";
+    private static final String FETCH_MODE_DOC = "How are the resources retrieved from the Kubernetes API. "
+            + "In the full mode, the whole resources are deserialized. "
+            + "In the streaming mode, the resources are parsed with a streaming parser and only the parts needed by the looked up keys are materialized.";
+
+    public static final String SELECTOR_DELIMITER_CONFIG = "selector.delimiter";
+    private static final String SELECTOR_DELIMITER_DOC = "Delimiter used to join the values from the resources selected by the paths with a label selector.";
+
+    public static final String FLATTEN_ROOT_CONFIG = "flatten.root";
+    private static final String FLATTEN_ROOT_DOC = "JSON Path of the part of the resource which is returned flattened into dotted keys when the path is looked up without any keys. "
+            + "It can consist only of single properties (for example $.spec.config). The default $ returns the whole resource.";
+
+    public static final String SNAPSHOT_FILE_CONFIG = "snapshot.file";
+    private static final String SNAPSHOT_FILE_DOC = "Path to a local file where the resolved values are stored. "
+            + "After a restart, the values from the file are used right away and revalidated against the Kubernetes API in the background. "
+            + "When not set, no snapshot is used.";
+
+    public static final String SNAPSHOT_MAX_STALENESS_MS_CONFIG = "snapshot.max.staleness.ms";
+    private static final String SNAPSHOT_MAX_STALENESS_MS_DOC = "Maximal age (in milliseconds) of the values from the snapshot file which can be used. "
+            + "Older values are retrieved from the Kubernetes API.";
+
+    static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(HTTP_CLIENT_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.LambdaValidator.with(KubernetesRawResourceConfigProviderConfig::validateHttpClient, () -> "[" + HTTP_CLIENT_JDK + ", " + HTTP_CLIENT_VERTX + "]"), ConfigDef.Importance.LOW, HTTP_CLIENT_DOC)
+            .define(HTTP_HTTP2_ENABLED_CONFIG, ConfigDef.Type.BOOLEAN, true, ConfigDef.Importance.LOW, HTTP_HTTP2_ENABLED_DOC)
+            .define(HTTP_MAX_CONCURRENT_REQUESTS_PER_HOST_CONFIG, ConfigDef.Type.INT, 5, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, HTTP_MAX_CONCURRENT_REQUESTS_PER_HOST_DOC)
+            .define(HTTP_CONNECT_TIMEOUT_MS_CONFIG, ConfigDef.Type.INT, 10_000, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW, HTTP_CONNECT_TIMEOUT_MS_DOC)
+            .define(HTTP_REQUEST_TIMEOUT_MS_CONFIG, ConfigDef.Type.INT, 10_000, ConfigDef.Range.atLeast(0), ConfigDef.Importance.LOW, HTTP_REQUEST_TIMEOUT_MS_DOC)
+            .define(CACHE_TTL_MS_CONFIG, ConfigDef.Type.LONG, 0L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.MEDIUM, CACHE_TTL_MS_DOC)
+            .define(CACHE_MAX_ENTRIES_CONFIG, ConfigDef.Type.INT, 1_000, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, CACHE_MAX_ENTRIES_DOC)
+            .define(CACHE_MAX_BYTES_CONFIG, ConfigDef.Type.LONG, 64L * 1024L * 1024L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.LOW, CACHE_MAX_BYTES_DOC)
+            .define(CACHE_MODE_CONFIG, ConfigDef.Type.STRING, CACHE_MODE_RESOURCES, ConfigDef.ValidString.in(CACHE_MODE_RESOURCES, CACHE_MODE_VALUES), ConfigDef.Importance.MEDIUM, CACHE_MODE_DOC)
+            .define(CACHE_REVALIDATE_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.MEDIUM, CACHE_REVALIDATE_DOC)
+            .define(REFRESH_AHEAD_ENABLED_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.MEDIUM, REFRESH_AHEAD_ENABLED_DOC)
+            .define(REFRESH_AHEAD_IDLE_TIMEOUT_MS_CONFIG, ConfigDef.Type.LONG, 600_000L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.LOW, REFRESH_AHEAD_IDLE_TIMEOUT_MS_DOC)
+            .define(INFORMERS_ENABLED_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.MEDIUM, INFORMERS_ENABLED_DOC)
+            .define(LOOKUP_TIMEOUT_MS_CONFIG, ConfigDef.Type.LONG, 0L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.MEDIUM, LOOKUP_TIMEOUT_MS_DOC)
+            .define(RETRIES_CONFIG, ConfigDef.Type.INT, 0, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM, RETRIES_DOC)
+            .define(RETRY_BACKOFF_MS_CONFIG, ConfigDef.Type.LONG, 100L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.LOW, RETRY_BACKOFF_MS_DOC)
+            .define(RETRY_BACKOFF_MAX_MS_CONFIG, ConfigDef.Type.LONG, 10_000L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.LOW, RETRY_BACKOFF_MAX_MS_DOC)
+            .define(API_RATE_LIMIT_CONFIG, ConfigDef.Type.DOUBLE, 0.0, ConfigDef.Range.atLeast(0.0), ConfigDef.Importance.MEDIUM, API_RATE_LIMIT_DOC)
+            .define(API_MAX_IN_FLIGHT_CONFIG, ConfigDef.Type.INT, 0, ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM, API_MAX_IN_FLIGHT_DOC)
+            .define(SERVE_STALE_ON_ERROR_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.MEDIUM, SERVE_STALE_ON_ERROR_DOC)
+            .define(NEGATIVE_CACHE_TTL_MS_CONFIG, ConfigDef.Type.LONG, 0L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.MEDIUM, NEGATIVE_CACHE_TTL_MS_DOC)
+            .define(PREFETCH_PATHS_CONFIG, ConfigDef.Type.LIST, List.of(), ConfigDef.Importance.MEDIUM, PREFETCH_PATHS_DOC)
+            .define(PREFETCH_PATHS_LIST_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.LOW, PREFETCH_PATHS_LIST_DOC)
+            .define(PREFETCH_KINDS_CONFIG, ConfigDef.Type.LIST, List.of(), ConfigDef.Importance.MEDIUM, PREFETCH_KINDS_DOC)
+            .define(PREFETCH_NAMESPACES_CONFIG, ConfigDef.Type.LIST, List.of(), ConfigDef.Importance.LOW, PREFETCH_NAMESPACES_DOC)
+            .define(PREFETCH_LABEL_SELECTOR_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.LOW, PREFETCH_LABEL_SELECTOR_DOC)
+            .define(PREFETCH_TTL_MS_CONFIG, ConfigDef.Type.LONG, 60_000L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.LOW, PREFETCH_TTL_MS_DOC)
+            .define(LOOKUP_PARALLELISM_CONFIG, ConfigDef.Type.INT, 8, ConfigDef.Range.atLeast(1), ConfigDef.Importance.LOW, LOOKUP_PARALLELISM_DOC)
+            .define(LOOKAHEAD_ENABLED_CONFIG, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.MEDIUM, LOOKAHEAD_ENABLED_DOC)
+            .define(LOOKAHEAD_WINDOW_MS_CONFIG, ConfigDef.Type.LONG, 1_000L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.LOW, LOOKAHEAD_WINDOW_MS_DOC)
+            .define(FETCH_MODE_CONFIG, ConfigDef.Type.STRING, FETCH_MODE_FULL, ConfigDef.ValidString.in(FETCH_MODE_FULL, FETCH_MODE_STREAMING), ConfigDef.Importance.MEDIUM, FETCH_MODE_DOC)
+            .define(SELECTOR_DELIMITER_CONFIG, ConfigDef.Type.STRING, ",", ConfigDef.Importance.LOW, SELECTOR_DELIMITER_DOC)
+            .define(FLATTEN_ROOT_CONFIG, ConfigDef.Type.STRING, "$", ConfigDef.LambdaValidator.with(KubernetesRawResourceConfigProviderConfig::validateFlattenRoot, () -> "JSON Path consisting only of single properties"), ConfigDef.Importance.LOW, FLATTEN_ROOT_DOC)
+            .define(SNAPSHOT_FILE_CONFIG, ConfigDef.Type.STRING, null, ConfigDef.Importance.MEDIUM, SNAPSHOT_FILE_DOC)
+            .define(SNAPSHOT_MAX_STALENESS_MS_CONFIG, ConfigDef.Type.LONG, 3_600_000L, ConfigDef.Range.atLeast(0L), ConfigDef.Importance.LOW, SNAPSHOT_MAX_STALENESS_MS_DOC);
+
+    /**
+     * Creates the configuration
+     *
+     * @param originals     Configuration passed to the config provider
+     */
+    KubernetesRawResourceConfigProviderConfig(Map<String, ?> originals) {
+        super(CONFIG_DEF, originals, false);
+    }
+
+    /**
+     * @return  Configuration of the Kubernetes client with the explicitly set HTTP options. Config providers with the
+     *          same client configuration share the same Kubernetes client.
+     */
+    Map<String, Object> clientConfig()  {
+        Map<String, Object> clientConfig = new HashMap<>();
+
+        for (String option : HTTP_CONFIGS)  {
+            if (originals().get(option) != null)    {
+                clientConfig.put(option, get(option));
+            }
+        }
+
+        return clientConfig;
+    }
+
+    private static void validateHttpClient(String name, Object value)  {
+        if (value != null && !HTTP_CLIENT_JDK.equals(value) && !HTTP_CLIENT_VERTX.equals(value)) {
+            throw new ConfigException(name, value, "The HTTP client has to be " + HTTP_CLIENT_JDK + " or " + HTTP_CLIENT_VERTX);
+        }
+    }
+
+    private static void validateFlattenRoot(String name, Object value)  {
+        if (value == null)  {
+            throw new ConfigException(name, null, "The root has to be a JSON Path consisting only of single properties");
+        }
+
+        FlattenedResource.rootChain((String) value);
+    }
+}
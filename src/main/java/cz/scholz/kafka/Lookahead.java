@@ -0,0 +1,113 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.Time;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Learns which paths are looked up together and schedules the lookups of the sibling paths when the first path is
+ * looked up again. Kafka resolves the configuration path by path from a single thread. The lookups made by the same
+ * thread shortly after each other are therefore considered to belong to the same configuration. The paths looked up
+ * after the first path of such run are its siblings.
+ */
+class Lookahead {
+    private static final int MAX_SIBLINGS = 64;
+
+    private final long windowMs;
+    private final Time time;
+    private final Consumer<String> scheduler;
+    private final Map<Thread, Run> runs = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> siblings;
+
+    /**
+     * Creates the lookahead
+     *
+     * @param windowMs      Maximal time in milliseconds between the lookups from the same thread which belong to the
+     *                      same run
+     * @param maxEntries    Maximal number of the first paths for which the siblings are remembered
+     * @param time          Time used to measure the time between the lookups
+     * @param scheduler     Consumer which schedules the lookup of a sibling path
+     */
+    Lookahead(long windowMs, int maxEntries, Time time, Consumer<String> scheduler) {
+        this.windowMs = windowMs;
+        this.time = time;
+        this.scheduler = scheduler;
+        this.siblings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Records the lookup of the path by the current thread. When it starts a new run, the lookups of the siblings
+     * seen in the previous runs are scheduled.
+     *
+     * @param path  Path which is looked up
+     */
+    void record(String path)  {
+        long now = time.milliseconds();
+        Thread caller = Thread.currentThread();
+        Run run = runs.get(caller);
+
+        if (run == null || now - run.lastLookupMs() > windowMs) {
+            // The expired runs of all threads are removed, so that the runs of the threads which do not make any
+            // lookups anymore (or which do not exist anymore) are not kept forever
+            runs.values().removeIf(expired -> now - expired.lastLookupMs() > windowMs);
+            runs.put(caller, new Run(path, now));
+            siblingsOf(path).forEach(scheduler);
+        } else {
+            addSibling(run.firstPath(), path);
+            runs.put(caller, new Run(run.firstPath(), now));
+        }
+    }
+
+    /**
+     * @return  Number of the runs which are remembered
+     */
+    int runs()  {
+        return runs.size();
+    }
+
+    /**
+     * Forgets the runs and the siblings
+     */
+    synchronized void clear()    {
+        runs.clear();
+        siblings.clear();
+    }
+
+    private synchronized List<String> siblingsOf(String path)  {
+        Set<String> pathSiblings = siblings.get(path);
+        return pathSiblings != null ? List.copyOf(pathSiblings) : List.of();
+    }
+
+    private synchronized void addSibling(String firstPath, String path)  {
+        if (!firstPath.equals(path))    {
+            Set<String> pathSiblings = siblings.computeIfAbsent(firstPath, p -> new LinkedHashSet<>());
+
+            if (pathSiblings.size() < MAX_SIBLINGS) {
+                pathSiblings.add(path);
+            }
+        }
+    }
+
+    /**
+     * Lookups made by a single thread shortly after each other
+     *
+     * @param firstPath     Path looked up first in the run
+     * @param lastLookupMs  Time of the last lookup in the run in milliseconds
+     */
+    private record Run(String firstPath, long lastLookupMs) { }
+}
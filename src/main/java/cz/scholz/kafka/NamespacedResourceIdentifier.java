@@ -5,36 +5,28 @@
 package cz.scholz.kafka;
 
 import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
-import org.apache.kafka.common.config.ConfigException;
 
 /**
- * Used to represent a namespaced Kubernetes resource by its group, version, kind, namespace, and name
+ * Used to represent a namespaced Kubernetes resource by its group, version, kind, namespace, and name. It can also
+ * represent all resources from the namespace selected by a label selector
+ * ({@code <group>/<version>/<kind>/<namespace>?<labelSelector>}).
  */
-record NamespacedResourceIdentifier(String group, String version, String kind, String namespace, String name) {
-    public static NamespacedResourceIdentifier fromPath(String path)   {
-        if (!path.matches("([A-Za-z0-9.-]+/)?([A-Za-z0-9.-]+/)([A-Za-z0-9.-]+/)([A-Za-z0-9.-]+/)[A-Za-z0-9.-]+")) {
-            throw new ConfigException("Invalid path " + path + ". It has to be in format <group>/<version>/<kind>/<namespace>/<name> (or <group>/<version>/<kind>/<namespace>/<name> for core package APIs).");
-        }
+record NamespacedResourceIdentifier(String group, String version, String kind, String namespace, String name, String labelSelector) implements ResourceIdentifier {
+    private static final ResourcePathParser<NamespacedResourceIdentifier> PARSER = new ResourcePathParser<>(5,
+            "<group>/<version>/<kind>/<namespace>/<name> (or <group>/<version>/<kind>/<namespace>/<name> for core package APIs)",
+            segments -> new NamespacedResourceIdentifier(segments[0], segments[1], segments[2], segments[3], segments[4], segments[5]),
+            1_000);
 
-        String[] pathSegments = path.split("/");
+    NamespacedResourceIdentifier(String group, String version, String kind, String namespace, String name) {
+        this(group, version, kind, namespace, name, null);
+    }
 
-        if (pathSegments.length == 4)   {
-            return new NamespacedResourceIdentifier(null, pathSegments[0], pathSegments[1], pathSegments[2], pathSegments[3]);
-        } else if (pathSegments.length == 5)    {
-            return new NamespacedResourceIdentifier(pathSegments[0], pathSegments[1], pathSegments[2], pathSegments[3], pathSegments[4]);
-        } else  {
-            // Should never happen really => the regex should capture all invalid
-            // But it handles the missing return error
-            throw new ConfigException("Invalid path " + path + ". It has to be in format <group>/<version>/<kind>/<namespace>/<name> (or <group>/<version>/<kind>/<namespace>/<name> for core package APIs).");
-        }
+    public static NamespacedResourceIdentifier fromPath(String path)   {
+        return PARSER.parse(path);
     }
 
+    @Override
     public ResourceDefinitionContext resourceDefinitionContext()    {
-        return new ResourceDefinitionContext.Builder()
-                .withGroup(group())
-                .withVersion(version())
-                .withKind(kind())
-                .withNamespaced(true)
-                .build();
+        return ResourcePathParser.definitionContext(group(), version(), kind(), true);
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.Time;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of failed lookups. It is used to answer the repeated lookups of missing resources or invalid paths without
+ * retrieving the resources again. The entries expire after the configured TTL and the least recently used entries are
+ * evicted when the cache is full.
+ *
+ * @param <K>   Type of the key used for the failed lookups
+ */
+class NegativeCache<K> {
+    private final long ttlMs;
+    private final Time time;
+    private final Map<K, FailedLookup> entries;
+
+    /**
+     * Creates the negative cache
+     *
+     * @param ttlMs         Time to live of the failed lookups in milliseconds. 0 disables the cache.
+     * @param maxEntries    Maximal number of cached failed lookups
+     * @param time          Time used to expire the entries
+     */
+    NegativeCache(long ttlMs, int maxEntries, Time time) {
+        this.ttlMs = ttlMs;
+        this.time = time;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, FailedLookup> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the failure of a previous lookup
+     *
+     * @param key   Key of the lookup
+     *
+     * @return  The exception thrown by the previous lookup or null if there is no cached failure
+     */
+    synchronized ConfigException get(K key)  {
+        FailedLookup entry = entries.get(key);
+
+        if (entry == null)  {
+            return null;
+        } else if (entry.expiresAt() <= time.milliseconds()) {
+            entries.remove(key);
+            return null;
+        } else {
+            return entry.exception();
+        }
+    }
+
+    /**
+     * Adds the failed lookup to the cache
+     *
+     * @param key       Key of the lookup
+     * @param exception Exception thrown by the lookup
+     */
+    synchronized void put(K key, ConfigException exception)    {
+        if (ttlMs > 0)  {
+            entries.put(key, new FailedLookup(exception, time.milliseconds() + ttlMs));
+        }
+    }
+
+    /**
+     * Removes the failed lookup from the cache
+     *
+     * @param key   Key of the lookup
+     */
+    synchronized void invalidate(K key)    {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all failed lookups from the cache
+     */
+    synchronized void clear()   {
+        entries.clear();
+    }
+
+    /**
+     * @return  Number of failed lookups in the cache
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Failed lookup together with its expiration time
+     *
+     * @param exception Exception thrown by the lookup
+     * @param expiresAt Time when the entry expires in milliseconds
+     */
+    private record FailedLookup(ConfigException exception, long expiresAt) { }
+}
@@ -5,36 +5,33 @@
 package cz.scholz.kafka;
 
 import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
-import org.apache.kafka.common.config.ConfigException;
 
 /**
- * Used to represent a non-namespaced Kubernetes resource by its group, version, kind, and name
+ * Used to represent a non-namespaced Kubernetes resource by its group, version, kind, and name. It can also represent
+ * all resources selected by a label selector ({@code <group>/<version>/<kind>?<labelSelector>}).
  */
-record NonNamespacedResourceIdentifier(String group, String version, String kind, String name) {
-    public static NonNamespacedResourceIdentifier fromPath(String path)   {
-        if (!path.matches("([A-Za-z0-9.-]+/)?([A-Za-z0-9.-]+/)([A-Za-z0-9.-]+/)[A-Za-z0-9.-]+")) {
-            throw new ConfigException("Invalid path " + path + ". It has to be in format <group>/<version>/<kind>/<name> (or <group>/<version>/<kind>/<name> for core package APIs).");
-        }
+record NonNamespacedResourceIdentifier(String group, String version, String kind, String name, String labelSelector) implements ResourceIdentifier {
+    private static final ResourcePathParser<NonNamespacedResourceIdentifier> PARSER = new ResourcePathParser<>(4,
+            "<group>/<version>/<kind>/<name> (or <group>/<version>/<kind>/<name> for core package APIs)",
+            segments -> new NonNamespacedResourceIdentifier(segments[0], segments[1], segments[2], segments[3], segments[4]),
+            1_000);
+
+    NonNamespacedResourceIdentifier(String group, String version, String kind, String name) {
+        this(group, version, kind, name, null);
+    }
 
-        String[] pathSegments = path.split("/");
+    public static NonNamespacedResourceIdentifier fromPath(String path)   {
+        return PARSER.parse(path);
+    }
 
-        if (pathSegments.length == 3)   {
-            return new NonNamespacedResourceIdentifier(null, pathSegments[0], pathSegments[1], pathSegments[2]);
-        } else if (pathSegments.length == 4)    {
-            return new NonNamespacedResourceIdentifier(pathSegments[0], pathSegments[1], pathSegments[2], pathSegments[3]);
-        } else  {
-            // Should never happen really => the regex should capture all invalid
-            // But it handles the missing return error
-            throw new ConfigException("Invalid path " + path + ". It has to be in format <group>/<version>/<kind>/<name> (or <group>/<version>/<kind>/<name> for core package APIs).");
-        }
+    @Override
+    public String namespace() {
+        // Cluster scoped resources have no namespace
+        return null;
     }
 
+    @Override
     public ResourceDefinitionContext resourceDefinitionContext()    {
-        return new ResourceDefinitionContext.Builder()
-                .withGroup(group())
-                .withVersion(version())
-                .withKind(kind())
-                .withNamespaced(false)
-                .build();
+        return ResourcePathParser.definitionContext(group(), version(), kind(), false);
     }
 }
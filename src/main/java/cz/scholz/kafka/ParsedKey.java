@@ -0,0 +1,80 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Map;
+
+/**
+ * JSON Path key parsed into all forms used to evaluate it. The definite path and the indexed filter are parsed right
+ * away. The JSON Path is compiled only when the key cannot be evaluated without it.
+ */
+final class ParsedKey {
+    private final String key;
+    private final DefinitePath definitePath;
+    private final IndexedFilter indexedFilter;
+    private volatile JsonPath jsonPath;
+
+    private ParsedKey(String key, DefinitePath definitePath, IndexedFilter indexedFilter) {
+        this.key = key;
+        this.definitePath = definitePath;
+        this.indexedFilter = indexedFilter;
+    }
+
+    /**
+     * Parses the key
+     *
+     * @param key   JSON Path key
+     *
+     * @return  Parsed key
+     */
+    static ParsedKey parse(String key)  {
+        DefinitePath definitePath = DefinitePath.parse(key);
+        return new ParsedKey(key, definitePath, definitePath == null ? IndexedFilter.parse(key) : null);
+    }
+
+    /**
+     * Evaluates the key by walking the tree
+     *
+     * @param tree  Tree of the resource
+     *
+     * @return  The value at the end of the path or DefinitePath.UNRESOLVED when the key has to be evaluated in another
+     *          way
+     */
+    Object evaluateDirectly(Map<String, Object> tree)   {
+        return definitePath != null ? definitePath.evaluate(tree) : DefinitePath.UNRESOLVED;
+    }
+
+    /**
+     * Evaluates the key using the index of the document
+     *
+     * @param document  Resource document
+     *
+     * @return  The first value matched by the key, null when the key does not match any value or
+     *          IndexedFilter.NOT_INDEXED when the key has to be evaluated with JSON Path
+     */
+    Object evaluateIndexed(ResourceDocument document)   {
+        return indexedFilter != null ? indexedFilter.evaluate(document) : IndexedFilter.NOT_INDEXED;
+    }
+
+    /**
+     * Returns the compiled JSON Path. It is compiled on the first call. When the key is not a valid JSON Path, the
+     * compilation fails on every call.
+     *
+     * @return  Compiled JSON Path
+     */
+    JsonPath jsonPath() {
+        JsonPath compiled = jsonPath;
+
+        if (compiled == null)   {
+            // Compiled without a lock => in the worst case, the same key is compiled twice
+            compiled = JsonPath.compile(key);
+            jsonPath = compiled;
+        }
+
+        return compiled;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded and thread-safe cache of the parsed keys. A single entry holds all parsed forms of the key (the definite
+ * path, the indexed filter and the compiled JSON Path), so every key is looked up only once per evaluation. The lookups
+ * of the cached keys do not take any lock. When the cache is full, some of the cached keys are evicted to make space
+ * for the new ones.
+ */
+class ParsedKeyCache {
+    private final ConcurrentHashMap<String, ParsedKey> cache = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    /**
+     * Creates the parsed key cache
+     *
+     * @param maxSize   Maximal number of parsed keys kept in the cache
+     */
+    ParsedKeyCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the parsed key. The key is parsed only when it is not in the cache already.
+     *
+     * @param key   JSON Path key
+     *
+     * @return  Parsed key
+     */
+    ParsedKey get(String key) {
+        ParsedKey parsed = cache.get(key);
+
+        if (parsed != null) {
+            return parsed;
+        }
+
+        // Parsed outside of the map => in the worst case, the same key is parsed twice
+        parsed = ParsedKey.parse(key);
+        ParsedKey existing = cache.putIfAbsent(key, parsed);
+
+        if (existing != null)   {
+            return existing;
+        }
+
+        evict();
+        return parsed;
+    }
+
+    /**
+     * @return  Number of parsed keys in the cache
+     */
+    int size() {
+        return cache.size();
+    }
+
+    private void evict()   {
+        Iterator<String> keys = cache.keySet().iterator();
+
+        while (cache.size() > maxSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
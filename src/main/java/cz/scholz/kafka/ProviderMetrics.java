@@ -0,0 +1,329 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.JmxReporter;
+import org.apache.kafka.common.metrics.KafkaMetricsContext;
+import org.apache.kafka.common.metrics.Measurable;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Meter;
+import org.apache.kafka.common.metrics.stats.Percentile;
+import org.apache.kafka.common.metrics.stats.Percentiles;
+import org.apache.kafka.common.utils.Time;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metrics of a single config provider instance. The metrics are registered in the Kafka metrics registry and exposed
+ * through JMX.
+ */
+class ProviderMetrics {
+    /**
+     * JMX domain of the metrics
+     */
+    static final String JMX_PREFIX = "kafka.config.provider.kubernetes";
+
+    /**
+     * Group of the metrics
+     */
+    static final String METRICS_GROUP = "kubernetes-raw-resource-config-provider-metrics";
+
+    private static final AtomicInteger PROVIDER_IDS = new AtomicInteger(0);
+
+    // Ranges of the latency percentiles. The buckets get wider towards the end of the range => the range is sized to
+    // the expected latencies to keep the short latencies (such as the lookups served from the cache or the JSON Path
+    // evaluations) out of a single bucket.
+    private static final double API_LATENCY_MAX_MS = 10_000.0;
+    private static final double EVALUATION_LATENCY_MAX_MS = 100.0;
+
+    private final Metrics metrics;
+    private final Time time;
+    private final Map<String, String> tags;
+    private final Map<String, ApiSensors> apiSensors = new ConcurrentHashMap<>();
+
+    private final Sensor lookupTime;
+    private final Sensor fetchTime;
+    private final Sensor apiQueueTime;
+    private final Sensor evaluationTime;
+    private final Sensor keysPerLookup;
+    private final Sensor resourceBytes;
+    private final Sensor cacheHits;
+    private final Sensor cacheMisses;
+    private final Sensor staleServed;
+    private final Sensor negativeCacheHits;
+    private final Sensor snapshotHits;
+    private final Sensor revalidations;
+
+    /**
+     * Creates the metrics and registers them in JMX
+     *
+     * @param providerType  Type of the config provider used to identify the provider instance
+     * @param time          Time used to measure the latencies
+     */
+    ProviderMetrics(String providerType, Time time) {
+        this(new Metrics(new MetricConfig(), List.of(new JmxReporter()), time, new KafkaMetricsContext(JMX_PREFIX)),
+                providerType + "-" + PROVIDER_IDS.incrementAndGet(),
+                time);
+    }
+
+    /**
+     * Creates the metrics
+     *
+     * @param metrics       Metrics registry
+     * @param providerId    Identifier of the config provider instance
+     * @param time          Time used to measure the latencies
+     */
+    ProviderMetrics(Metrics metrics, String providerId, Time time) {
+        this.metrics = metrics;
+        this.time = time;
+        this.tags = Map.of("provider-id", providerId);
+
+        this.lookupTime = Stats.latency(metrics, tags, "lookup-time", "lookups of the configuration values", API_LATENCY_MAX_MS);
+        this.fetchTime = Stats.latency(metrics, tags, "fetch-time", "requests to the Kubernetes API", API_LATENCY_MAX_MS);
+        this.apiQueueTime = Stats.latency(metrics, tags, "api-queue-time", "waits for the rate limit and the limit of the requests in flight", API_LATENCY_MAX_MS);
+        this.evaluationTime = Stats.latency(metrics, tags, "evaluation-time", "evaluations of the JSON Path keys", EVALUATION_LATENCY_MAX_MS);
+        this.keysPerLookup = Stats.distribution(metrics, tags, "keys-per-lookup", "number of keys resolved per lookup");
+        this.resourceBytes = Stats.distribution(metrics, tags, "resource-bytes", "estimated size of the retrieved resources in bytes");
+        this.cacheHits = Stats.meter(metrics, tags, "cache-hit", "lookups served from the cache");
+        this.cacheMisses = Stats.meter(metrics, tags, "cache-miss", "lookups which were not served from the cache");
+        this.negativeCacheHits = Stats.meter(metrics, tags, "negative-cache-hit", "failed lookups answered from the negative cache");
+        this.snapshotHits = Stats.meter(metrics, tags, "snapshot-hit", "lookups served from the snapshot file");
+        this.revalidations = Stats.meter(metrics, tags, "revalidated", "expired cached resources revalidated without retrieving them again");
+        this.staleServed = Stats.meter(metrics, tags, "stale-served", "lookups served from a stale resource because the Kubernetes API was unavailable");
+    }
+
+    /**
+     * @return  The current time in nanoseconds used as a start of a measured operation
+     */
+    long startTimer()   {
+        return time.nanoseconds();
+    }
+
+    /**
+     * Records a completed lookup of the configuration values
+     *
+     * @param startNs   Start of the lookup in nanoseconds
+     */
+    void recordLookup(long startNs)   {
+        lookupTime.record(elapsedMs(startNs));
+    }
+
+    /**
+     * Records the evaluation of the JSON Path keys
+     *
+     * @param startNs   Start of the evaluation in nanoseconds
+     * @param keys      Number of the evaluated keys
+     */
+    void recordEvaluation(long startNs, int keys)   {
+        evaluationTime.record(elapsedMs(startNs));
+        keysPerLookup.record(keys);
+    }
+
+    /**
+     * Records a request to the Kubernetes API
+     *
+     * @param ri        Identifier of the requested resource
+     * @param startNs   Start of the request in nanoseconds
+     * @param failed    True if the request failed
+     */
+    void recordApiRequest(ResourceIdentifier ri, long startNs, boolean failed)   {
+        fetchTime.record(elapsedMs(startNs));
+
+        ApiSensors sensors = apiSensors.computeIfAbsent(ri.group() + "/" + ri.version() + "/" + ri.kind(), gvk -> new ApiSensors(ri));
+        sensors.requests.record();
+
+        if (failed) {
+            sensors.errors.record();
+        }
+    }
+
+    /**
+     * Records the time a request waited for the rate limit and the limit of the requests in flight
+     *
+     * @param startNs   Start of the wait in nanoseconds
+     */
+    void recordApiQueueTime(long startNs)   {
+        apiQueueTime.record(elapsedMs(startNs));
+    }
+
+    /**
+     * Records the size of a retrieved resource
+     *
+     * @param document  The retrieved resource
+     */
+    void recordResource(ResourceDocument document)  {
+        resourceBytes.record(document.weight());
+    }
+
+    /**
+     * Records a cache hit
+     */
+    void recordCacheHit()   {
+        cacheHits.record();
+    }
+
+    /**
+     * Records a cache miss
+     */
+    void recordCacheMiss()   {
+        cacheMisses.record();
+    }
+
+    /**
+     * Records a failed lookup answered from the negative cache
+     */
+    void recordNegativeCacheHit()   {
+        negativeCacheHits.record();
+    }
+
+    /**
+     * Records a lookup served from the snapshot file
+     */
+    void recordSnapshotHit()   {
+        snapshotHits.record();
+    }
+
+    /**
+     * Records an expired cached resource which was revalidated without retrieving it again
+     */
+    void recordRevalidated()   {
+        revalidations.record();
+    }
+
+    /**
+     * Records a lookup served from a stale resource
+     */
+    void recordStaleServed()   {
+        staleServed.record();
+    }
+
+    /**
+     * Registers the metrics describing the state of the cache
+     *
+     * @param cache     The resource cache
+     */
+    void registerCache(ResourceCache<?> cache)  {
+        addGauge("cache-size", "Number of resources in the cache", (config, now) -> cache.size());
+        addGauge("cache-bytes", "Estimated size of the resources in the cache in bytes", (config, now) -> cache.bytes());
+        addGauge("cache-eviction-total", "Total number of resources evicted from the cache because it was full", (config, now) -> cache.evictions());
+    }
+
+    /**
+     * Registers the metrics describing the state of the value cache
+     *
+     * @param cache     The value cache
+     */
+    void registerValueCache(ValueCache cache)  {
+        addGauge("value-cache-size", "Number of values in the value cache", (config, now) -> cache.size());
+        addGauge("value-cache-bytes", "Estimated size of the values in the value cache in bytes", (config, now) -> cache.bytes());
+        addGauge("value-cache-eviction-total", "Total number of values evicted from the value cache because it was full", (config, now) -> cache.evictions());
+    }
+
+    /**
+     * Removes the metrics from the registry and from JMX
+     */
+    void close()    {
+        metrics.close();
+    }
+
+    /**
+     * @return  The metrics registry
+     */
+    /* test */ Metrics metrics()    {
+        return metrics;
+    }
+
+    /**
+     * @return  Tags identifying the metrics of this config provider instance
+     */
+    /* test */ Map<String, String> tags()    {
+        return tags;
+    }
+
+    private void addGauge(String name, String description, Measurable measurable)  {
+        metrics.addMetric(metrics.metricName(name, METRICS_GROUP, description, tags), measurable);
+    }
+
+    private double elapsedMs(long startNs)  {
+        return (double) (time.nanoseconds() - startNs) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Sensors of the requests to the Kubernetes API for a single resource kind
+     */
+    private class ApiSensors {
+        private final Sensor requests;
+        private final Sensor errors;
+
+        ApiSensors(ResourceIdentifier ri) {
+            Map<String, String> gvkTags = new LinkedHashMap<>(tags);
+            gvkTags.put("group", ri.group() != null ? ri.group() : "core");
+            gvkTags.put("version", ri.version());
+            gvkTags.put("kind", ri.kind());
+            String sensorSuffix = ":" + gvkTags.get("group") + "/" + ri.version() + "/" + ri.kind();
+
+            this.requests = Stats.meter(metrics, gvkTags, "api-request", "requests to the Kubernetes API", sensorSuffix);
+            this.errors = Stats.meter(metrics, gvkTags, "api-error", "failed requests to the Kubernetes API", sensorSuffix);
+        }
+    }
+
+    /**
+     * Creates the sensors with their statistics
+     */
+    private static final class Stats {
+        private static final int PERCENTILES_SIZE_IN_BYTES = 4 * 1_000;
+
+        private Stats() { }
+
+        /**
+         * Creates the sensor for the latency with the average, maximum and percentiles. The buckets of the percentiles
+         * cover the range from 0 to maxMs, so the range should be sized to the expected latencies of the metric.
+         * Latencies above the range are counted in the last bucket.
+         */
+        static Sensor latency(Metrics metrics, Map<String, String> tags, String name, String description, double maxMs)   {
+            String latencyDescription = "latency in milliseconds of the " + description;
+            Sensor sensor = distribution(metrics, tags, name, latencyDescription);
+            sensor.add(new Percentiles(PERCENTILES_SIZE_IN_BYTES, 0.0, maxMs, Percentiles.BucketSizing.LINEAR,
+                    percentile(metrics, tags, name, latencyDescription, 50),
+                    percentile(metrics, tags, name, latencyDescription, 95),
+                    percentile(metrics, tags, name, latencyDescription, 99)));
+            return sensor;
+        }
+
+        static Sensor distribution(Metrics metrics, Map<String, String> tags, String name, String description)   {
+            Sensor sensor = metrics.sensor(name + ":" + tags.get("provider-id"));
+            sensor.add(metrics.metricName(name + "-avg", METRICS_GROUP, "Average " + description, tags), new Avg());
+            sensor.add(metrics.metricName(name + "-max", METRICS_GROUP, "Maximal " + description, tags), new Max());
+            return sensor;
+        }
+
+        static Sensor meter(Metrics metrics, Map<String, String> tags, String name, String description)   {
+            return meter(metrics, tags, name, description, "");
+        }
+
+        static Sensor meter(Metrics metrics, Map<String, String> tags, String name, String description, String sensorSuffix)   {
+            Sensor sensor = metrics.sensor(name + ":" + tags.get("provider-id") + sensorSuffix);
+            sensor.add(new Meter(
+                    metrics.metricName(name + "-rate", METRICS_GROUP, "Number of " + description + " per second", tags),
+                    metrics.metricName(name + "-total", METRICS_GROUP, "Total number of " + description, tags)));
+            return sensor;
+        }
+
+        private static Percentile percentile(Metrics metrics, Map<String, String> tags, String name, String description, int percentile)   {
+            MetricName metricName = metrics.metricName(name + "-p" + percentile, METRICS_GROUP, percentile + "th percentile of the " + description, tags);
+            return new Percentile(metricName, percentile);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.ThreadUtils;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Refreshes the cached resources in the background shortly before they expire, so that the lookups of the resources
+ * which are used regularly are always served from the cache. The refreshes are randomly spread, so that the resources
+ * cached at the same time are not refreshed at the same time. The resources which were not looked up for longer than
+ * the idle timeout are not refreshed anymore and expire from the cache.
+ *
+ * @param <T>   Type of the identifier of the Kubernetes resources
+ */
+class RefreshAhead<T extends ResourceIdentifier> {
+    private static final Logger LOG = LoggerFactory.getLogger(RefreshAhead.class);
+    // The resources are refreshed after 70 to 80 percent of their time to live
+    private static final double REFRESH_AT = 0.8;
+    private static final double REFRESH_JITTER = 0.1;
+
+    private final long ttlMs;
+    private final long idleTimeoutMs;
+    private final Time time;
+    private final Consumer<T> refresher;
+    private final ScheduledExecutorService scheduler;
+    private final Map<T, Long> lastLookups = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the refresh-ahead scheduler
+     *
+     * @param ttlMs         Time to live of the cached resources in milliseconds
+     * @param idleTimeoutMs Time in milliseconds after which the resources which were not looked up are not refreshed
+     * @param threads       Number of the threads used to refresh the resources
+     * @param time          Time used to track the lookups
+     * @param refresher     Consumer which retrieves the resource again and stores it in the cache
+     */
+    RefreshAhead(long ttlMs, long idleTimeoutMs, int threads, Time time, Consumer<T> refresher) {
+        this.ttlMs = ttlMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.time = time;
+        this.refresher = refresher;
+        this.scheduler = Executors.newScheduledThreadPool(threads, ThreadUtils.createThreadFactory("kubernetes-raw-resource-config-provider-refresh-%d", true));
+    }
+
+    /**
+     * Records a lookup of the resource. It keeps the refreshed resources from being dropped as idle.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     */
+    void recordLookup(T ri)    {
+        lastLookups.computeIfPresent(ri, (key, lastLookupMs) -> time.milliseconds());
+    }
+
+    /**
+     * Schedules the refresh of a resource which was stored in the cache. Resources which are already refreshed in
+     * the background are not scheduled again.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     */
+    void cached(T ri)   {
+        if (lastLookups.putIfAbsent(ri, time.milliseconds()) == null)   {
+            schedule(ri);
+        }
+    }
+
+    /**
+     * @return  Number of the resources refreshed in the background
+     */
+    int size()  {
+        return lastLookups.size();
+    }
+
+    /**
+     * Stops the scheduled refreshes
+     */
+    void close()    {
+        scheduler.shutdownNow();
+        lastLookups.clear();
+    }
+
+    private void schedule(T ri) {
+        long delayMs = (long) (ttlMs * (REFRESH_AT - ThreadLocalRandom.current().nextDouble(REFRESH_JITTER)));
+
+        try {
+            scheduler.schedule(() -> refresh(ri), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The scheduler was already closed
+            lastLookups.remove(ri);
+        }
+    }
+
+    private void refresh(T ri)  {
+        Long lastLookupMs = lastLookups.get(ri);
+
+        if (lastLookupMs == null) {
+            return;
+        } else if (time.milliseconds() - lastLookupMs > idleTimeoutMs) {
+            LOG.debug("Resource {} was not looked up for {} ms and will not be refreshed anymore", ri, idleTimeoutMs);
+            lastLookups.remove(ri);
+            return;
+        }
+
+        try {
+            refresher.accept(ri);
+            schedule(ri);
+        } catch (RuntimeException e) {
+            // The resource is retrieved again by the next lookup after it expires
+            LOG.warn("Failed to refresh resource {}", ri, e);
+            lastLookups.remove(ri);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.ThreadUtils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the requests to the Kubernetes API which have to complete before a deadline. The requests are not queued. The
+ * number of threads is bounded, so that the requests which do not react to the cancellation do not pile up the
+ * threads when the API server stalls. The threads are daemons to not block the JVM shutdown.
+ */
+final class RequestExecutor {
+    private static final int MAX_THREADS = 64;
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(0, MAX_THREADS, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), ThreadUtils.createThreadFactory("kubernetes-raw-resource-config-provider-fetcher-%d", true));
+
+    private RequestExecutor() { }
+
+    /**
+     * Starts the request in one of the threads
+     *
+     * @param request   The request
+     *
+     * @return  Future which completes with the result of the request. Cancelling it interrupts the request.
+     *
+     * @param <R>   Type of the result
+     *
+     * @throws RejectedExecutionException   Thrown when all threads are busy and the request did not start
+     */
+    static <R> Future<R> submit(Callable<R> request) throws RejectedExecutionException {
+        return EXECUTOR.submit(request);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.Time;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache for the Kubernetes resources retrieved from the Kubernetes API. The entries expire after the configured TTL.
+ * The size of the cache is bounded by the number of entries and by the estimated size of the cached resources. When
+ * the cache is full, the least recently used resources are evicted.
+ *
+ * @param <K>   Type of the key used for the cached resources
+ */
+class ResourceCache<K> {
+    private final long ttlMs;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Time time;
+    private final boolean retainExpired;
+    private final LinkedHashMap<K, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes = 0L;
+    private long evictions = 0L;
+
+    /**
+     * Creates the resource cache
+     *
+     * @param ttlMs         Time to live of the cached resources in milliseconds. 0 disables the cache.
+     * @param maxEntries    Maximal number of cached resources
+     * @param maxBytes      Maximal estimated size of the cached resources in bytes
+     * @param time          Time used to expire the entries
+     */
+    ResourceCache(long ttlMs, int maxEntries, long maxBytes, Time time) {
+        this(ttlMs, maxEntries, maxBytes, time, false);
+    }
+
+    /**
+     * Creates the resource cache
+     *
+     * @param ttlMs         Time to live of the cached resources in milliseconds. 0 disables the cache.
+     * @param maxEntries    Maximal number of cached resources
+     * @param maxBytes      Maximal estimated size of the cached resources in bytes
+     * @param time          Time used to expire the entries
+     * @param retainExpired Keeps the expired resources in the cache so that they can be used when the Kubernetes API
+     *                      is not available. The expired resources are removed only when the cache is full.
+     */
+    ResourceCache(long ttlMs, int maxEntries, long maxBytes, Time time, boolean retainExpired) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.time = time;
+        this.retainExpired = retainExpired;
+    }
+
+    /**
+     * @return  True if the cache is enabled. False otherwise.
+     */
+    boolean enabled()   {
+        return ttlMs > 0;
+    }
+
+    /**
+     * Gets the resource from the cache.
+     *
+     * @param key   Key of the resource
+     *
+     * @return  The cached resource or null if it is not cached or if it already expired
+     */
+    synchronized ResourceDocument get(K key)  {
+        CacheEntry entry = entries.get(key);
+
+        if (entry == null)  {
+            return null;
+        } else if (entry.expiresAt() <= time.milliseconds()) {
+            if (!retainExpired) {
+                remove(key);
+            }
+
+            return null;
+        } else {
+            return entry.document();
+        }
+    }
+
+    /**
+     * Gets the resource from the cache even when it already expired. Expired resources are available only when the
+     * cache retains them.
+     *
+     * @param key   Key of the resource
+     *
+     * @return  The cached resource or null if it is not cached
+     */
+    synchronized ResourceDocument getStale(K key)  {
+        CacheEntry entry = entries.get(key);
+        return entry != null ? entry.document() : null;
+    }
+
+    /**
+     * Adds the resource to the cache. Resources which are bigger than the maximal size of the cache are not cached.
+     *
+     * @param key       Key of the resource
+     * @param document  The resource
+     */
+    synchronized void put(K key, ResourceDocument document)    {
+        if (!enabled() && !retainExpired) {
+            return;
+        }
+
+        put(key, document, ttlMs);
+    }
+
+    /**
+     * Adds the resource to the cache with a custom time to live. It is used also when the cache is disabled. Resources
+     * which are bigger than the maximal size of the cache are not cached. A newer version of the resource which is
+     * already cached (for example from a watch event) is not replaced with an older one.
+     *
+     * @param key           Key of the resource
+     * @param document      The resource
+     * @param entryTtlMs    Time to live of the resource in milliseconds
+     */
+    synchronized void put(K key, ResourceDocument document, long entryTtlMs)    {
+        CacheEntry existing = entries.get(key);
+
+        if (existing != null && document.olderThan(existing.document()))   {
+            return;
+        }
+
+        remove(key);
+
+        if (document.weight() > maxBytes)   {
+            return;
+        }
+
+        entries.put(key, new CacheEntry(document, time.milliseconds() + entryTtlMs));
+        bytes += document.weight();
+
+        Iterator<Map.Entry<K, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            CacheEntry eldest = iterator.next().getValue();
+            iterator.remove();
+            bytes -= eldest.document().weight();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes the resource from the cache
+     *
+     * @param key   Key of the resource
+     */
+    synchronized void invalidate(K key)    {
+        remove(key);
+    }
+
+    /**
+     * Removes all resources from the cache
+     */
+    synchronized void clear()   {
+        entries.clear();
+        bytes = 0L;
+    }
+
+    /**
+     * @return  Number of resources in the cache
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return  Estimated size of the cached resources in bytes
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return  Total number of resources evicted from the cache because it was full
+     */
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    private void remove(K key)  {
+        CacheEntry removed = entries.remove(key);
+
+        if (removed != null)    {
+            bytes -= removed.document().weight();
+        }
+    }
+
+    /**
+     * Cached resource together with its expiration time
+     *
+     * @param document  The cached resource
+     * @param expiresAt Time when the entry expires in milliseconds
+     */
+    private record CacheEntry(ResourceDocument document, long expiresAt) { }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.utils.KubernetesSerialization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Kubernetes resource converted into a Map based tree which can be queried using JSON Path. The document is immutable
+ * and can be shared between threads. A document can also hold multiple resources selected by a label selector. Their
+ * trees are under the {@code items} field and each of them is also available as a separate document.
+ */
+final class ResourceDocument {
+    private static final KubernetesSerialization SERIALIZATION = new KubernetesSerialization();
+    private static final Configuration JSON_PATH_CONFIGURATION = Configuration.defaultConfiguration();
+
+    // Rough estimates of the heap used by the different parts of the tree
+    private static final long OBJECT_OVERHEAD = 16L;
+    private static final long MAP_ENTRY_OVERHEAD = 40L;
+    private static final long LIST_ITEM_OVERHEAD = 8L;
+    private static final long STRING_OVERHEAD = 40L;
+
+    private final Map<String, Object> tree;
+    private final String resourceVersion;
+    private final ResourceProjection projection;
+    private final List<ResourceDocument> items;
+    private final long weight;
+    private final Map<Object, Object> derived = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the resource document
+     *
+     * @param tree              Resource as a Map based tree
+     * @param resourceVersion   Resource version of the resource
+     */
+    ResourceDocument(Map<String, Object> tree, String resourceVersion) {
+        this(tree, resourceVersion, ResourceProjection.ALL);
+    }
+
+    /**
+     * Creates the resource document containing only some parts of the resource
+     *
+     * @param tree              Materialized parts of the resource as a Map based tree
+     * @param resourceVersion   Resource version of the resource
+     * @param projection        Parts of the resource contained in the tree
+     */
+    ResourceDocument(Map<String, Object> tree, String resourceVersion, ResourceProjection projection) {
+        this(tree, resourceVersion, projection, null);
+    }
+
+    private ResourceDocument(Map<String, Object> tree, String resourceVersion, ResourceProjection projection, List<ResourceDocument> items) {
+        this.tree = tree;
+        this.resourceVersion = resourceVersion;
+        this.projection = projection;
+        this.items = items;
+        this.weight = estimateWeight(tree);
+    }
+
+    /**
+     * Creates the document from the Kubernetes resource. The resource is converted directly into the tree without
+     * serializing it into JSON.
+     *
+     * @param resource  Kubernetes resource
+     *
+     * @return  Resource document
+     */
+    @SuppressWarnings("unchecked")
+    static ResourceDocument fromResource(GenericKubernetesResource resource)   {
+        String resourceVersion = resource.getMetadata() != null ? resource.getMetadata().getResourceVersion() : null;
+        return new ResourceDocument(SERIALIZATION.convertValue(resource, Map.class), resourceVersion);
+    }
+
+    /**
+     * Creates the document from multiple Kubernetes resources. The resource version of the document combines the
+     * resource versions of the resources, so it changes whenever any of the resources changes or when the set of the
+     * resources changes.
+     *
+     * @param resources     Kubernetes resources
+     *
+     * @return  Resource document
+     */
+    static ResourceDocument fromResources(List<GenericKubernetesResource> resources)   {
+        List<ResourceDocument> items = new ArrayList<>(resources.size());
+        List<Object> trees = new ArrayList<>(resources.size());
+        StringJoiner resourceVersions = new StringJoiner(",");
+
+        for (GenericKubernetesResource resource : resources)    {
+            ResourceDocument item = fromResource(resource);
+            items.add(item);
+            trees.add(item.tree());
+            resourceVersions.add(String.valueOf(item.resourceVersion()));
+        }
+
+        return new ResourceDocument(Map.of("items", trees), resourceVersions.toString(), ResourceProjection.ALL, List.copyOf(items));
+    }
+
+    /**
+     * @return  JSON Path context for querying the document
+     */
+    DocumentContext context()   {
+        return JsonPath.using(JSON_PATH_CONFIGURATION).parse(tree);
+    }
+
+    /**
+     * @return  The resource as a Map based tree
+     */
+    Map<String, Object> tree() {
+        return tree;
+    }
+
+    /**
+     * Returns a value derived from the document (such as an index). The value is computed only once for every
+     * document and is reused by the following calls with the same key. The derived values are not included in the
+     * weight of the document.
+     *
+     * @param key       Key identifying the derived value
+     * @param builder   Function which computes the value from the tree of the document. It must not return null.
+     *
+     * @return  The derived value
+     *
+     * @param <V>   Type of the derived value
+     */
+    @SuppressWarnings("unchecked")
+    <V> V derived(Object key, Function<Map<String, Object>, V> builder)   {
+        return (V) derived.computeIfAbsent(key, k -> builder.apply(tree));
+    }
+
+    /**
+     * @return  Resource version of the resource or null if the resource has no resource version
+     */
+    String resourceVersion() {
+        return resourceVersion;
+    }
+
+    /**
+     * Checks whether this document is an older version of the same resource than the other document. The resource
+     * versions are compared as numbers, which is how the Kubernetes API server assigns them. When any of them is not
+     * a number (for example for the documents with multiple resources), the document is not considered older.
+     *
+     * @param other     Other version of the resource
+     *
+     * @return  True if this document has a lower resource version than the other document. False otherwise.
+     */
+    boolean olderThan(ResourceDocument other)   {
+        Long version = numericVersion(resourceVersion);
+        Long otherVersion = numericVersion(other.resourceVersion);
+
+        return version != null && otherVersion != null && version < otherVersion;
+    }
+
+    private static Long numericVersion(String resourceVersion)  {
+        try {
+            return resourceVersion != null ? Long.parseLong(resourceVersion) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return  Documents of the resources selected by a label selector or null when the document holds a single
+     *          resource
+     */
+    List<ResourceDocument> items() {
+        return items;
+    }
+
+    /**
+     * @return  Parts of the resource contained in the document
+     */
+    ResourceProjection projection() {
+        return projection;
+    }
+
+    /**
+     * Checks whether the document contains the parts of the resource needed for given projection
+     *
+     * @param needed    Needed parts of the resource
+     *
+     * @return  True if the document contains all needed parts. False otherwise.
+     */
+    boolean covers(ResourceProjection needed) {
+        return projection.covers(needed);
+    }
+
+    /**
+     * @return  Estimated heap size of the document in bytes
+     */
+    long weight() {
+        return weight;
+    }
+
+    /**
+     * Estimates the heap used by a part of the tree. This is only a rough estimate which is used to bound the size of
+     * the caches.
+     *
+     * @param node  Part of the tree
+     *
+     * @return  Estimated size in bytes
+     */
+    private static long estimateWeight(Object node) {
+        if (node instanceof Map<?, ?> map) {
+            long weight = OBJECT_OVERHEAD;
+
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                weight += MAP_ENTRY_OVERHEAD + estimateWeight(entry.getKey()) + estimateWeight(entry.getValue());
+            }
+
+            return weight;
+        } else if (node instanceof List<?> list) {
+            long weight = OBJECT_OVERHEAD;
+
+            for (Object item : list) {
+                weight += LIST_ITEM_OVERHEAD + estimateWeight(item);
+            }
+
+            return weight;
+        } else if (node instanceof String string) {
+            return STRING_OVERHEAD + string.length();
+        } else {
+            return OBJECT_OVERHEAD;
+        }
+    }
+}
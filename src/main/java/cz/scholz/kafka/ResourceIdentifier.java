@@ -0,0 +1,64 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
+
+/**
+ * Common interface for the identifiers of the namespaced and non-namespaced Kubernetes resources
+ */
+interface ResourceIdentifier {
+    /**
+     * @return  API group of the resource (null for the core API group)
+     */
+    String group();
+
+    /**
+     * @return  API version of the resource
+     */
+    String version();
+
+    /**
+     * @return  Kind of the resource
+     */
+    String kind();
+
+    /**
+     * @return  Namespace of the resource (null for cluster scoped resources)
+     */
+    String namespace();
+
+    /**
+     * @return  Name of the resource (null when the identifier selects the resources using a label selector)
+     */
+    String name();
+
+    /**
+     * @return  Label selector used to select the resources (null when the identifier refers to a single resource by
+     *          its name). An empty label selector selects all resources of given kind.
+     */
+    String labelSelector();
+
+    /**
+     * @return  Resource definition context used to query the resource with the generic Kubernetes client
+     */
+    ResourceDefinitionContext resourceDefinitionContext();
+
+    /**
+     * @return  Description of the resource (or of the resources selected by a label selector or by their kind) used in
+     *          the log and error messages
+     */
+    default String description()    {
+        String resource = group() + "/" + version() + "/" + kind();
+
+        if (name() != null) {
+            return resource + " with name " + name();
+        } else if (labelSelector() != null && !labelSelector().isEmpty())   {
+            resource = resource + " with label selector " + labelSelector();
+        }
+
+        return namespace() != null ? resource + " in namespace " + namespace() : resource;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.informers.cache.Cache;
+import org.apache.kafka.common.utils.ExponentialBackoff;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Manages the shared informers used to serve the resources from a local store instead of getting them from the
+ * Kubernetes API one by one. A single informer is used for each resource kind and namespace. It is started on the
+ * first lookup and runs until the informers are closed. When the informer fails to start, the resources of its kind and
+ * namespace are retrieved from the Kubernetes API one by one instead and the informer is started again after a backoff.
+ * When the access rights do not allow to list and watch the resources, the informer is not started again.
+ *
+ * @param <T>   Type of the identifier of the Kubernetes resources
+ */
+class ResourceInformers<T extends ResourceIdentifier> {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceInformers.class);
+    private static final int BACKOFF_MULTIPLIER = 2;
+    private static final double BACKOFF_JITTER = 0.2;
+    private static final int HTTP_FORBIDDEN = 403;
+
+    private final Function<T, SharedIndexInformer<GenericKubernetesResource>> informerFactory;
+    private final ConcurrentHashMap<InformerKey, CompletableFuture<SharedIndexInformer<GenericKubernetesResource>>> informers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<InformerKey, Failure> failures = new ConcurrentHashMap<>();
+    private final ExponentialBackoff backoff;
+    private final Time time;
+
+    /**
+     * Creates the informer manager
+     *
+     * @param informerFactory   Function which creates and starts the informer for the kind and namespace of the
+     *                          resource. It is expected to block until the informer is synced.
+     * @param backoffMs         Initial backoff before starting a failed informer again
+     * @param backoffMaxMs      Maximal backoff before starting a failed informer again
+     * @param time              Time used for the backoff
+     */
+    ResourceInformers(Function<T, SharedIndexInformer<GenericKubernetesResource>> informerFactory, long backoffMs, long backoffMaxMs, Time time) {
+        this.informerFactory = informerFactory;
+        this.backoff = new ExponentialBackoff(backoffMs, BACKOFF_MULTIPLIER, backoffMaxMs, BACKOFF_JITTER);
+        this.time = time;
+    }
+
+    /**
+     * Gets the resource from the informer store. The informer is started when it is not running yet.
+     *
+     * @param ri    Identifier of the resource
+     *
+     * @return  The resource or null if it does not exist in the informer store or if the informer for its kind and
+     *          namespace is not running
+     */
+    GenericKubernetesResource get(T ri) {
+        SharedIndexInformer<GenericKubernetesResource> informer = informer(ri);
+        return informer != null ? informer.getStore().getByKey(Cache.namespaceKeyFunc(ri.namespace(), ri.name())) : null;
+    }
+
+    /**
+     * Stops all informers
+     */
+    void close()    {
+        for (CompletableFuture<SharedIndexInformer<GenericKubernetesResource>> informer : informers.values()) {
+            informer.thenAccept(SharedIndexInformer::stop);
+        }
+
+        informers.clear();
+        failures.clear();
+    }
+
+    /**
+     * @return  Number of running informers
+     */
+    int size()  {
+        return informers.size();
+    }
+
+    private SharedIndexInformer<GenericKubernetesResource> informer(T ri)  {
+        InformerKey key = new InformerKey(ri.group(), ri.version(), ri.kind(), ri.namespace());
+
+        Failure failure = failures.get(key);
+
+        if (failure != null && time.milliseconds() < failure.retryAtMs()) {
+            return null;
+        }
+
+        CompletableFuture<SharedIndexInformer<GenericKubernetesResource>> future = new CompletableFuture<>();
+        CompletableFuture<SharedIndexInformer<GenericKubernetesResource>> existing = informers.putIfAbsent(key, future);
+
+        if (existing != null)   {
+            return existing.join();
+        }
+
+        try {
+            LOG.info("Starting informer for {}", key);
+            SharedIndexInformer<GenericKubernetesResource> informer = informerFactory.apply(ri);
+            failures.remove(key);
+            future.complete(informer);
+            return informer;
+        } catch (RuntimeException e) {
+            failures.put(key, failed(key, failure, e));
+            informers.remove(key, future);
+            // The lookups waiting for the informer retrieve the resources from the Kubernetes API as well
+            future.complete(null);
+            return null;
+        }
+    }
+
+    /**
+     * Records the failure to start the informer. When the access to the resources is forbidden, the informer is not
+     * started again. Otherwise, it is started again after the backoff.
+     *
+     * @param key           Kind and namespace of the informer
+     * @param previous      Previous failure of the informer or null if it did not fail before
+     * @param e             Error which caused the failure
+     *
+     * @return  The failure of the informer
+     */
+    private Failure failed(InformerKey key, Failure previous, RuntimeException e)   {
+        if (forbidden(e))   {
+            LOG.warn("Access to the resources {} is forbidden. The resources will be retrieved from the Kubernetes API without the informer.", key, e);
+            return new Failure(Long.MAX_VALUE, 0);
+        }
+
+        int attempts = previous != null ? previous.attempts() + 1 : 1;
+        long backoffMs = backoff.backoff(attempts - 1);
+        LOG.warn("Failed to start informer for {}. The resources will be retrieved from the Kubernetes API without the informer. It will be started again in {} ms.", key, backoffMs, e);
+
+        return new Failure(time.milliseconds() + backoffMs, attempts);
+    }
+
+    private static boolean forbidden(Throwable e)  {
+        for (Throwable cause = e; cause != null; cause = cause.getCause())  {
+            if (cause instanceof KubernetesClientException kce && kce.getCode() == HTTP_FORBIDDEN) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Failure to start the informer
+     *
+     * @param retryAtMs     Time when the informer can be started again
+     * @param attempts      Number of the failed attempts to start the informer
+     */
+    private record Failure(long retryAtMs, int attempts) { }
+
+    /**
+     * Identifies the informer by the resource kind and namespace
+     *
+     * @param group     API group
+     * @param version   API version
+     * @param kind      Resource kind
+     * @param namespace Namespace (or null for cluster scoped resources)
+     */
+    private record InformerKey(String group, String version, String kind, String namespace) { }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
+import org.apache.kafka.common.config.ConfigException;
+
+/**
+ * Used to represent a kind of the Kubernetes resources in a namespace (or in all namespaces). It is used to list
+ * multiple resources with a single request.
+ *
+ * @param group     API group of the resources (null for the core API group)
+ * @param version   API version of the resources
+ * @param kind      Kind of the resources
+ * @param namespace Namespace of the resources (null for all namespaces or for cluster scoped resources)
+ */
+record ResourceKind(String group, String version, String kind, String namespace) implements ResourceIdentifier {
+    /**
+     * Parses the resource kind in the format {@code <group>/<version>/<kind>} (or {@code <version>/<kind>} for core
+     * package APIs)
+     *
+     * @param kind          Resource kind
+     * @param namespace     Namespace of the resources or null
+     *
+     * @return  The resource kind
+     */
+    static ResourceKind fromString(String kind, String namespace)    {
+        String[] segments = ResourcePathParser.split(kind, 3);
+
+        if (segments == null)   {
+            throw new ConfigException("Invalid kind " + kind + ". It has to be in format <group>/<version>/<kind> (or <version>/<kind> for core package APIs).");
+        }
+
+        return new ResourceKind(segments[0], segments[1], segments[2], namespace);
+    }
+
+    /**
+     * Returns the kind and namespace of the resource
+     *
+     * @param ri    Identifier of the resource
+     *
+     * @return  The resource kind
+     */
+    static ResourceKind of(ResourceIdentifier ri)    {
+        return new ResourceKind(ri.group(), ri.version(), ri.kind(), ri.namespace());
+    }
+
+    /**
+     * Builds the path to a resource of this kind
+     *
+     * @param resourceNamespace Namespace of the resource (null for cluster scoped resources)
+     * @param name              Name of the resource
+     *
+     * @return  Path to the resource
+     */
+    String pathOf(String resourceNamespace, String name)  {
+        return (group != null ? group + "/" : "") + version + "/" + kind + "/" + (resourceNamespace != null ? resourceNamespace + "/" : "") + name;
+    }
+
+    /**
+     * @return  API version of the resources including the API group
+     */
+    String apiVersion() {
+        return group != null ? group + "/" + version : version;
+    }
+
+    @Override
+    public String name() {
+        // Represents all resources of given kind
+        return null;
+    }
+
+    @Override
+    public String labelSelector() {
+        return null;
+    }
+
+    /**
+     * Sets the API version and kind of a listed resource. The items of the list responses do not always contain them.
+     *
+     * @param resource  Listed resource
+     *
+     * @return  The listed resource
+     */
+    GenericKubernetesResource complete(GenericKubernetesResource resource)  {
+        if (resource.getApiVersion() == null)   {
+            resource.setApiVersion(apiVersion());
+        }
+
+        if (resource.getKind() == null)   {
+            resource.setKind(kind);
+        }
+
+        return resource;
+    }
+
+    @Override
+    public ResourceDefinitionContext resourceDefinitionContext()    {
+        // The providers use their own scope when listing the resources as the namespace is null also when listing
+        // namespaced resources from all namespaces
+        return ResourcePathParser.definitionContext(group, version, kind, namespace != null);
+    }
+}
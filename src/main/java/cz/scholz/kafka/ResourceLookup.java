@@ -0,0 +1,487 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Looks up the Kubernetes resources. The resources are served from the cache when possible. Otherwise, they are
+ * retrieved from the informer store (when the informers are enabled) or from the Kubernetes API. Concurrent lookups of
+ * the same resource share a single request. When the revalidation is enabled, the expired cached resources are used
+ * again if their resource version did not change. When the refresh-ahead is enabled, the cached resources which are
+ * looked up regularly are refreshed in the background before they expire.
+ *
+ * @param <T>   Type of the identifier of the Kubernetes resources
+ */
+class ResourceLookup<T extends ResourceIdentifier> {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceLookup.class);
+
+    private final ApiFetcher<T> apiFetcher;
+    private final BiFunction<T, ResourceProjection, ResourceDocument> streamingGetter;
+    private final Function<T, String> resourceVersionGetter;
+    private final BiFunction<ResourceKind, String, List<GenericKubernetesResource>> lister;
+    private final ProviderMetrics metrics;
+    private final boolean serveStale;
+    private final boolean revalidate;
+    private final long prefetchTtlMs;
+    private final ResourceCache<T> cache;
+    private final NegativeCache<T> missingResources;
+    private final ResourceInformers<T> informers;
+    private final RefreshAhead<T> refreshAhead;
+    private final SingleFlight<T, ResourceDocument> singleFlight = new SingleFlight<>();
+
+    /**
+     * Creates the resource lookup
+     *
+     * @param config            Configuration of the config provider
+     * @param resourceGetter    Function which gets the resource from the Kubernetes API
+     * @param streamingGetter   Function which gets the parts of the resource from the Kubernetes API with a streaming
+     *                          parser. It is used when the streaming fetch mode is configured.
+     * @param resourceVersionGetter Function which gets only the resource version of the resource from the Kubernetes
+     *                          API. It is used to revalidate the expired cached resources.
+     * @param lister            Function which lists the resources of given kind with given label selector
+     * @param informerFactory   Function which starts the informer for the kind and namespace of the resource
+     * @param metrics           Metrics of the config provider
+     */
+    ResourceLookup(KubernetesRawResourceConfigProviderConfig config, Function<T, GenericKubernetesResource> resourceGetter, BiFunction<T, ResourceProjection, ResourceDocument> streamingGetter, Function<T, String> resourceVersionGetter, BiFunction<ResourceKind, String, List<GenericKubernetesResource>> lister, Function<T, SharedIndexInformer<GenericKubernetesResource>> informerFactory, ProviderMetrics metrics) {
+        this.apiFetcher = new ApiFetcher<>(config, resourceGetter, metrics, Time.SYSTEM);
+        this.streamingGetter = KubernetesRawResourceConfigProviderConfig.FETCH_MODE_STREAMING.equals(config.getString(KubernetesRawResourceConfigProviderConfig.FETCH_MODE_CONFIG)) ? streamingGetter : null;
+        this.resourceVersionGetter = resourceVersionGetter;
+        this.lister = lister;
+        this.metrics = metrics;
+        this.serveStale = config.getBoolean(KubernetesRawResourceConfigProviderConfig.SERVE_STALE_ON_ERROR_CONFIG);
+        this.revalidate = config.getBoolean(KubernetesRawResourceConfigProviderConfig.CACHE_REVALIDATE_CONFIG);
+        this.prefetchTtlMs = config.getLong(KubernetesRawResourceConfigProviderConfig.CACHE_TTL_MS_CONFIG) > 0
+                ? config.getLong(KubernetesRawResourceConfigProviderConfig.CACHE_TTL_MS_CONFIG)
+                : config.getLong(KubernetesRawResourceConfigProviderConfig.PREFETCH_TTL_MS_CONFIG);
+        this.cache = createCache(config, serveStale, revalidate);
+
+        this.missingResources = new NegativeCache<>(
+                config.getLong(KubernetesRawResourceConfigProviderConfig.NEGATIVE_CACHE_TTL_MS_CONFIG),
+                config.getInt(KubernetesRawResourceConfigProviderConfig.CACHE_MAX_ENTRIES_CONFIG),
+                Time.SYSTEM
+        );
+
+        if (cache.enabled())    {
+            metrics.registerCache(cache);
+        }
+
+        if (config.getBoolean(KubernetesRawResourceConfigProviderConfig.INFORMERS_ENABLED_CONFIG)) {
+            this.informers = new ResourceInformers<>(
+                    informerFactory,
+                    config.getLong(KubernetesRawResourceConfigProviderConfig.RETRY_BACKOFF_MS_CONFIG),
+                    config.getLong(KubernetesRawResourceConfigProviderConfig.RETRY_BACKOFF_MAX_MS_CONFIG),
+                    Time.SYSTEM
+            );
+        } else {
+            this.informers = null;
+        }
+
+        this.refreshAhead = createRefreshAhead(config);
+    }
+
+    /**
+     * Creates the resource cache. In the values cache mode, the resources are not cached, because only the resolved
+     * values are cached by the resolver.
+     *
+     * @param config        Configuration of the config provider
+     * @param serveStale    Indicates whether the last retrieved versions are used when the Kubernetes API fails
+     * @param revalidate    Indicates whether the expired resources are revalidated
+     *
+     * @return  The resource cache
+     */
+    private static <T> ResourceCache<T> createCache(KubernetesRawResourceConfigProviderConfig config, boolean serveStale, boolean revalidate)  {
+        boolean cacheResources = KubernetesRawResourceConfigProviderConfig.CACHE_MODE_RESOURCES.equals(config.getString(KubernetesRawResourceConfigProviderConfig.CACHE_MODE_CONFIG));
+
+        if (!cacheResources && (serveStale || revalidate))   {
+            LOG.warn("Serving stale resources and the revalidation are not used with the values cache mode, because the resources are not cached.");
+        }
+
+        return new ResourceCache<>(
+                cacheResources ? config.getLong(KubernetesRawResourceConfigProviderConfig.CACHE_TTL_MS_CONFIG) : 0L,
+                config.getInt(KubernetesRawResourceConfigProviderConfig.CACHE_MAX_ENTRIES_CONFIG),
+                config.getLong(KubernetesRawResourceConfigProviderConfig.CACHE_MAX_BYTES_CONFIG),
+                Time.SYSTEM,
+                cacheResources && (serveStale || revalidate)
+        );
+    }
+
+    /**
+     * Creates the refresh-ahead of the cached resources when it is enabled and the resources are cached
+     *
+     * @param config    Configuration of the config provider
+     *
+     * @return  The refresh-ahead or null if it is not used
+     */
+    private RefreshAhead<T> createRefreshAhead(KubernetesRawResourceConfigProviderConfig config)  {
+        if (!config.getBoolean(KubernetesRawResourceConfigProviderConfig.REFRESH_AHEAD_ENABLED_CONFIG)) {
+            return null;
+        } else if (!cache.enabled()) {
+            LOG.warn("Refresh-ahead is enabled but the cache is disabled. The resources will not be refreshed ahead.");
+            return null;
+        }
+
+        return new RefreshAhead<>(
+                config.getLong(KubernetesRawResourceConfigProviderConfig.CACHE_TTL_MS_CONFIG),
+                config.getLong(KubernetesRawResourceConfigProviderConfig.REFRESH_AHEAD_IDLE_TIMEOUT_MS_CONFIG),
+                config.getInt(KubernetesRawResourceConfigProviderConfig.LOOKUP_PARALLELISM_CONFIG),
+                Time.SYSTEM,
+                this::refresh);
+    }
+
+    /**
+     * Gets the resource document either from the cache or from Kubernetes.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return      Resource document
+     */
+    ResourceDocument get(T ri)  {
+        return get(ri, ResourceProjection.ALL);
+    }
+
+    /**
+     * Gets the resource document either from the cache or from Kubernetes. With the streaming fetch mode, the
+     * document might contain only the parts of the resource needed by the projection. The projection of the cached
+     * documents grows with the lookups which need other parts of the resource.
+     *
+     * @param ri            Identifier of the Kubernetes resource
+     * @param projection    Parts of the resource needed by the lookup
+     *
+     * @return      Resource document
+     */
+    ResourceDocument get(T ri, ResourceProjection projection)  {
+        ConfigException missing = missingResources.get(ri);
+
+        if (missing != null)    {
+            LOG.debug("Resource {} is known to be missing", ri);
+            metrics.recordNegativeCacheHit();
+            throw missing;
+        }
+
+        ResourceDocument document = cache.get(ri);
+
+        if (document == null || !document.covers(projection))   {
+            if (cache.enabled())    {
+                metrics.recordCacheMiss();
+            }
+
+            // Retrieves also the parts of the resource needed by the previous lookups to keep them in the cache
+            ResourceProjection needed = document != null ? document.projection().union(projection) : projection;
+            document = load(ri, needed, false, false);
+
+            if (!document.covers(projection))    {
+                // Shared the request with a lookup which needed other parts of the resource
+                document = load(ri, document.projection().union(projection), false, false);
+            }
+        } else {
+            LOG.debug("Using cached resource {}", ri);
+            metrics.recordCacheHit();
+        }
+
+        if (refreshAhead != null)   {
+            refreshAhead.recordLookup(ri);
+        }
+
+        return document;
+    }
+
+    /**
+     * Lists the resources from the Kubernetes API with the same retries and deadline as the lookups of single resources
+     *
+     * @param kind      Kind and namespace of the listed resources
+     * @param request   The list request
+     *
+     * @return  The listed resources
+     */
+    List<GenericKubernetesResource> list(ResourceKind kind, Supplier<List<GenericKubernetesResource>> request)  {
+        return apiFetcher.execute(kind, request);
+    }
+
+    /**
+     * Retrieves the resources declared in the configuration ahead of the lookups and keeps them in memory
+     *
+     * @param config        Configuration of the config provider
+     * @param pathParser    Function which parses the path into the resource identifier
+     */
+    void prefetch(KubernetesRawResourceConfigProviderConfig config, Function<String, T> pathParser)  {
+        new ResourcePrefetcher<>(config, this, pathParser, lister).prefetch();
+    }
+
+    /**
+     * Retrieves a single resource ahead of the lookups and keeps it in memory. Resources which are already cached or
+     * known to be missing are not retrieved again.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     */
+    void warm(T ri)  {
+        if (cache.get(ri) == null && missingResources.get(ri) == null)  {
+            load(ri, ResourceProjection.ALL, true, false);
+        }
+    }
+
+    /**
+     * Stores a resource retrieved ahead of the lookups in the cache. The prefetched resources are kept in memory even
+     * when the cache is disabled, so that the first lookups do not need to retrieve them again.
+     *
+     * @param ri        Identifier of the Kubernetes resource
+     * @param resource  The retrieved resource
+     */
+    void preload(T ri, GenericKubernetesResource resource)  {
+        ResourceDocument document = ResourceDocument.fromResource(resource);
+        metrics.recordResource(document);
+        cache.put(ri, document, prefetchTtlMs);
+    }
+
+    /**
+     * Retrieves the resource from Kubernetes even when it is cached and stores it in the cache
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return      Resource document
+     */
+    ResourceDocument reload(T ri)  {
+        ResourceDocument document = load(ri, ResourceProjection.ALL, false, true);
+
+        if (!cache.enabled())   {
+            // The resource retrieved ahead of the lookups might be outdated
+            cache.invalidate(ri);
+        }
+
+        return document;
+    }
+
+    /**
+     * Replaces the cached resource with its new version received from a watch. The resource is replaced also when it
+     * was retrieved ahead of the lookups while the cache is disabled.
+     *
+     * @param ri        Identifier of the Kubernetes resource
+     * @param document  New version of the resource
+     *
+     * @return  True if the resource was replaced. False if a newer version of the resource is already cached.
+     */
+    boolean update(T ri, ResourceDocument document)  {
+        ResourceDocument cached = cache.getStale(ri);
+
+        if (cached != null && document.olderThan(cached))  {
+            return false;
+        }
+
+        missingResources.invalidate(ri);
+        cache.invalidate(ri);
+        cache.put(ri, document);
+        return true;
+    }
+
+    /**
+     * Removes the resource from the cache after it was deleted, so that the following lookups retrieve it again and
+     * fail because it does not exist
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     */
+    void invalidate(T ri)  {
+        cache.invalidate(ri);
+    }
+
+    /**
+     * Stops the informers and the refreshes and clears the cache
+     */
+    void close()    {
+        if (refreshAhead != null)   {
+            refreshAhead.close();
+        }
+
+        if (informers != null)  {
+            informers.close();
+        }
+
+        cache.clear();
+        missingResources.clear();
+    }
+
+    /**
+     * Loads the resource and stores it in the cache. Concurrent loads of the same resource share a single request. The
+     * refreshes do not join the loads in progress, because those might have started before the resource changed.
+     *
+     * @param ri            Identifier of the Kubernetes resource
+     * @param projection    Parts of the resource which should be loaded
+     * @param ahead         Indicates that the resource is loaded ahead of the lookup and should be kept in memory
+     *                      even when the cache is disabled
+     * @param refresh       Indicates that the resource should be loaded again even when it is cached
+     *
+     * @return      Resource document
+     */
+    private ResourceDocument load(T ri, ResourceProjection projection, boolean ahead, boolean refresh)  {
+        if (refresh)    {
+            return loadNow(ri, projection, ahead);
+        }
+
+        return singleFlight.execute(ri, () -> {
+            ResourceDocument cached = cache.get(ri);
+
+            if (cached != null && cached.covers(projection)) {
+                // Cached by a lookup which completed in the meantime
+                return cached;
+            }
+
+            return loadNow(ri, projection, ahead);
+        });
+    }
+
+    private ResourceDocument loadNow(T ri, ResourceProjection projection, boolean ahead)  {
+        ResourceDocument fetched;
+
+        try {
+            fetched = revalidate(ri, projection);
+
+            if (fetched == null)    {
+                fetched = fetch(ri, projection);
+                metrics.recordResource(fetched);
+            }
+        } catch (ResourceNotFoundException e) {
+            missingResources.put(ri, e);
+            throw e;
+        } catch (ConfigException e) {
+            return staleOrThrow(ri, projection, e);
+        }
+
+        if (ahead)  {
+            cache.put(ri, fetched, prefetchTtlMs);
+        } else {
+            cache.put(ri, fetched);
+        }
+
+        if (refreshAhead != null)   {
+            refreshAhead.cached(ri);
+        }
+
+        return newest(ri, projection, fetched);
+    }
+
+    /**
+     * Returns the newer version of the resource when it was cached while the resource was retrieved (for example from
+     * a watch event)
+     *
+     * @param ri            Identifier of the Kubernetes resource
+     * @param projection    Parts of the resource needed by the lookup
+     * @param fetched       The retrieved resource
+     *
+     * @return  The cached newer version of the resource or the retrieved resource
+     */
+    private ResourceDocument newest(T ri, ResourceProjection projection, ResourceDocument fetched)  {
+        ResourceDocument current = cache.getStale(ri);
+        return current != null && fetched.olderThan(current) && current.covers(projection) ? current : fetched;
+    }
+
+    /**
+     * Loads the cached resource again. The parts of the resource contained in the cached document are loaded.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     */
+    private void refresh(T ri)  {
+        ResourceDocument cached = cache.get(ri);
+        load(ri, cached != null ? cached.projection() : ResourceProjection.ALL, false, true);
+    }
+
+    /**
+     * Checks whether the expired cached resource changed by retrieving only its resource version. The revalidation
+     * is skipped when the informers are enabled because their store is updated by the watch.
+     *
+     * @param ri            Identifier of the Kubernetes resource
+     * @param projection    Parts of the resource needed by the lookup
+     *
+     * @return  The expired cached resource if it did not change or null if it has to be retrieved again
+     */
+    private ResourceDocument revalidate(T ri, ResourceProjection projection)  {
+        if (!revalidate || informers != null || ri.labelSelector() != null)  {
+            return null;
+        }
+
+        ResourceDocument expired = cache.getStale(ri);
+
+        if (expired == null || expired.resourceVersion() == null || !expired.covers(projection))   {
+            return null;
+        }
+
+        String resourceVersion = apiFetcher.execute(ri, () -> resourceVersionGetter.apply(ri));
+
+        if (expired.resourceVersion().equals(resourceVersion))  {
+            LOG.debug("Cached resource {} with resource version {} did not change", ri, resourceVersion);
+            metrics.recordRevalidated();
+            return expired;
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the resource from the informer store when the informers are enabled or from the Kubernetes API. The
+     * resources selected by a label selector are listed from the Kubernetes API with a single request.
+     *
+     * @param ri            Identifier of the Kubernetes resource
+     * @param projection    Parts of the resource which should be materialized with the streaming fetch mode
+     *
+     * @return      Resource document retrieved from the Kubernetes cluster
+     */
+    private ResourceDocument fetch(T ri, ResourceProjection projection)  {
+        if (ri.labelSelector() != null) {
+            ResourceKind kind = ResourceKind.of(ri);
+            String labelSelector = ri.labelSelector().isEmpty() ? null : ri.labelSelector();
+            List<GenericKubernetesResource> resources = apiFetcher.execute(ri, () -> lister.apply(kind, labelSelector));
+
+            return ResourceDocument.fromResources(resources.stream().map(kind::complete).toList());
+        }
+
+        if (informers != null)  {
+            GenericKubernetesResource resource = informers.get(ri);
+
+            if (resource != null)   {
+                return ResourceDocument.fromResource(resource);
+            }
+
+            // Resources missing in the informer store are retrieved from the Kubernetes API. That handles resources
+            // which were just created and also raises the same error as without the informers when they do not exist.
+            // The same applies when the informer failed to start.
+        }
+
+        if (streamingGetter != null)    {
+            return apiFetcher.execute(ri, () -> streamingGetter.apply(ri, projection));
+        } else {
+            return ResourceDocument.fromResource(apiFetcher.fetch(ri));
+        }
+    }
+
+    /**
+     * Returns the last retrieved version of the resource when the Kubernetes API is unavailable and serving stale
+     * resources is enabled. Otherwise, it re-throws the exception.
+     *
+     * @param ri            Identifier of the Kubernetes resource
+     * @param projection    Parts of the resource needed by the lookup
+     * @param e             Exception thrown when retrieving the resource
+     *
+     * @return  The last retrieved version of the resource
+     */
+    private ResourceDocument staleOrThrow(T ri, ResourceProjection projection, ConfigException e)  {
+        ResourceDocument stale = serveStale && ApiFetcher.isUnavailable(e) ? cache.getStale(ri) : null;
+
+        if (stale == null || !stale.covers(projection))  {
+            throw e;
+        }
+
+        LOG.warn("Kubernetes API is not available. Using the last retrieved version {} of resource {}", stale.resourceVersion(), ri);
+        metrics.recordStaleServed();
+        return stale;
+    }
+}
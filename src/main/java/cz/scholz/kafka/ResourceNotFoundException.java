@@ -0,0 +1,23 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+
+/**
+ * Thrown when the requested Kubernetes resource does not exist
+ */
+class ResourceNotFoundException extends ConfigException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception
+     *
+     * @param message   Error message
+     */
+    ResourceNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
+import org.apache.kafka.common.config.ConfigException;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Parses the paths to the Kubernetes resources into the resource identifiers. The paths are parsed in a single pass
+ * without regular expressions. The parsed identifiers are kept in a bounded cache, so repeated lookups of the same path
+ * do not parse it again. Instead of the name, the path can end with a label selector separated by a question mark
+ * (e.g. {@code v1/Service/my-namespace?app=kafka}). The label selector can contain only the characters used by the
+ * Kubernetes label selector syntax.
+ *
+ * @param <T>   Type of the resource identifier
+ */
+class ResourcePathParser<T extends ResourceIdentifier> {
+    private static final int MAX_CACHED_CONTEXTS = 1_000;
+    private static final String NAME_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789.-";
+    private static final boolean[] VALID_CHARACTERS = validCharacters(NAME_CHARACTERS);
+    // Label keys and values, their prefixes and the operators of the equality-based and set-based requirements
+    private static final String SELECTOR_SPECIAL_CHARACTERS = "_/=!,() ";
+    private static final boolean[] VALID_SELECTOR_CHARACTERS = validCharacters(NAME_CHARACTERS + SELECTOR_SPECIAL_CHARACTERS);
+    private static final Map<ContextKey, ResourceDefinitionContext> CONTEXTS = lruMap(MAX_CACHED_CONTEXTS);
+
+    private final int segments;
+    private final String format;
+    private final Function<String[], T> factory;
+    private final Map<String, T> identifiers;
+
+    /**
+     * Creates the path parser
+     *
+     * @param segments      Number of the path segments including the API group
+     * @param format        Description of the expected path format used in the error messages
+     * @param factory       Creates the identifier from the path segments and the label selector which follows them.
+     *                      The first segment is null for the core API group. The name is null for the paths with a
+     *                      label selector and the label selector is null for the paths with a name.
+     * @param maxSize       Maximal number of parsed identifiers kept in the cache
+     */
+    ResourcePathParser(int segments, String format, Function<String[], T> factory, int maxSize) {
+        this.segments = segments;
+        this.format = format;
+        this.factory = factory;
+        this.identifiers = lruMap(maxSize);
+    }
+
+    /**
+     * Parses the path into the resource identifier
+     *
+     * @param path  Path to the Kubernetes resource
+     *
+     * @return  Resource identifier
+     */
+    T parse(String path)    {
+        synchronized (identifiers) {
+            T identifier = identifiers.get(path);
+
+            if (identifier != null) {
+                return identifier;
+            }
+        }
+
+        int selectorStart = path.indexOf('?');
+        String[] pathSegments = selectorStart < 0 ? split(path, segments) : split(path.substring(0, selectorStart), segments - 1);
+
+        if (pathSegments == null && selectorStart >= 0)  {
+            throw new ConfigException("Invalid path " + path + ". Paths with a label selector have to be in format " + format + " "
+                    + "with /<name> replaced by ?<labelSelector>.");
+        } else if (pathSegments == null)   {
+            throw new ConfigException("Invalid path " + path + ". It has to be in format " + format + ".");
+        } else if (selectorStart >= 0 && !isValid(path, selectorStart + 1, VALID_SELECTOR_CHARACTERS)) {
+            throw new ConfigException("Invalid label selector in path " + path + ". "
+                    + "It can contain only letters, digits, spaces and the characters . - _ / = ! , ( )");
+        }
+
+        // The name is left empty for the paths with a label selector
+        String[] identifierSegments = Arrays.copyOf(pathSegments, segments + 1);
+        identifierSegments[segments] = selectorStart < 0 ? null : path.substring(selectorStart + 1);
+        T identifier = factory.apply(identifierSegments);
+
+        synchronized (identifiers) {
+            T existing = identifiers.putIfAbsent(path, identifier);
+            return existing != null ? existing : identifier;
+        }
+    }
+
+    /**
+     * @return  Number of parsed identifiers in the cache
+     */
+    int size() {
+        synchronized (identifiers) {
+            return identifiers.size();
+        }
+    }
+
+    /**
+     * Splits the path into its segments. The path has to consist of the expected number of non-empty segments
+     * containing only letters, digits, dots and dashes. The first segment (the API group) is optional.
+     *
+     * @param path      Path which should be split
+     * @param segments  Number of the path segments including the API group
+     *
+     * @return  Array with the path segments where the first one is null when the API group is missing. Null when the
+     *          path is not valid.
+     */
+    static String[] split(String path, int segments)  {
+        int[] ends = new int[segments];
+        int found = 0;
+        int start = 0;
+
+        for (int i = 0; i <= path.length(); i++)    {
+            if (i == path.length() || path.charAt(i) == '/')  {
+                if (i == start || found == segments)   {
+                    // Empty or superfluous segment
+                    return null;
+                }
+
+                ends[found++] = i;
+                start = i + 1;
+            } else if (!isValidCharacter(path.charAt(i), VALID_CHARACTERS))   {
+                return null;
+            }
+        }
+
+        if (found < segments - 1)   {
+            return null;
+        }
+
+        String[] result = new String[segments];
+        int offset = segments - found;
+        start = 0;
+
+        for (int i = 0; i < found; i++) {
+            result[offset + i] = path.substring(start, ends[i]);
+            start = ends[i] + 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the resource definition context for given resource kind. The contexts are cached and shared by the
+     * identifiers of the resources of the same kind.
+     *
+     * @param group         API group of the resource
+     * @param version       API version of the resource
+     * @param kind          Kind of the resource
+     * @param namespaced    Indicates whether the resource is namespaced
+     *
+     * @return  Resource definition context
+     */
+    static ResourceDefinitionContext definitionContext(String group, String version, String kind, boolean namespaced)    {
+        ContextKey key = new ContextKey(group, version, kind, namespaced);
+
+        synchronized (CONTEXTS) {
+            return CONTEXTS.computeIfAbsent(key, k -> new ResourceDefinitionContext.Builder()
+                    .withGroup(group)
+                    .withVersion(version)
+                    .withKind(kind)
+                    .withNamespaced(namespaced)
+                    .build());
+        }
+    }
+
+    private static boolean isValid(String path, int start, boolean[] validCharacters)  {
+        for (int i = start; i < path.length(); i++)    {
+            if (!isValidCharacter(path.charAt(i), validCharacters))    {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isValidCharacter(char c, boolean[] validCharacters)  {
+        return c < validCharacters.length && validCharacters[c];
+    }
+
+    private static boolean[] validCharacters(String characters)  {
+        boolean[] valid = new boolean[128];
+
+        for (char c : characters.toCharArray())  {
+            valid[c] = true;
+        }
+
+        return valid;
+    }
+
+    private static <K, V> Map<K, V> lruMap(int maxSize)  {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    private record ContextKey(String group, String version, String kind, boolean namespaced) { }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.ThreadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Retrieves the declared resources when the config provider is configured, so that the first lookups are served from
+ * memory. The requests run in parallel. When enabled, the resources of the same kind from the same namespace are
+ * retrieved with a single list request. When the list request is forbidden, they are retrieved one by one instead.
+ * Failed requests are only logged. The affected resources are retrieved again when they are looked up.
+ *
+ * @param <T>   Type of the identifier of the Kubernetes resources
+ */
+class ResourcePrefetcher<T extends ResourceIdentifier> {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourcePrefetcher.class);
+    private static final int MAX_THREADS = 8;
+    private static final int HTTP_FORBIDDEN = 403;
+
+    private final ResourceLookup<T> lookup;
+    private final Function<String, T> pathParser;
+    private final BiFunction<ResourceKind, String, List<GenericKubernetesResource>> lister;
+    private final List<String> paths;
+    private final boolean listPaths;
+    private final List<String> kinds;
+    private final List<String> namespaces;
+    private final String labelSelector;
+    private final Queue<Runnable> fallbacks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates the prefetcher
+     *
+     * @param config        Configuration of the config provider
+     * @param lookup        Resource lookup which keeps the prefetched resources
+     * @param pathParser    Function which parses the path into the resource identifier
+     * @param lister        Function which lists the resources of given kind with given label selector
+     */
+    ResourcePrefetcher(KubernetesRawResourceConfigProviderConfig config, ResourceLookup<T> lookup, Function<String, T> pathParser, BiFunction<ResourceKind, String, List<GenericKubernetesResource>> lister) {
+        this.lookup = lookup;
+        this.pathParser = pathParser;
+        this.lister = lister;
+        this.paths = config.getList(KubernetesRawResourceConfigProviderConfig.PREFETCH_PATHS_CONFIG);
+        this.listPaths = config.getBoolean(KubernetesRawResourceConfigProviderConfig.PREFETCH_PATHS_LIST_CONFIG);
+        this.kinds = config.getList(KubernetesRawResourceConfigProviderConfig.PREFETCH_KINDS_CONFIG);
+        this.namespaces = config.getList(KubernetesRawResourceConfigProviderConfig.PREFETCH_NAMESPACES_CONFIG);
+        this.labelSelector = config.getString(KubernetesRawResourceConfigProviderConfig.PREFETCH_LABEL_SELECTOR_CONFIG);
+    }
+
+    /**
+     * Retrieves the declared resources. The method blocks until all requests complete.
+     */
+    void prefetch() {
+        List<Runnable> tasks = tasks();
+
+        if (tasks.isEmpty())    {
+            return;
+        }
+
+        LOG.info("Prefetching resources using {} requests to the Kubernetes API", tasks.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size(), MAX_THREADS), ThreadUtils.createThreadFactory("kubernetes-raw-resource-config-provider-prefetch-%d", true));
+
+        try {
+            run(tasks, executor);
+
+            // The resources which could not be listed are retrieved one by one once the other requests complete
+            if (!fallbacks.isEmpty())   {
+                run(List.copyOf(fallbacks), executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void run(List<Runnable> tasks, ExecutorService executor)    {
+        CompletableFuture.allOf(tasks.stream().map(task -> CompletableFuture.runAsync(task, executor)).toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Plans the requests: one for every prefetch path (or for every kind and namespace of the prefetch paths when
+     * listing them is enabled) and one for every prefetch kind and namespace.
+     *
+     * @return  List of the requests
+     */
+    private List<Runnable> tasks()  {
+        List<Runnable> tasks = new ArrayList<>();
+        Map<ResourceKind, List<T>> resourcesByKind = new LinkedHashMap<>();
+
+        for (String path : paths)   {
+            try {
+                T ri = pathParser.apply(path);
+
+                if (!listPaths || ri.labelSelector() != null) {
+                    // Paths with label selectors are retrieved with their own list request
+                    tasks.add(() -> safely(ResourceKind.of(ri), () -> lookup.warm(ri)));
+                } else {
+                    resourcesByKind.computeIfAbsent(ResourceKind.of(ri), kind -> new ArrayList<>()).add(ri);
+                }
+            } catch (ConfigException e) {
+                LOG.warn("Ignoring invalid prefetch path {}", path, e);
+            }
+        }
+
+        resourcesByKind.forEach((kind, resources) -> tasks.add(() -> safely(kind, () -> prefetchResources(kind, resources))));
+
+        List<String> kindNamespaces = namespaces.isEmpty() ? Collections.singletonList(null) : namespaces;
+        for (String kind : kinds)   {
+            for (String namespace : kindNamespaces) {
+                try {
+                    ResourceKind resourceKind = ResourceKind.fromString(kind, namespace);
+                    tasks.add(() -> safely(resourceKind, () -> prefetchKind(resourceKind)));
+                } catch (ConfigException e) {
+                    LOG.warn("Ignoring invalid prefetch kind {}", kind, e);
+                }
+            }
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Retrieves the listed resources. A single resource is retrieved directly. Multiple resources are retrieved with a
+     * single list request. When the list request is forbidden, the resources are retrieved one by one.
+     *
+     * @param kind          Kind and namespace of the resources
+     * @param resources     Identifiers of the resources
+     */
+    private void prefetchResources(ResourceKind kind, List<T> resources) {
+        if (resources.size() == 1)  {
+            lookup.warm(resources.get(0));
+            return;
+        }
+
+        Map<String, T> resourcesByName = new LinkedHashMap<>();
+        resources.forEach(ri -> resourcesByName.put(ri.name(), ri));
+
+        List<GenericKubernetesResource> listed;
+
+        try {
+            listed = lookup.list(kind, () -> lister.apply(kind, null));
+        } catch (ConfigException e) {
+            if (e.getCause() instanceof KubernetesClientException kce && kce.getCode() == HTTP_FORBIDDEN) {
+                LOG.info("Listing resources {} is forbidden. The prefetched resources will be retrieved one by one.", kind.description());
+                resources.forEach(ri -> fallbacks.add(() -> safely(kind, () -> lookup.warm(ri))));
+                return;
+            }
+
+            throw e;
+        }
+
+        for (GenericKubernetesResource resource : listed) {
+            T ri = resourcesByName.remove(resource.getMetadata().getName());
+
+            if (ri != null) {
+                preload(kind, ri, resource);
+            }
+        }
+
+        if (!resourcesByName.isEmpty()) {
+            LOG.warn("Prefetched resources {} were not found", resourcesByName.values());
+        }
+    }
+
+    /**
+     * Retrieves all resources of given kind and namespace which match the label selector
+     *
+     * @param kind  Kind and namespace of the resources
+     */
+    private void prefetchKind(ResourceKind kind) {
+        for (GenericKubernetesResource resource : lookup.list(kind, () -> lister.apply(kind, labelSelector))) {
+            String path = kind.pathOf(resource.getMetadata().getNamespace(), resource.getMetadata().getName());
+
+            try {
+                preload(kind, pathParser.apply(path), resource);
+            } catch (ConfigException e) {
+                // The scope of the resources does not match the provider
+                LOG.debug("Ignoring prefetched resource {} which cannot be looked up with this provider", path);
+            }
+        }
+    }
+
+    private void preload(ResourceKind kind, T ri, GenericKubernetesResource resource)  {
+        lookup.preload(ri, kind.complete(resource));
+    }
+
+    private static void safely(ResourceKind kind, Runnable prefetch)    {
+        try {
+            prefetch.run();
+        } catch (RuntimeException e)    {
+            LOG.warn("Failed to prefetch resources {}", kind, e);
+        }
+    }
+}
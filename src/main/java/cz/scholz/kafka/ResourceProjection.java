@@ -0,0 +1,236 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Parts of a Kubernetes resource which are needed to evaluate a set of JSON Path keys. Each part is identified by a
+ * chain of property names leading from the root of the resource to the subtree which has to be materialized. The
+ * chains are derived from the definite prefixes of the JSON Path keys. The keys which do not start with a definite
+ * property chain (such as deep scans or wildcards at the root) need the whole resource.
+ */
+final class ResourceProjection {
+    /**
+     * Projection of the whole resource
+     */
+    static final ResourceProjection ALL = new ResourceProjection(null);
+
+    // The resource version is always needed for the cache and the subscriptions
+    private static final List<String> RESOURCE_VERSION = List.of("metadata", "resourceVersion");
+
+    // Null when the whole resource is needed
+    private final List<List<String>> chains;
+
+    private ResourceProjection(List<List<String>> chains) {
+        this.chains = chains;
+    }
+
+    /**
+     * Creates the projection needed to evaluate the JSON Path keys
+     *
+     * @param keys  JSON Path keys
+     *
+     * @return  Projection of the resource
+     */
+    static ResourceProjection of(Collection<String> keys)  {
+        List<List<String>> chains = new ArrayList<>(keys.size() + 1);
+        chains.add(RESOURCE_VERSION);
+
+        for (String key : keys) {
+            List<String> chain = definitePrefix(key);
+
+            if (chain.isEmpty())    {
+                return ALL;
+            }
+
+            chains.add(chain);
+        }
+
+        return new ResourceProjection(normalize(chains));
+    }
+
+    /**
+     * @return  True if the projection contains the whole resource. False otherwise.
+     */
+    boolean isAll() {
+        return chains == null;
+    }
+
+    /**
+     * @return  Chains of property names leading to the materialized subtrees. None of the chains is a prefix of
+     *          another chain. Null when the whole resource is materialized.
+     */
+    List<List<String>> chains()    {
+        return chains;
+    }
+
+    /**
+     * Checks whether this projection contains all parts of the other projection
+     *
+     * @param other     The other projection
+     *
+     * @return  True if this projection covers the other projection. False otherwise.
+     */
+    boolean covers(ResourceProjection other)    {
+        if (chains == null) {
+            return true;
+        } else if (other.chains == null)    {
+            return false;
+        }
+
+        for (List<String> chain : other.chains)  {
+            if (chains.stream().noneMatch(prefix -> isPrefix(prefix, chain)))   {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Merges this projection with another projection
+     *
+     * @param other     The other projection
+     *
+     * @return  Projection containing the parts of both projections
+     */
+    ResourceProjection union(ResourceProjection other)  {
+        if (chains == null || other.chains == null) {
+            return ALL;
+        }
+
+        List<List<String>> merged = new ArrayList<>(chains);
+        merged.addAll(other.chains);
+        return new ResourceProjection(normalize(merged));
+    }
+
+    @Override
+    public String toString() {
+        return chains == null ? "ALL" : chains.toString();
+    }
+
+    /**
+     * Extracts the leading chain of property names from the JSON Path. The chain ends with the first segment which
+     * can match multiple properties or array items (such as filters, wildcards, indexes or deep scans) or with a
+     * function. The keys referencing the root of the document from filters need the whole document.
+     *
+     * @param key   JSON Path key
+     *
+     * @return  Chain of property names. An empty chain means the whole resource is needed.
+     */
+    static List<String> definitePrefix(String key)   {
+        List<String> chain = new ArrayList<>();
+
+        if (!key.startsWith("$") || key.indexOf('$', 1) >= 0) {
+            return chain;
+        }
+
+        chainEnd(key, 1, chain);
+        return chain;
+    }
+
+    /**
+     * Parses the chain of single properties in the dot or bracket notation starting at given index of the JSON Path
+     *
+     * @param key   JSON Path key
+     * @param start Index where the chain starts
+     * @param chain List where the property names are added
+     *
+     * @return  Index after the end of the chain
+     */
+    static int chainEnd(String key, int start, List<String> chain)  {
+        int i = start;
+
+        while (i < key.length())    {
+            int end = key.charAt(i) == '.' ? dotPropertyEnd(key, i + 1) : bracketPropertyEnd(key, i);
+
+            if (end < 0)    {
+                break;
+            }
+
+            chain.add(key.charAt(i) == '.' ? key.substring(i + 1, end) : key.substring(i + 2, end - 2));
+            i = end;
+        }
+
+        return i;
+    }
+
+    /**
+     * Finds the end of the property in the dot notation (e.g. {@code .status})
+     *
+     * @param key   JSON Path key
+     * @param start Index of the first character of the property name
+     *
+     * @return  Index after the end of the property or -1 if it is not a single property
+     */
+    private static int dotPropertyEnd(String key, int start)  {
+        int end = start;
+
+        while (end < key.length() && key.charAt(end) != '.' && key.charAt(end) != '[')  {
+            char c = key.charAt(end);
+
+            if (c == '*' || c == '(' || c == '\\') {
+                // Wildcards and functions
+                return -1;
+            }
+
+            end++;
+        }
+
+        // Empty name means a deep scan
+        return end > start ? end : -1;
+    }
+
+    /**
+     * Finds the end of the property in the bracket notation (e.g. {@code ['status']})
+     *
+     * @param key   JSON Path key
+     * @param start Index of the opening bracket
+     *
+     * @return  Index after the closing bracket or -1 if it is not a single property
+     */
+    private static int bracketPropertyEnd(String key, int start)  {
+        if (key.charAt(start) != '[' || start + 1 >= key.length())    {
+            return -1;
+        }
+
+        char quote = key.charAt(start + 1);
+
+        if (quote != '\'' && quote != '"') {
+            // Indexes, filters and wildcards
+            return -1;
+        }
+
+        int closing = key.indexOf(quote, start + 2);
+
+        if (closing < 0 || closing + 1 >= key.length() || key.charAt(closing + 1) != ']' || key.lastIndexOf('\\', closing) > start)   {
+            // Multiple properties, escaped characters or invalid path
+            return -1;
+        }
+
+        return closing + 2;
+    }
+
+    private static List<List<String>> normalize(List<List<String>> chains)   {
+        chains.sort(Comparator.comparingInt(List::size));
+        List<List<String>> normalized = new ArrayList<>(chains.size());
+
+        for (List<String> chain : chains)   {
+            if (normalized.stream().noneMatch(prefix -> isPrefix(prefix, chain)))   {
+                normalized.add(List.copyOf(chain));
+            }
+        }
+
+        return normalized;
+    }
+
+    private static boolean isPrefix(List<String> prefix, List<String> chain)  {
+        return prefix.size() <= chain.size() && prefix.equals(chain.subList(0, prefix.size()));
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import org.apache.kafka.common.config.ConfigChangeCallback;
+import org.apache.kafka.common.config.ConfigData;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.ExponentialBackoff;
+import org.apache.kafka.common.utils.ThreadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Manages the subscriptions to changes of the Kubernetes resources. Each subscribed path is watched using a single
+ * Kubernetes watch. The callbacks are called only when the values of the subscribed keys change. The new versions of
+ * the resources are passed to the updater before the callbacks are called, so that the lookups triggered by the
+ * callbacks get the new values. The watch is opened before the current version of the resource is retrieved, so that
+ * no change is missed in between. Watches which cannot be restarted are retried with an exponential backoff.
+ */
+class ResourceSubscriptions {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceSubscriptions.class);
+    private static final int BACKOFF_MULTIPLIER = 2;
+    private static final double BACKOFF_JITTER = 0.2;
+
+    private final Function<String, ResourceDocument> fetcher;
+    private final BiConsumer<String, ResourceDocument> updater;
+    private final Consumer<String> remover;
+    private final BiFunction<String, Watcher<GenericKubernetesResource>, Watch> watchFactory;
+    private final ExponentialBackoff backoff;
+    private final Map<String, PathSubscription> subscriptions = new HashMap<>();
+    // The thread is started only when a watch has to be restarted again
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            ThreadUtils.createThreadFactory("kubernetes-raw-resource-config-provider-watch-%d", true));
+
+    /**
+     * Creates the subscription manager
+     *
+     * @param fetcher       Function used to get the current version of the resource for given path. It should not
+     *                      return cached resources, because it is used to pick up the changes missed while the watch
+     *                      was not running.
+     * @param updater       Consumer which receives the new versions of the resources from the watches
+     * @param remover       Consumer which receives the paths of the resources deleted according to the watches
+     * @param watchFactory  Function used to create a watch for the resource for given path
+     * @param backoffMs     Initial backoff in milliseconds before a failed restart of a watch is retried
+     * @param backoffMaxMs  Maximal backoff in milliseconds before a failed restart of a watch is retried
+     */
+    ResourceSubscriptions(Function<String, ResourceDocument> fetcher, BiConsumer<String, ResourceDocument> updater, Consumer<String> remover,
+                          BiFunction<String, Watcher<GenericKubernetesResource>, Watch> watchFactory, long backoffMs, long backoffMaxMs) {
+        this.fetcher = fetcher;
+        this.updater = updater;
+        this.remover = remover;
+        this.watchFactory = watchFactory;
+        this.backoff = new ExponentialBackoff(backoffMs, BACKOFF_MULTIPLIER, backoffMaxMs, BACKOFF_JITTER);
+    }
+
+    /**
+     * Subscribes to the changes of the keys of given path
+     *
+     * @param path      Path to the Kubernetes resource
+     * @param keys      Keys which should be watched for changes
+     * @param callback  Callback which should be called when the values of the keys change
+     */
+    synchronized void subscribe(String path, Set<String> keys, ConfigChangeCallback callback)   {
+        PathSubscription subscription = subscriptions.get(path);
+
+        if (subscription == null)   {
+            LOG.info("Watching resource {} for changes", path);
+
+            subscription = new PathSubscription(path);
+            // The watch is opened first, so that the changes made while the current version is retrieved are not
+            // missed. The events received in the meantime are handled once the subscription is registered.
+            subscription.watch = watchFactory.apply(path, subscription);
+
+            try {
+                subscription.update(fetcher.apply(path), keys);
+            } catch (RuntimeException e) {
+                subscription.watch.close();
+                throw e;
+            }
+
+            subscriptions.put(path, subscription);
+        } else {
+            Set<String> newKeys = new HashSet<>(keys);
+            newKeys.removeAll(subscription.values.keySet());
+
+            if (!newKeys.isEmpty()) {
+                subscription.update(fetcher.apply(path), newKeys);
+            }
+        }
+
+        subscription.callbacks.computeIfAbsent(callback, c -> new HashSet<>()).addAll(keys);
+    }
+
+    /**
+     * Unsubscribes the callback from the changes of the keys of given path
+     *
+     * @param path      Path to the Kubernetes resource
+     * @param keys      Keys which should not be watched anymore
+     * @param callback  Callback which should be unsubscribed
+     */
+    synchronized void unsubscribe(String path, Set<String> keys, ConfigChangeCallback callback) {
+        PathSubscription subscription = subscriptions.get(path);
+
+        if (subscription != null) {
+            Set<String> callbackKeys = subscription.callbacks.get(callback);
+
+            if (callbackKeys != null)   {
+                callbackKeys.removeAll(keys);
+
+                if (callbackKeys.isEmpty()) {
+                    subscription.callbacks.remove(callback);
+                }
+            }
+
+            Set<String> usedKeys = new HashSet<>();
+            subscription.callbacks.values().forEach(usedKeys::addAll);
+            subscription.values.keySet().retainAll(usedKeys);
+
+            if (subscription.callbacks.isEmpty()) {
+                LOG.info("Stopped watching resource {} for changes", path);
+                subscriptions.remove(path);
+                subscription.watch.close();
+            }
+        }
+    }
+
+    /**
+     * Removes all subscriptions and stops all watches
+     */
+    synchronized void unsubscribeAll()  {
+        for (PathSubscription subscription : subscriptions.values())    {
+            subscription.watch.close();
+        }
+
+        subscriptions.clear();
+    }
+
+    /**
+     * Removes all subscriptions, stops all watches and the retries of the watches which failed to restart
+     */
+    void close()    {
+        unsubscribeAll();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return  Number of watched paths
+     */
+    synchronized int size() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Handles a new version of the resource. It updates the last values and calls the callbacks subscribed to the
+     * keys which changed.
+     *
+     * @param subscription  Subscription of the path
+     * @param document      New version of the resource
+     */
+    private void onResource(PathSubscription subscription, ResourceDocument document)  {
+        List<Runnable> notifications = new ArrayList<>();
+
+        synchronized (this) {
+            if (subscriptions.get(subscription.path) != subscription || document.olderThan(subscription.document)) {
+                // Already unsubscribed or an older version than the one already seen
+                return;
+            }
+
+            Set<String> changedKeys = subscription.update(document, subscription.values.keySet());
+
+            for (Map.Entry<ConfigChangeCallback, Set<String>> callback : subscription.callbacks.entrySet()) {
+                if (callback.getValue().stream().anyMatch(changedKeys::contains)) {
+                    Map<String, String> data = new HashMap<>(callback.getValue().size());
+                    callback.getValue().forEach(key -> data.put(key, subscription.values.get(key)));
+                    notifications.add(() -> callback.getKey().onChange(subscription.path, new ConfigData(data)));
+                }
+            }
+        }
+
+        // The callbacks are called outside the lock
+        for (Runnable notification : notifications)  {
+            try {
+                notification.run();
+            } catch (RuntimeException e) {
+                LOG.error("Config change callback for {} failed", subscription.path, e);
+            }
+        }
+    }
+
+    /**
+     * Restarts the watch after it was closed by the Kubernetes client. When the restart fails, it is retried with an
+     * exponential backoff until it succeeds or until the path is unsubscribed.
+     *
+     * @param subscription  Subscription which should be restarted
+     */
+    private void restart(PathSubscription subscription)    {
+        try {
+            synchronized (this) {
+                if (subscriptions.get(subscription.path) != subscription) {
+                    // Already unsubscribed
+                    return;
+                }
+
+                // The watch might be still open when the previous restart failed to retrieve the current version
+                subscription.watch.close();
+                subscription.watch = watchFactory.apply(subscription.path, subscription);
+            }
+
+            // Changes which happened while the watch was not running are picked up from the current version
+            onResource(subscription, fetcher.apply(subscription.path));
+            subscription.failedRestarts = 0;
+        } catch (RuntimeException e) {
+            long backoffMs = backoff.backoff(subscription.failedRestarts++);
+            LOG.error("Failed to restart the watch for resource {}. Retrying in {} ms.", subscription.path, backoffMs, e);
+
+            try {
+                scheduler.schedule(() -> restart(subscription), backoffMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ree) {
+                LOG.debug("Not retrying the watch for resource {} because the subscriptions are closed", subscription.path);
+            }
+        }
+    }
+
+    /**
+     * Subscriptions to a single path. It also acts as the watcher for the resource behind the path.
+     */
+    private class PathSubscription implements Watcher<GenericKubernetesResource> {
+        private final String path;
+        private final Map<ConfigChangeCallback, Set<String>> callbacks = new HashMap<>();
+        private final Map<String, String> values = new HashMap<>();
+        private Watch watch;
+        private ResourceDocument document;
+        private int failedRestarts = 0;
+
+        PathSubscription(String path) {
+            this.path = path;
+        }
+
+        /**
+         * Extracts the values of the keys from the new version of the resource
+         *
+         * @param document  New version of the resource
+         * @param keys      Keys which should be updated
+         *
+         * @return  Keys with changed values
+         */
+        private Set<String> update(ResourceDocument document, Set<String> keys)  {
+            Set<String> changedKeys = new HashSet<>();
+            this.document = document;
+
+            for (String key : keys) {
+                String value;
+
+                try {
+                    value = ValueExtractor.extract(document, key);
+                } catch (ConfigException e) {
+                    // The key might not be present in all versions of the resource
+                    value = null;
+                }
+
+                if (!values.containsKey(key) || !Objects.equals(values.get(key), value))  {
+                    changedKeys.add(key);
+                }
+
+                values.put(key, value);
+            }
+
+            return changedKeys;
+        }
+
+        @Override
+        public void eventReceived(Action action, GenericKubernetesResource resource) {
+            if (action == Action.ADDED || action == Action.MODIFIED)  {
+                ResourceDocument newDocument = ResourceDocument.fromResource(resource);
+
+                try {
+                    updater.accept(path, newDocument);
+                } catch (RuntimeException e) {
+                    LOG.error("Failed to update the cached values of resource {}", path, e);
+                }
+
+                onResource(this, newDocument);
+            } else if (action == Action.DELETED) {
+                LOG.warn("Watched resource {} was deleted", path);
+                // The following lookups fail because the resource does not exist anymore
+                remover.accept(path);
+            }
+        }
+
+        @Override
+        public void onClose(WatcherException cause) {
+            LOG.warn("Watch for resource {} was closed and will be restarted", path, cause);
+            restart(this);
+        }
+    }
+}
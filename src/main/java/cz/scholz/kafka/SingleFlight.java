@@ -0,0 +1,72 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single call. The first caller executes the call and all callers
+ * which arrive while it is in progress wait for its result. The result or the exception thrown by the call is shared
+ * by all of them.
+ *
+ * @param <K>   Type of the key
+ * @param <V>   Type of the result
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Executes the call or waits for the result of the call for the same key which is already in progress.
+     *
+     * @param key       Key identifying the call
+     * @param call      The call
+     *
+     * @return  Result of the call
+     */
+    V execute(K key, Supplier<V> call)  {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null)   {
+            return join(existing);
+        }
+
+        try {
+            V result = call.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @return  Number of calls in progress
+     */
+    int size()  {
+        return inFlight.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> future)   {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Rethrow the same exception as thrown to the caller who executed the call
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            } else {
+                throw e;
+            }
+        }
+    }
+}
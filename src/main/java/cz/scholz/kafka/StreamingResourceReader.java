@@ -0,0 +1,216 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.internal.OperationSupport;
+import io.fabric8.kubernetes.client.http.HttpClient;
+import io.fabric8.kubernetes.client.http.HttpResponse;
+import org.apache.kafka.common.config.ConfigException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Retrieves the resources from the Kubernetes API as raw JSON and parses them with a streaming parser. Only the
+ * subtrees contained in the projection are materialized. The rest of the resource is skipped while parsing. It can
+ * also retrieve only the resource version of a resource as partial object metadata.
+ */
+class StreamingResourceReader {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingResourceReader.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int HTTP_NOT_FOUND = 404;
+    // Falls back to the whole resource when the API server does not support the partial object metadata
+    private static final String PARTIAL_OBJECT_METADATA = "application/json;as=PartialObjectMetadata;g=meta.k8s.io;v=v1,application/json";
+    private static final ResourceProjection RESOURCE_VERSION = ResourceProjection.of(List.of());
+
+    private final KubernetesClient client;
+
+    /**
+     * Creates the reader
+     *
+     * @param client    Kubernetes client
+     */
+    StreamingResourceReader(KubernetesClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Retrieves the parts of the resource contained in the projection
+     *
+     * @param ri            Identifier of the Kubernetes resource
+     * @param projection    Parts of the resource which should be materialized
+     *
+     * @return  Resource document with the materialized parts of the resource
+     */
+    ResourceDocument read(ResourceIdentifier ri, ResourceProjection projection)  {
+        LOG.debug("Retrieving resource {}/{} {} with name {} from namespace {}", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace());
+        return read(ri, projection, "application/json");
+    }
+
+    /**
+     * Retrieves the resource version of the resource. Only the metadata of the resource are requested.
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return  The resource version or null if the resource does not have any
+     */
+    String readResourceVersion(ResourceIdentifier ri)  {
+        LOG.debug("Retrieving metadata of resource {}/{} {} with name {} from namespace {}", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace());
+        return read(ri, RESOURCE_VERSION, PARTIAL_OBJECT_METADATA).resourceVersion();
+    }
+
+    private ResourceDocument read(ResourceIdentifier ri, ResourceProjection projection, String accept)  {
+        HttpClient httpClient = client.getHttpClient();
+        CompletableFuture<HttpResponse<InputStream>> call = httpClient.sendAsync(
+                httpClient.newHttpRequestBuilder().uri(url(ri)).setHeader("Accept", accept).build(), InputStream.class);
+
+        try {
+            HttpResponse<InputStream> response = call.get();
+
+            try (InputStream body = response.body()) {
+                if (response.code() == HTTP_NOT_FOUND) {
+                    LOG.error("Resource {}/{} {} with name {} from namespace {} was not found", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace());
+                    throw new ResourceNotFoundException(notFoundMessage(ri));
+                } else if (!response.isSuccessful()) {
+                    throw failed(ri, new KubernetesClientException(response.message(), response.code(), null));
+                }
+
+                return parse(body, projection);
+            }
+        } catch (ExecutionException | IOException e) {
+            // Code 0 marks the I/O errors where the API server did not respond
+            throw failed(ri, new KubernetesClientException(e.getMessage(), e instanceof ExecutionException ? e.getCause() : e, 0, null, null));
+        } catch (InterruptedException e) {
+            // The lookup was cancelled (for example after its deadline) => the HTTP call is cancelled as well
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw failed(ri, new KubernetesClientException("Interrupted", e));
+        }
+    }
+
+    /**
+     * Parses the parts of the resource contained in the projection
+     *
+     * @param json          Resource in JSON format
+     * @param projection    Parts of the resource which should be materialized
+     *
+     * @return  Resource document with the materialized parts of the resource
+     *
+     * @throws IOException  Thrown when the JSON cannot be parsed
+     */
+    @SuppressWarnings("unchecked")
+    static ResourceDocument parse(InputStream json, ResourceProjection projection) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The resource is not a JSON object");
+            }
+
+            Map<String, Object> tree = projection.isAll()
+                    ? MAPPER.readValue(parser, Map.class)
+                    : readObject(parser, Node.of(projection));
+
+            return new ResourceDocument(tree, resourceVersion(tree), projection);
+        }
+    }
+
+    /**
+     * Reads the JSON object. The fields which are not in the projection are skipped.
+     *
+     * @param parser    JSON parser positioned at the start of the object
+     * @param node      Node of the projection corresponding to the object
+     *
+     * @return  Map with the materialized fields
+     *
+     * @throws IOException  Thrown when the JSON cannot be parsed
+     */
+    private static Map<String, Object> readObject(JsonParser parser, Node node) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.children.get(parser.currentName());
+            JsonToken value = parser.nextToken();
+
+            if (child == null) {
+                parser.skipChildren();
+            } else if (child.children.isEmpty() || value != JsonToken.START_OBJECT) {
+                result.put(parser.currentName(), MAPPER.readValue(parser, Object.class));
+            } else {
+                result.put(parser.currentName(), readObject(parser, child));
+            }
+        }
+
+        return result;
+    }
+
+    private static String resourceVersion(Map<String, Object> tree)    {
+        return tree.get("metadata") instanceof Map<?, ?> metadata && metadata.get("resourceVersion") instanceof String resourceVersion
+                ? resourceVersion : null;
+    }
+
+    /**
+     * Gets the URL of the resource from the resource operation of the Kubernetes client. That way, the URL is the same
+     * as when the resource is retrieved with the Kubernetes client (including the plural of the kind).
+     *
+     * @param ri    Identifier of the Kubernetes resource
+     *
+     * @return  URL of the resource
+     */
+    private String url(ResourceIdentifier ri)   {
+        OperationSupport operation = (OperationSupport) (ri.namespace() != null
+                ? client.genericKubernetesResources(ri.resourceDefinitionContext()).inNamespace(ri.namespace()).withName(ri.name())
+                : client.genericKubernetesResources(ri.resourceDefinitionContext()).withName(ri.name()));
+
+        try {
+            return operation.getResourceUrl().toString();
+        } catch (IOException e) {
+            throw failed(ri, new KubernetesClientException("Invalid resource URL", e));
+        }
+    }
+
+    private static String notFoundMessage(ResourceIdentifier ri)  {
+        // Same messages as when the resources are retrieved with the Kubernetes client
+        return "Resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + " was not found"
+                + (ri.namespace() != null ? " in namespace " + ri.namespace() : "") + "!";
+    }
+
+    private static ConfigException failed(ResourceIdentifier ri, KubernetesClientException e)  {
+        LOG.error("Failed to retrieve resource {}/{} {} with name {} from namespace {}", ri.group(), ri.version(), ri.kind(), ri.name(), ri.namespace(), e);
+        return ApiFetcher.withCause(new ConfigException("Failed to retrieve resource " + ri.group() + "/" + ri.version() + "/" + ri.kind() + " with name " + ri.name() + "!"), e);
+    }
+
+    /**
+     * Node of the tree built from the projection chains. Nodes without children are materialized as a whole.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+
+        static Node of(ResourceProjection projection)  {
+            Node root = new Node();
+
+            for (List<String> chain : projection.chains())  {
+                Node node = root;
+
+                for (String property : chain)   {
+                    node = node.children.computeIfAbsent(property, p -> new Node());
+                }
+            }
+
+            return root;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.Time;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cache for the configuration values resolved from the Kubernetes resources. Unlike the resource cache, it keeps only
+ * the values of the keys which were looked up together with the resource version they were resolved from, so its size
+ * does not depend on the size of the resources. The entries expire after the configured TTL. The size of the cache is
+ * bounded by the number of values and by their estimated size. When the cache is full, the least recently used values
+ * are evicted.
+ */
+class ValueCache {
+    // Rough estimates of the heap used by the cached values
+    private static final long ENTRY_OVERHEAD = 96L;
+    private static final long STRING_OVERHEAD = 40L;
+
+    private final long ttlMs;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Time time;
+    private final LinkedHashMap<ValueKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes = 0L;
+    private long evictions = 0L;
+
+    /**
+     * Creates the value cache
+     *
+     * @param ttlMs         Time to live of the cached values in milliseconds
+     * @param maxEntries    Maximal number of cached values
+     * @param maxBytes      Maximal estimated size of the cached values in bytes
+     * @param time          Time used to expire the entries
+     */
+    ValueCache(long ttlMs, int maxEntries, long maxBytes, Time time) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.time = time;
+    }
+
+    /**
+     * Gets the values from the cache. The values are returned only when all keys are cached, none of them expired and
+     * all of them were resolved from the same version of the resource.
+     *
+     * @param path  Path to the Kubernetes resource
+     * @param keys  Keys which should be extracted from the resource
+     *
+     * @return  The cached values or null if they are not all cached
+     */
+    synchronized Map<String, String> get(String path, Set<String> keys)  {
+        Map<String, String> values = new HashMap<>(keys.size());
+        CacheEntry first = null;
+
+        for (String key : keys) {
+            ValueKey valueKey = new ValueKey(path, key);
+            CacheEntry entry = entries.get(valueKey);
+
+            if (entry == null)  {
+                return null;
+            } else if (entry.expiresAt() <= time.milliseconds()) {
+                remove(valueKey);
+                return null;
+            } else if (first != null && !Objects.equals(first.resourceVersion(), entry.resourceVersion())) {
+                // The values of the other keys were resolved from a different version of the resource
+                return null;
+            }
+
+            first = first != null ? first : entry;
+            values.put(key, entry.value());
+        }
+
+        return values;
+    }
+
+    /**
+     * Adds the values resolved from a resource to the cache. Values which are bigger than the maximal size of the
+     * cache are not cached.
+     *
+     * @param path              Path to the Kubernetes resource
+     * @param resourceVersion   Resource version of the resource
+     * @param values            Resolved values
+     */
+    synchronized void put(String path, String resourceVersion, Map<String, String> values)    {
+        long expiresAt = time.milliseconds() + ttlMs;
+
+        for (Map.Entry<String, String> value : values.entrySet())  {
+            ValueKey key = new ValueKey(path, value.getKey());
+            CacheEntry entry = new CacheEntry(value.getValue(), resourceVersion, expiresAt, estimateWeight(key, value.getValue()));
+            remove(key);
+
+            if (entry.weight() <= maxBytes) {
+                entries.put(key, entry);
+                bytes += entry.weight();
+            }
+        }
+
+        Iterator<Map.Entry<ValueKey, CacheEntry>> iterator = entries.entrySet().iterator();
+
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            CacheEntry eldest = iterator.next().getValue();
+            iterator.remove();
+            bytes -= eldest.weight();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all values resolved from the resource from the cache
+     *
+     * @param path  Path to the Kubernetes resource
+     *
+     * @return  Keys of the removed values
+     */
+    synchronized Set<String> invalidate(String path)   {
+        Set<String> keys = new HashSet<>();
+        Iterator<Map.Entry<ValueKey, CacheEntry>> iterator = entries.entrySet().iterator();
+
+        while (iterator.hasNext())  {
+            Map.Entry<ValueKey, CacheEntry> entry = iterator.next();
+
+            if (entry.getKey().path().equals(path)) {
+                iterator.remove();
+                bytes -= entry.getValue().weight();
+                keys.add(entry.getKey().key());
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Removes all values from the cache
+     */
+    synchronized void clear()   {
+        entries.clear();
+        bytes = 0L;
+    }
+
+    /**
+     * @return  Number of values in the cache
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return  Estimated size of the cached values in bytes
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return  Total number of values evicted from the cache because it was full
+     */
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    private void remove(ValueKey key) {
+        CacheEntry removed = entries.remove(key);
+
+        if (removed != null) {
+            bytes -= removed.weight();
+        }
+    }
+
+    /**
+     * Estimates the heap used by a cached value. The path and the resource version are shared by all values resolved
+     * from the same lookup and are counted only as references.
+     *
+     * @param key   Key of the cached value
+     * @param value The value
+     *
+     * @return  Estimated size in bytes
+     */
+    private static long estimateWeight(ValueKey key, String value)  {
+        return ENTRY_OVERHEAD + STRING_OVERHEAD + key.key().length() + (value != null ? STRING_OVERHEAD + value.length() : 0L);
+    }
+
+    /**
+     * Key of a cached value
+     *
+     * @param path  Path to the Kubernetes resource
+     * @param key   Key extracted from the resource
+     */
+    private record ValueKey(String path, String key) { }
+
+    /**
+     * Cached value
+     *
+     * @param value             The value or null if the resource does not contain the key
+     * @param resourceVersion   Resource version of the resource from which the value was resolved
+     * @param expiresAt         Time when the value expires in milliseconds
+     * @param weight            Estimated size of the value in bytes
+     */
+    private record CacheEntry(String value, String resourceVersion, long expiresAt, long weight) { }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPathException;
+import net.minidev.json.JSONValue;
+import org.apache.kafka.common.config.ConfigException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Extracts the configuration values from the resource documents using JSON Path. The definite keys are evaluated by
+ * walking the tree of the document directly and the keys with an equality filter on the array items are evaluated
+ * using an index of the document when possible.
+ */
+final class ValueExtractor {
+    private static final Logger LOG = LoggerFactory.getLogger(ValueExtractor.class);
+    private static final int PARSED_KEY_CACHE_SIZE = 1000;
+    private static final ParsedKeyCache PARSED_KEYS = new ParsedKeyCache(PARSED_KEY_CACHE_SIZE);
+
+    private ValueExtractor() { }
+
+    /**
+     * Extracts the values from the resource document.
+     *
+     * @param document  Resource document
+     * @param keys      Keys (JSON Paths) which should be extracted from the resource
+     *
+     * @return  Map with the keys and their values
+     */
+    static Map<String, String> extract(ResourceDocument document, Set<String> keys)    {
+        DocumentContext context = document.context();
+        Map<String, String> configs = new HashMap<>(keys.size());
+
+        for (String key : keys) {
+            configs.put(key, extract(document, context, key));
+        }
+
+        return configs;
+    }
+
+    /**
+     * Extracts the values from each of the documents and joins them with the delimiter. The documents where the value
+     * is null are skipped.
+     *
+     * @param documents Resource documents
+     * @param keys      Keys (JSON Paths) which should be extracted from the resources
+     * @param delimiter Delimiter used to join the values from the different resources
+     *
+     * @return  Map with the keys and their joined values. The value is null when none of the resources has it.
+     */
+    static Map<String, String> extractJoined(List<ResourceDocument> documents, Set<String> keys, String delimiter)    {
+        List<DocumentContext> contexts = documents.stream().map(ResourceDocument::context).toList();
+        Map<String, String> configs = new HashMap<>(keys.size());
+
+        for (String key : keys) {
+            StringJoiner joiner = new StringJoiner(delimiter);
+            boolean found = false;
+
+            for (int i = 0; i < documents.size(); i++)    {
+                String value = extract(documents.get(i), contexts.get(i), key);
+
+                if (value != null)  {
+                    joiner.add(value);
+                    found = true;
+                }
+            }
+
+            configs.put(key, found ? joiner.toString() : null);
+        }
+
+        return configs;
+    }
+
+    /**
+     * Extracts a single value from the resource document.
+     *
+     * @param document  Resource document
+     * @param key       Key (JSON Path) which should be extracted from the resource
+     *
+     * @return  The value of the key
+     */
+    static String extract(ResourceDocument document, String key)    {
+        return extract(document, document.context(), key);
+    }
+
+    private static String extract(ResourceDocument document, DocumentContext context, String key)  {
+        ParsedKey parsed = PARSED_KEYS.get(key);
+        Object direct = parsed.evaluateDirectly(document.tree());
+
+        if (direct instanceof String || direct instanceof List) {
+            return toResultValue(direct);
+        }
+
+        Object indexed = parsed.evaluateIndexed(document);
+
+        if (indexed != IndexedFilter.NOT_INDEXED)   {
+            return indexed != null ? toConfigValue(indexed) : null;
+        }
+
+        try {
+            return toResultValue(context.read(parsed.jsonPath()));
+        } catch (JsonPathException e)   {
+            LOG.error("Failed to query the JSON Path {}", key, e);
+            throw new ConfigException("Failed to query the JSON Path " + key);
+        }
+    }
+
+    /**
+     * Converts the result of the key to the configuration value. For lists, the first item is used.
+     *
+     * @param result    Result of the key
+     *
+     * @return  The configuration value or null if the result is an empty list
+     */
+    private static String toResultValue(Object result)  {
+        if (result instanceof String stringResult)   {
+            return stringResult;
+        } else if (result instanceof List<?> listResult)  {
+            return listResult.isEmpty() ? null : toConfigValue(listResult.get(0));
+        } else {
+            throw new ConfigException("Unexpected type " + result.getClass());
+        }
+    }
+
+    /**
+     * Converts the JSON Path result to a String. The format is the same as when the JSON Path was evaluated against
+     * the resource parsed from JSON by Json Smart, where objects are LinkedHashMaps and arrays are JSONArrays.
+     *
+     * @param value     Value returned by the JSON Path query
+     *
+     * @return  String representation of the value
+     */
+    private static String toConfigValue(Object value)  {
+        if (value instanceof List) {
+            return JSONValue.toJSONString(value);
+        } else if (value instanceof Map<?, ?> mapValue) {
+            StringJoiner joiner = new StringJoiner(", ", "{", "}");
+
+            for (Map.Entry<?, ?> entry : mapValue.entrySet()) {
+                joiner.add(entry.getKey() + "=" + (entry.getValue() == null ? "null" : toConfigValue(entry.getValue())));
+            }
+
+            return joiner.toString();
+        } else {
+            return value.toString();
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Snapshot of the resolved configuration values stored in a local file. The values from the snapshot can be used
+ * right after a restart without waiting for the Kubernetes API. The values resolved from Kubernetes are recorded in the
+ * snapshot and the file is rewritten in the background when they change. Changes made while a save is pending are
+ * written together. Multiple snapshots in the same JVM can share the file: every save merges the paths saved by the
+ * other snapshots and keeps the most recently resolved values of each path.
+ *
+ * The file uses a compact binary format: a header with a magic number and the format version followed by the number
+ * of the paths and, for every path, its resource version, the time when its values were resolved and its keys and
+ * values.
+ */
+class ValueSnapshot {
+    private static final Logger LOG = LoggerFactory.getLogger(ValueSnapshot.class);
+    private static final int MAGIC = 0x4b52_5653;
+    private static final int FORMAT_VERSION = 1;
+    // Serializes the saves of all snapshots in the JVM so that the snapshots sharing the same file do not overwrite
+    // the paths saved by each other
+    private static final Object SAVE_LOCK = new Object();
+
+    private final Path file;
+    private final long maxStalenessMs;
+    private final Time time;
+    private final Executor saver;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private boolean dirty = false;
+    private boolean saveScheduled = false;
+
+    /**
+     * Creates the snapshot and loads the values from the snapshot file when it exists
+     *
+     * @param file              Snapshot file
+     * @param maxStalenessMs    Maximal age in milliseconds of the values which can be used from the snapshot
+     * @param time              Time used to measure the age of the values
+     * @param saver             Executor used to save the snapshot in the background
+     */
+    ValueSnapshot(Path file, long maxStalenessMs, Time time, Executor saver) {
+        this.file = file;
+        this.maxStalenessMs = maxStalenessMs;
+        this.time = time;
+        this.saver = saver;
+
+        load();
+    }
+
+    /**
+     * Gets the values loaded from the snapshot file. Only the values which were not resolved from Kubernetes since the
+     * snapshot was loaded and which are not older than the maximal staleness are returned.
+     *
+     * @param path  Path to the Kubernetes resource
+     * @param keys  Keys which should be extracted from the resource
+     *
+     * @return  The values or null if the snapshot does not contain all keys
+     */
+    synchronized Map<String, String> get(String path, Set<String> keys)    {
+        Entry entry = entries.get(path);
+
+        if (entry == null || !entry.loaded() || time.milliseconds() - entry.resolvedAtMs() > maxStalenessMs || !entry.values().keySet().containsAll(keys)) {
+            return null;
+        }
+
+        Map<String, String> values = new HashMap<>(keys.size());
+        keys.forEach(key -> values.put(key, entry.values().get(key)));
+        return values;
+    }
+
+    /**
+     * Records the values resolved from Kubernetes. The values of the other keys of the same resource version are kept.
+     * The file is rewritten only when the resource version or the values differ from the recorded ones.
+     *
+     * @param path              Path to the Kubernetes resource
+     * @param resourceVersion   Resource version of the resource
+     * @param values            Resolved values
+     */
+    synchronized void put(String path, String resourceVersion, Map<String, String> values)  {
+        Entry previous = entries.get(path);
+        Map<String, String> merged = new HashMap<>();
+
+        if (previous != null && previous.resourceVersion() != null && previous.resourceVersion().equals(resourceVersion)) {
+            merged.putAll(previous.values());
+        }
+
+        merged.putAll(values);
+        entries.put(path, new Entry(resourceVersion, time.milliseconds(), merged, false));
+
+        if (previous != null && Objects.equals(previous.resourceVersion(), resourceVersion) && previous.values().equals(merged)) {
+            // Nothing changed => the new resolution time is saved together with the next change
+            return;
+        }
+
+        dirty = true;
+
+        if (!saveScheduled) {
+            saveScheduled = true;
+            saver.execute(this::scheduledSave);
+        }
+    }
+
+    /**
+     * Stops using the values of the path loaded from the snapshot file, because the resource changed. The values are
+     * recorded again when they are resolved from Kubernetes.
+     *
+     * @param path  Path to the Kubernetes resource
+     */
+    synchronized void invalidate(String path)   {
+        Entry entry = entries.get(path);
+
+        if (entry != null && entry.loaded()) {
+            entries.put(path, new Entry(entry.resourceVersion(), entry.resolvedAtMs(), entry.values(), false));
+        }
+    }
+
+    /**
+     * @return  Number of the paths in the snapshot
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the snapshot into the file if it changed since it was last saved. The paths saved into the file by other
+     * snapshots are merged in. The file is written into a unique temporary file first and replaced atomically, so
+     * that a crash while saving does not corrupt the previous snapshot.
+     */
+    synchronized void save()  {
+        if (!dirty) {
+            return;
+        }
+
+        synchronized (SAVE_LOCK)    {
+            Path temporary = null;
+
+            try {
+                Map<String, Entry> merged = merge(readSaved());
+                temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    write(out, merged);
+                }
+
+                restrictPermissions(temporary);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                dirty = false;
+            } catch (IOException e) {
+                LOG.warn("Failed to save the snapshot file {}", file, e);
+                deleteQuietly(temporary);
+            }
+        }
+    }
+
+    private synchronized void scheduledSave()  {
+        saveScheduled = false;
+        save();
+    }
+
+    private void load() {
+        try {
+            entries.putAll(read(file));
+            LOG.info("Loaded {} paths from snapshot file {}", entries.size(), file);
+        } catch (NoSuchFileException e) {
+            LOG.info("Snapshot file {} does not exist yet", file);
+        } catch (IOException e) {
+            LOG.warn("Ignoring snapshot file {} which cannot be read", file, e);
+        }
+    }
+
+    private Map<String, Entry> readSaved()  {
+        try {
+            return read(file);
+        } catch (NoSuchFileException e) {
+            return Map.of();
+        } catch (IOException e) {
+            // The unreadable file is replaced with the paths of this snapshot
+            LOG.warn("Replacing snapshot file {} which cannot be read", file, e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Merges the paths from the snapshot file with the paths of this snapshot. When both contain the same path, the
+     * more recently resolved values are kept.
+     *
+     * @param saved     Paths read from the snapshot file
+     *
+     * @return  Merged paths
+     */
+    private Map<String, Entry> merge(Map<String, Entry> saved)  {
+        Map<String, Entry> merged = new HashMap<>(saved);
+
+        entries.forEach((path, entry) -> merged.merge(path, entry, (existing, current) -> existing.resolvedAtMs() > current.resolvedAtMs() ? existing : current));
+
+        return merged;
+    }
+
+    /**
+     * Reads the paths from the snapshot file. A file with unknown format does not contain any paths.
+     *
+     * @param file  Snapshot file
+     *
+     * @return  Paths from the snapshot file
+     *
+     * @throws IOException  When the file exists and cannot be read
+     */
+    private static Map<String, Entry> read(Path file) throws IOException  {
+        Map<String, Entry> saved = new HashMap<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                LOG.warn("Ignoring snapshot file {} with unknown format", file);
+                return saved;
+            }
+
+            int paths = in.readInt();
+            for (int i = 0; i < paths; i++) {
+                String path = readString(in);
+                String resourceVersion = readString(in);
+                long resolvedAtMs = in.readLong();
+                int keys = in.readInt();
+                Map<String, String> values = new HashMap<>(keys);
+
+                for (int j = 0; j < keys; j++) {
+                    values.put(readString(in), readString(in));
+                }
+
+                saved.put(path, new Entry(resourceVersion, resolvedAtMs, values, true));
+            }
+        }
+
+        return saved;
+    }
+
+    private static void write(DataOutputStream out, Map<String, Entry> entries) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(entries.size());
+
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue().resourceVersion());
+            out.writeLong(entry.getValue().resolvedAtMs());
+            out.writeInt(entry.getValue().values().size());
+
+            for (Map.Entry<String, String> value : entry.getValue().values().entrySet()) {
+                writeString(out, value.getKey());
+                writeString(out, value.getValue());
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path)    {
+        try {
+            if (path != null)   {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            LOG.debug("Failed to delete the temporary snapshot file {}", path, e);
+        }
+    }
+
+    private static void restrictPermissions(Path path) throws IOException   {
+        // The values might contain secrets => the file is readable only by its owner where possible
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null)  {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Values of a single path
+     *
+     * @param resourceVersion   Resource version of the resource from which the values were resolved
+     * @param resolvedAtMs      Time when the values were resolved in milliseconds
+     * @param values            Keys and their values
+     * @param loaded            Indicates that the values were loaded from the snapshot file and were not resolved
+     *                          from Kubernetes since then
+     */
+    private record Entry(String resourceVersion, long resolvedAtMs, Map<String, String> values, boolean loaded) { }
+}
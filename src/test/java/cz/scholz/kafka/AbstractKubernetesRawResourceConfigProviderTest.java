@@ -0,0 +1,514 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import com.jayway.jsonpath.JsonPath;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.utils.KubernetesSerialization;
+import org.apache.kafka.common.config.ConfigData;
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AbstractKubernetesRawResourceConfigProviderTest {
+    private static final String KAFKA = """
+            {
+              "apiVersion": "kafka.strimzi.io/v1beta2",
+              "kind": "Kafka",
+              "metadata": {
+                "name": "my-cluster",
+                "namespace": "myproject",
+                "annotations": {
+                  "strimzi.io/node-pools": "enabled"
+                }
+              },
+              "spec": {
+                "kafka": {
+                  "replicas": 3,
+                  "listeners": [
+                    {"name": "plain", "port": 9092, "type": "internal", "tls": false},
+                    {"name": "external", "port": 9094, "type": "loadbalancer", "tls": true}
+                  ]
+                }
+              },
+              "status": {
+                "listeners": [
+                  {"name": "plain", "bootstrapServers": "my-cluster-kafka-bootstrap.myproject.svc:9092"},
+                  {"name": "external", "bootstrapServers": "10.0.0.1:9094", "addresses": [{"host": "10.0.0.1", "port": 9094}],
+                    "certificates": {"ca": ["cert1", "cert2"], "empty": null}}
+                ]
+              }
+            }
+            """;
+
+    private static final GenericKubernetesResource RESOURCE = new KubernetesSerialization().unmarshal(KAFKA, GenericKubernetesResource.class);
+
+    @Test
+    public void testValues() {
+        ConfigData config = StaticResourceConfigProvider.create(Map.of()).get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster",
+                Set.of("$.metadata.name", "$.status.listeners[?(@.name=='external')].bootstrapServers", "$.metadata.annotations['strimzi.io/node-pools']"));
+
+        assertThat(config.data().size(), is(3));
+        assertThat(config.data().get("$.metadata.name"), is("my-cluster"));
+        assertThat(config.data().get("$.status.listeners[?(@.name=='external')].bootstrapServers"), is("10.0.0.1:9094"));
+        assertThat(config.data().get("$.metadata.annotations['strimzi.io/node-pools']"), is("enabled"));
+    }
+
+    @Test
+    public void testEmptyResult() {
+        ConfigData config = StaticResourceConfigProvider.create(Map.of()).get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster",
+                Set.of("$.status.listeners[?(@.name=='i-do-not-exist')].bootstrapServers"));
+
+        assertThat(config.data().size(), is(1));
+        assertThat(config.data().get("$.status.listeners[?(@.name=='i-do-not-exist')].bootstrapServers"), is(nullValue()));
+    }
+
+    @Test
+    public void testSameResultsAsSerializedResource() {
+        List<String> keys = List.of(
+                "$.metadata.name",
+                "$.spec.kafka.listeners[?(@.tls == true)].name",
+                "$.spec.kafka.listeners[*].port",
+                "$.spec.kafka.listeners[*].tls",
+                "$.spec.kafka.listeners[?(@.name=='external')]",
+                "$.status.listeners[?(@.name=='external')].addresses",
+                "$.status.listeners[?(@.name=='external')].certificates",
+                "$..bootstrapServers"
+        );
+
+        ConfigData config = StaticResourceConfigProvider.create(Map.of()).get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.copyOf(keys));
+
+        for (String key : keys) {
+            assertThat(key, config.data().get(key), is(legacyValue(key)));
+        }
+    }
+
+    @Test
+    public void testUnexpectedType() {
+        Exception e = assertThrows(ConfigException.class, () -> StaticResourceConfigProvider.create(Map.of()).get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.spec.kafka")));
+        assertThat(e.getMessage(), is("Unexpected type class java.util.LinkedHashMap"));
+    }
+
+    @Test
+    public void testWrongPath() {
+        Exception e = assertThrows(ConfigException.class, () -> StaticResourceConfigProvider.create(Map.of()).get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.spec.i-do-not-exist")));
+        assertThat(e.getMessage(), is("Failed to query the JSON Path $.spec.i-do-not-exist"));
+    }
+
+    @Test
+    public void testCachedResource() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("cache.ttl.ms", "60000"));
+
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.status.listeners[?(@.name=='external')].bootstrapServers"));
+        assertThat(provider.fetches, is(1));
+
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-other-cluster", Set.of("$.metadata.name"));
+        assertThat(provider.fetches, is(2));
+    }
+
+    @Test
+    public void testCacheDisabledByDefault() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of());
+
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        assertThat(provider.fetches, is(2));
+    }
+
+    @Test
+    public void testRetriedUnavailableApi() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("retries", "2", "retry.backoff.ms", "1"));
+        provider.failures = 2;
+        provider.failure = unavailable();
+
+        ConfigData config = provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        assertThat(config.data(), is(Map.of("$.metadata.name", "my-cluster")));
+        assertThat(provider.fetches, is(3));
+    }
+
+    @Test
+    public void testMissingResourceIsNotRetried() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("retries", "2", "retry.backoff.ms", "1"));
+        provider.failures = 1;
+        provider.failure = new ConfigException("Resource was not found!");
+
+        assertThrows(ConfigException.class, () -> provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")));
+        assertThat(provider.fetches, is(1));
+    }
+
+    @Test
+    public void testServeStaleOnError() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("serve.stale.on.error", "true"));
+
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+
+        // The cache is disabled => the resource is retrieved again, but the last version is used when it fails
+        provider.failures = 1;
+        provider.failure = unavailable();
+        ConfigData config = provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        assertThat(config.data(), is(Map.of("$.metadata.name", "my-cluster")));
+        assertThat(provider.fetches, is(2));
+
+        // Stale resources are not used for other errors
+        provider.failures = 1;
+        provider.failure = new ConfigException("Forbidden!");
+        assertThrows(ConfigException.class, () -> provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")));
+    }
+
+    @Test
+    public void testNoStaleResourcesByDefault() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of());
+
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+
+        provider.failures = 1;
+        provider.failure = unavailable();
+        assertThrows(ConfigException.class, () -> provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")));
+    }
+
+    @Test
+    public void testCachedInvalidPath() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("negative.cache.ttl.ms", "60000"));
+
+        Exception first = assertThrows(ConfigException.class, () -> provider.get("my-namespace/my-resource", Set.of("$.metadata.name")));
+        Exception second = assertThrows(ConfigException.class, () -> provider.get("my-namespace/my-resource", Set.of("$.metadata.name")));
+        assertThat(second, is(sameInstance(first)));
+        assertThat(provider.fetches, is(0));
+    }
+
+    @Test
+    public void testBatchLookup() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of());
+
+        Map<String, ConfigData> configs = provider.getAll(Map.of(
+                "kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"),
+                "kafka.strimzi.io/v1beta2/Kafka/myproject/my-other-cluster", Set.of("$.status.listeners[0].name")));
+
+        assertThat(configs.size(), is(2));
+        assertThat(configs.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster").data(), is(Map.of("$.metadata.name", "my-cluster")));
+        assertThat(configs.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-other-cluster").data(), is(Map.of("$.status.listeners[0].name", "plain")));
+        assertThat(provider.fetches, is(2));
+    }
+
+    @Test
+    public void testFailedBatchLookup() {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of());
+
+        Exception e = assertThrows(ConfigException.class, () -> provider.getAll(Map.of(
+                "kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"),
+                "my-namespace/my-resource", Set.of("$.metadata.name"))));
+        assertThat(e.getMessage(), startsWith("Invalid path my-namespace/my-resource."));
+    }
+
+    @Test
+    public void testRefreshAhead() throws InterruptedException, IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("cache.ttl.ms", "200", "refresh.ahead.enabled", "true"));
+
+        for (int i = 0; i < 10; i++) {
+            ConfigData data = provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+            assertThat(data.data(), is(Map.of("$.metadata.name", "my-cluster")));
+            Thread.sleep(50);
+        }
+
+        // The lookups were served from the cache which was refreshed in the background
+        assertThat(provider.fetches > 1, is(true));
+        provider.close();
+    }
+
+    @Test
+    public void testRefreshAheadDropsIdleResources() throws InterruptedException, IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("cache.ttl.ms", "100", "refresh.ahead.enabled", "true", "refresh.ahead.idle.timeout.ms", "10"));
+
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        Thread.sleep(300);
+
+        assertThat(provider.fetches, is(1));
+        provider.close();
+    }
+
+    @Test
+    public void testSnapshot(@TempDir Path directory) throws IOException {
+        Map<String, String> config = Map.of("snapshot.file", directory.resolve("snapshot").toString());
+
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(config);
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        provider.close();
+
+        // Restarted provider uses the snapshot even when the Kubernetes API is not available
+        StaticResourceConfigProvider restarted = StaticResourceConfigProvider.create(config);
+        restarted.failures = Integer.MAX_VALUE;
+        restarted.failure = unavailable();
+
+        ConfigData data = restarted.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        assertThat(data.data(), is(Map.of("$.metadata.name", "my-cluster")));
+
+        // Keys missing in the snapshot are retrieved from Kubernetes
+        assertThrows(ConfigException.class, () -> restarted.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.namespace")));
+        restarted.close();
+    }
+
+    @Test
+    public void testGetWithoutKeys() throws IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("cache.ttl.ms", "60000"));
+
+        Map<String, String> data = provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster").data();
+        assertThat(data.get("metadata.name"), is("my-cluster"));
+        assertThat(data.get("metadata.annotations.strimzi.io/node-pools"), is("enabled"));
+        assertThat(data.get("spec.kafka.replicas"), is("3"));
+        assertThat(data.get("status.listeners.1.addresses.0.host"), is("10.0.0.1"));
+        assertThat(data.containsKey("status.listeners.1.certificates.empty"), is(false));
+
+        // The flattened view is reused for the same version of the resource
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster").data(), is(sameInstance(data)));
+        assertThat(provider.fetches, is(1));
+        provider.close();
+    }
+
+    @Test
+    public void testGetWithoutKeysFromSubTree() throws IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("flatten.root", "$.metadata['annotations']"));
+
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster").data(), is(Map.of("strimzi.io/node-pools", "enabled")));
+        provider.close();
+
+        StaticResourceConfigProvider missing = StaticResourceConfigProvider.create(Map.of("flatten.root", "$.spec.missing"));
+        assertThat(missing.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster").data(), is(Map.of()));
+        missing.close();
+
+        assertThrows(ConfigException.class, () -> StaticResourceConfigProvider.create(Map.of("flatten.root", "$.status.listeners[*]")));
+    }
+
+    @Test
+    public void testValueCache() throws IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("cache.ttl.ms", "60000", "cache.mode", "values"));
+
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")).data(), is(Map.of("$.metadata.name", "my-cluster")));
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")).data(), is(Map.of("$.metadata.name", "my-cluster")));
+        assertThat(provider.fetches, is(1));
+
+        // The resource itself is not cached => other keys need to retrieve it again
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.namespace")).data(), is(Map.of("$.metadata.namespace", "myproject")));
+        assertThat(provider.fetches, is(2));
+
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name", "$.metadata.namespace")).data(), is(Map.of("$.metadata.name", "my-cluster", "$.metadata.namespace", "myproject")));
+        assertThat(provider.fetches, is(2));
+        provider.close();
+    }
+
+    @Test
+    public void testWatchEventUpdatesCache() throws IOException {
+        for (String cacheMode : List.of("resources", "values")) {
+            StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("cache.ttl.ms", "60000", "cache.mode", cacheMode));
+            String path = "kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster";
+            String key = "$.status.listeners[?(@.name=='external')].bootstrapServers";
+            List<String> changes = new ArrayList<>();
+
+            assertThat(provider.get(path, Set.of(key)).data(), is(Map.of(key, "10.0.0.1:9094")));
+
+            // The current version is retrieved again when subscribing
+            provider.subscribe(path, Set.of(key), (changedPath, data) -> changes.add(data.data().get(key)));
+            assertThat(provider.fetches, is(2));
+
+            // The lookup triggered by the change gets the new value without retrieving the resource again
+            provider.resource = new KubernetesSerialization().unmarshal(KAFKA.replace("10.0.0.1:9094", "10.0.0.2:9094"), GenericKubernetesResource.class);
+            provider.watcher.eventReceived(Watcher.Action.MODIFIED, provider.resource);
+            assertThat(changes, is(List.of("10.0.0.2:9094")));
+            assertThat(provider.get(path, Set.of(key)).data(), is(Map.of(key, "10.0.0.2:9094")));
+            assertThat(provider.fetches, is(2));
+
+            provider.close();
+        }
+    }
+
+    @Test
+    public void testWatchEventWithRemovedKey() throws IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("cache.ttl.ms", "60000", "cache.mode", "values"));
+        String path = "kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster";
+        String annotation = "$.metadata.annotations['strimzi.io/node-pools']";
+        String bootstrap = "$.status.listeners[?(@.name=='external')].bootstrapServers";
+        List<String> changes = new ArrayList<>();
+
+        assertThat(provider.get(path, Set.of(annotation, bootstrap)).data(), is(Map.of(annotation, "enabled", bootstrap, "10.0.0.1:9094")));
+        provider.subscribe(path, Set.of(annotation), (changedPath, data) -> changes.add(data.data().get(annotation)));
+
+        // The subscribed key is removed from the resource
+        provider.resource = new KubernetesSerialization().unmarshal(KAFKA.replace("\"strimzi.io/node-pools\": \"enabled\"", "").replace("\"10.0.0.1:9094\"", "\"10.0.0.2:9094\""), GenericKubernetesResource.class);
+        provider.watcher.eventReceived(Watcher.Action.MODIFIED, provider.resource);
+        assertThat(changes.size(), is(1));
+        assertThat(changes.get(0), is(nullValue()));
+
+        // The other keys are updated in the cache and the removed key is looked up again
+        assertThat(provider.get(path, Set.of(bootstrap)).data(), is(Map.of(bootstrap, "10.0.0.2:9094")));
+        assertThat(provider.fetches, is(2));
+        assertThrows(ConfigException.class, () -> provider.get(path, Set.of(annotation)));
+        assertThat(provider.fetches, is(3));
+
+        provider.close();
+    }
+
+    @Test
+    public void testWatchDeleteEventInvalidatesCache() throws IOException {
+        for (String cacheMode : List.of("resources", "values")) {
+            StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("cache.ttl.ms", "60000", "cache.mode", cacheMode));
+            String path = "kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster";
+
+            assertThat(provider.get(path, Set.of("$.metadata.name")).data(), is(Map.of("$.metadata.name", "my-cluster")));
+            provider.subscribe(path, Set.of("$.metadata.name"), (changedPath, data) -> { });
+
+            // The deleted resource is not served from the cache
+            provider.failure = new ResourceNotFoundException("Resource was not found!");
+            provider.failures = 1;
+            provider.watcher.eventReceived(Watcher.Action.DELETED, provider.resource);
+            assertThrows(ResourceNotFoundException.class, () -> provider.get(path, Set.of("$.metadata.name")));
+            assertThat(provider.fetches, is(3));
+
+            provider.close();
+        }
+    }
+
+    @Test
+    public void testForbiddenPrefetchListFallsBackToSingleResources() throws IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("prefetch.paths", "kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster,kafka.strimzi.io/v1beta2/Kafka/myproject/my-other-cluster",
+                "prefetch.paths.list", "true"));
+        assertThat(provider.fetches, is(2));
+
+        // Both resources were prefetched
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name"));
+        provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-other-cluster", Set.of("$.metadata.name"));
+        assertThat(provider.fetches, is(2));
+
+        provider.close();
+    }
+
+    @Test
+    public void testFailedConfigurationReleasesClient() throws IOException {
+        int clientsBefore = KubernetesClientRegistry.SHARED.size();
+        StaticResourceConfigProvider provider = new StaticResourceConfigProvider();
+
+        assertThrows(InvalidPathException.class, () -> provider.configure(Map.of("snapshot.file", "invalid\0path")));
+        assertThat(KubernetesClientRegistry.SHARED.size(), is(clientsBefore));
+
+        // Closing the provider after the failed configuration does not fail
+        provider.close();
+    }
+
+    @Test
+    public void testFailedInformerFallsBackToApi() throws IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("informers.enabled", "true", "retry.backoff.ms", "0", "retry.backoff.max.ms", "0"));
+
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")).data(), is(Map.of("$.metadata.name", "my-cluster")));
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")).data(), is(Map.of("$.metadata.name", "my-cluster")));
+
+        // The informer is not started again after the access was forbidden
+        assertThat(provider.informerStarts, is(1));
+        assertThat(provider.fetches, is(2));
+        provider.close();
+    }
+
+    @Test
+    public void testFailedInformerStartedAgainAfterBackoff() throws IOException {
+        StaticResourceConfigProvider provider = StaticResourceConfigProvider.create(Map.of("informers.enabled", "true", "retry.backoff.ms", "0", "retry.backoff.max.ms", "0"));
+        provider.informerFailure = unavailable();
+
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")).data(), is(Map.of("$.metadata.name", "my-cluster")));
+        assertThat(provider.get("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", Set.of("$.metadata.name")).data(), is(Map.of("$.metadata.name", "my-cluster")));
+
+        // The informer is started again after the backoff
+        assertThat(provider.informerStarts, is(2));
+        assertThat(provider.fetches, is(2));
+        provider.close();
+    }
+
+    private static ConfigException unavailable()  {
+        return ApiFetcher.withCause(new ConfigException("Failed to retrieve resource"), new KubernetesClientException("Service Unavailable", 503, null));
+    }
+
+    /**
+     * Evaluates the JSON Path the way it was evaluated before the queries were run directly against the resource tree
+     * (serialize the resource to JSON and parse it again).
+     */
+    private static String legacyValue(String key) {
+        Object result = JsonPath.parse(new KubernetesSerialization().asJson(RESOURCE)).read(key);
+
+        if (result instanceof List<?> listResult) {
+            return listResult.isEmpty() ? null : listResult.get(0).toString();
+        } else {
+            return (String) result;
+        }
+    }
+
+    /**
+     * Config provider which returns the same resource for every path
+     */
+    static class StaticResourceConfigProvider extends AbstractKubernetesRawResourceConfigProvider<NamespacedResourceIdentifier> {
+        int fetches = 0;
+        int failures = 0;
+        int informerStarts = 0;
+        RuntimeException failure;
+        RuntimeException informerFailure = ApiFetcher.withCause(new ConfigException("Forbidden"), new KubernetesClientException("Forbidden", 403, null));
+        GenericKubernetesResource resource = RESOURCE;
+        Watcher<GenericKubernetesResource> watcher;
+
+        static StaticResourceConfigProvider create(Map<String, ?> config) {
+            StaticResourceConfigProvider provider = new StaticResourceConfigProvider();
+            provider.configure(config);
+            return provider;
+        }
+
+        @Override
+        protected NamespacedResourceIdentifier parsePath(String path) {
+            return NamespacedResourceIdentifier.fromPath(path);
+        }
+
+        @Override
+        protected synchronized GenericKubernetesResource getResource(NamespacedResourceIdentifier ri) {
+            fetches++;
+
+            if (failures > 0)   {
+                failures--;
+                throw failure;
+            }
+
+            return resource;
+        }
+
+        @Override
+        protected List<GenericKubernetesResource> listResources(ResourceKind kind, String labelSelector) {
+            throw ApiFetcher.withCause(new ConfigException("Forbidden"), new KubernetesClientException("Forbidden", 403, null));
+        }
+
+        @Override
+        protected Watch watchResource(NamespacedResourceIdentifier ri, Watcher<GenericKubernetesResource> watcher) {
+            this.watcher = watcher;
+            return () -> { };
+        }
+
+        @Override
+        protected synchronized SharedIndexInformer<GenericKubernetesResource> informResources(NamespacedResourceIdentifier ri) {
+            informerStarts++;
+            throw informerFailure;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ApiFetcherTest {
+    private static final NamespacedResourceIdentifier RI = NamespacedResourceIdentifier.fromPath("v1/ConfigMap/myproject/my-config-map");
+    private static final GenericKubernetesResource RESOURCE = Serialization.unmarshal("""
+            {"apiVersion": "v1", "kind": "ConfigMap", "metadata": {"name": "my-config-map", "namespace": "myproject"}}
+            """, GenericKubernetesResource.class);
+
+    private MockTime time;
+    private ProviderMetrics metrics;
+
+    @BeforeEach
+    public void beforeEach() {
+        time = new MockTime();
+        metrics = new ProviderMetrics("ApiFetcherTest", time);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        metrics.close();
+    }
+
+    @Test
+    public void testRetriesWithBackoff() {
+        AtomicInteger attempts = new AtomicInteger(0);
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of("retries", "3", "retry.backoff.ms", "100", "retry.backoff.max.ms", "1000"), ri -> {
+            if (attempts.incrementAndGet() < 4) {
+                throw error(503);
+            }
+
+            return RESOURCE;
+        });
+
+        long start = time.milliseconds();
+        assertThat(fetcher.fetch(RI), is(RESOURCE));
+        assertThat(attempts.get(), is(4));
+
+        // 100 + 200 + 400 ms with up to 20% jitter
+        assertThat(time.milliseconds() - start, greaterThanOrEqualTo(560L));
+        assertThat(time.milliseconds() - start, lessThan(841L));
+    }
+
+    @Test
+    public void testRetriesExhausted() {
+        AtomicInteger attempts = new AtomicInteger(0);
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of("retries", "2"), ri -> {
+            attempts.incrementAndGet();
+            throw error(429);
+        });
+
+        assertThrows(ConfigException.class, () -> fetcher.fetch(RI));
+        assertThat(attempts.get(), is(3));
+    }
+
+    @Test
+    public void testNoRetriesByDefault() {
+        AtomicInteger attempts = new AtomicInteger(0);
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of(), ri -> {
+            attempts.incrementAndGet();
+            throw error(500);
+        });
+
+        assertThrows(ConfigException.class, () -> fetcher.fetch(RI));
+        assertThat(attempts.get(), is(1));
+    }
+
+    @Test
+    public void testClientErrorsAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger(0);
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of("retries", "2"), ri -> {
+            attempts.incrementAndGet();
+            throw error(403);
+        });
+
+        assertThrows(ConfigException.class, () -> fetcher.fetch(RI));
+        assertThat(attempts.get(), is(1));
+    }
+
+    @Test
+    public void testRetriesStopAtDeadline() {
+        AtomicInteger attempts = new AtomicInteger(0);
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of("retries", "10", "retry.backoff.ms", "400", "retry.backoff.max.ms", "400", "lookup.timeout.ms", "1000"), ri -> {
+            attempts.incrementAndGet();
+            throw error(503);
+        });
+
+        assertThrows(ConfigException.class, () -> fetcher.fetch(RI));
+        assertThat(attempts.get(), is(3));
+    }
+
+    @Test
+    public void testTimeout() {
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of("lookup.timeout.ms", "100"), ri -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return RESOURCE;
+        });
+
+        ConfigException e = assertThrows(ConfigException.class, () -> fetcher.fetch(RI));
+        assertThat(e.getMessage(), is("Timed out while retrieving resource null/v1/ConfigMap with name my-config-map after 100 ms!"));
+        assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        assertThat(ApiFetcher.isUnavailable(e), is(true));
+    }
+
+    @Test
+    public void testTimedOutRequestIsCancelled() throws InterruptedException {
+        AtomicInteger cancelled = new AtomicInteger(0);
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of("lookup.timeout.ms", "100"), ri -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                cancelled.incrementAndGet();
+                throw new KubernetesClientException("Interrupted", e);
+            }
+
+            return RESOURCE;
+        });
+
+        assertThrows(ConfigException.class, () -> fetcher.fetch(RI));
+
+        // The request is interrupted right after the deadline instead of running for 10 seconds
+        for (int i = 0; i < 50 && cancelled.get() == 0; i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(cancelled.get(), is(1));
+    }
+
+    @Test
+    public void testTimedOutRequestKeepsInFlightSlot() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger(0);
+        AtomicInteger completed = new AtomicInteger(0);
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of("lookup.timeout.ms", "100"), ApiRateLimiter.create(0.0, 1), ri -> {
+            if (attempts.incrementAndGet() == 1) {
+                // Ignores the cancellation like a request which is not interruptible
+                long end = System.currentTimeMillis() + 500;
+
+                while (System.currentTimeMillis() < end) {
+                    try {
+                        Thread.sleep(end - System.currentTimeMillis());
+                    } catch (InterruptedException e) {
+                        // Keep running
+                    }
+                }
+            }
+
+            completed.incrementAndGet();
+            return RESOURCE;
+        });
+
+        assertThrows(ConfigException.class, () -> fetcher.fetch(RI));
+
+        // The first request still runs in the background => the next request has to wait for its slot
+        ConfigException e = assertThrows(ConfigException.class, () -> fetcher.fetch(RI));
+        assertThat(e.getMessage(), is("Timed out while waiting to retrieve resource null/v1/ConfigMap with name my-config-map!"));
+        assertThat(attempts.get(), is(1));
+
+        // The slot is released once the first request completes
+        for (int i = 0; i < 50 && completed.get() == 0; i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(fetcher.fetch(RI), is(RESOURCE));
+    }
+
+    @Test
+    public void testListDescription() {
+        ApiFetcher<NamespacedResourceIdentifier> fetcher = fetcher(Map.of("lookup.timeout.ms", "100"), ri -> RESOURCE);
+
+        ConfigException e = assertThrows(ConfigException.class, () -> fetcher.execute(ResourceKind.fromString("v1/ConfigMap", "myproject"), () -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+
+            return RESOURCE;
+        }));
+        assertThat(e.getMessage(), is("Timed out while retrieving resource null/v1/ConfigMap in namespace myproject after 100 ms!"));
+    }
+
+    @Test
+    public void testIsUnavailable() {
+        assertThat(ApiFetcher.isUnavailable(error(0)), is(true));
+        assertThat(ApiFetcher.isUnavailable(error(429)), is(true));
+        assertThat(ApiFetcher.isUnavailable(error(504)), is(true));
+        assertThat(ApiFetcher.isUnavailable(error(401)), is(false));
+        assertThat(ApiFetcher.isUnavailable(new ConfigException("Not found")), is(false));
+    }
+
+    private ApiFetcher<NamespacedResourceIdentifier> fetcher(Map<String, String> config, Function<NamespacedResourceIdentifier, GenericKubernetesResource> getter) {
+        return fetcher(config, ApiRateLimiter.create(0.0, 0), getter);
+    }
+
+    private ApiFetcher<NamespacedResourceIdentifier> fetcher(Map<String, String> config, ApiRateLimiter rateLimiter, Function<NamespacedResourceIdentifier, GenericKubernetesResource> getter) {
+        return new ApiFetcher<>(new KubernetesRawResourceConfigProviderConfig(config), getter, metrics, time, rateLimiter);
+    }
+
+    private static ConfigException error(int code) {
+        return ApiFetcher.withCause(new ConfigException("Failed to retrieve resource"), new KubernetesClientException("Error", code, null));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ApiRateLimiterTest {
+    private static final NamespacedResourceIdentifier RESOURCE = NamespacedResourceIdentifier.fromPath("v1/ConfigMap/my-namespace/my-config-map");
+
+    @Test
+    public void testRateLimit() {
+        MockTime time = new MockTime();
+        ApiRateLimiter limiter = new ApiRateLimiter(2.0, 0, time);
+        long startMs = time.milliseconds();
+
+        // Burst of up to one second worth of requests
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        assertThat(time.milliseconds() - startMs, is(0L));
+
+        // The following requests are spread over time
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        assertThat(time.milliseconds() - startMs, is(500L));
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        assertThat(time.milliseconds() - startMs, is(1_000L));
+
+        // The bucket is refilled over time
+        time.sleep(1_000L);
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        assertThat(time.milliseconds() - startMs, is(2_000L));
+    }
+
+    @Test
+    public void testRateLimitDeadline() {
+        MockTime time = new MockTime();
+        ApiRateLimiter limiter = new ApiRateLimiter(1.0, 0, time);
+
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+
+        ConfigException e = assertThrows(ConfigException.class, () -> limiter.acquire(RESOURCE, time.milliseconds() + 100L));
+        assertThat(ApiFetcher.isUnavailable(e), is(true));
+
+        // The token of the timed out request is returned
+        long startMs = time.milliseconds();
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        assertThat(time.milliseconds() - startMs, is(1_000L));
+    }
+
+    @Test
+    public void testMaxInFlight() {
+        MockTime time = new MockTime();
+        ApiRateLimiter limiter = new ApiRateLimiter(0.0, 1, time);
+
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        assertThrows(ConfigException.class, () -> limiter.acquire(RESOURCE, time.milliseconds() + 10L));
+
+        limiter.release();
+        limiter.acquire(RESOURCE, time.milliseconds() + 10L);
+        limiter.release();
+    }
+
+    @Test
+    public void testMaxInFlightDeadlineReturnsToken() {
+        MockTime time = new MockTime();
+        ApiRateLimiter limiter = new ApiRateLimiter(2.0, 1, time);
+
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+
+        // The request gets its token first and times out while waiting for the slot
+        assertThrows(ConfigException.class, () -> limiter.acquire(RESOURCE, time.milliseconds() + 10L));
+        limiter.release();
+
+        // The token of the timed out request is returned
+        long startMs = time.milliseconds();
+        limiter.acquire(RESOURCE, Long.MAX_VALUE);
+        assertThat(time.milliseconds() - startMs, is(0L));
+        limiter.release();
+    }
+
+    @Test
+    public void testSharedLimiter() {
+        // A single limiter is used for all limits
+        assertThat(ApiRateLimiter.shared(10.0, 5), is(sameInstance(ApiRateLimiter.shared(10.0, 5))));
+        assertThat(ApiRateLimiter.shared(10.0, 5), is(sameInstance(ApiRateLimiter.shared(10.0, 6))));
+        assertThat(ApiRateLimiter.shared(0.0, 0), is(sameInstance(ApiRateLimiter.shared(10.0, 5))));
+
+        assertThat(ApiRateLimiter.create(10.0, 5), is(not(sameInstance(ApiRateLimiter.create(10.0, 5)))));
+        assertThat(ApiRateLimiter.create(0.0, 0).enabled(), is(false));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DefinitePathTest {
+    private static final String KAFKA = """
+            {
+              "apiVersion": "kafka.strimzi.io/v1beta2",
+              "kind": "Kafka",
+              "metadata": {
+                "name": "my-cluster",
+                "namespace": "myproject",
+                "resourceVersion": "1234",
+                "annotations": {
+                  "strimzi.io/node-pools": "enabled"
+                }
+              },
+              "spec": {
+                "kafka": {
+                  "replicas": 3,
+                  "listeners": [
+                    {"name": "plain", "port": 9092, "type": "internal", "tls": false},
+                    {"name": "external", "port": 9094, "type": "loadbalancer", "tls": true}
+                  ]
+                }
+              },
+              "status": {
+                "listeners": [
+                  {"name": "plain", "bootstrapServers": "my-cluster-kafka-bootstrap.myproject.svc:9092"},
+                  {"name": "external", "bootstrapServers": "10.0.0.1:9094", "addresses": [{"host": "10.0.0.1", "port": 9094}],
+                    "certificates": {"ca": ["cert1", "cert2"], "empty": []}}
+                ],
+                "conditions": [{"type": "Ready", "status": "True"}]
+              }
+            }
+            """;
+
+    private static final Set<String> DIRECT_KEYS = Set.of(
+            "$.metadata.name",
+            "$['metadata']['name']",
+            "$.metadata[\"namespace\"]",
+            "$.metadata.annotations['strimzi.io/node-pools']",
+            "$.status.conditions[0].type",
+            "$.status.listeners[1].bootstrapServers",
+            "$.status.listeners[1].addresses",
+            "$.status.listeners[1].certificates.ca",
+            "$.status.listeners[1].certificates.empty"
+    );
+
+    @Test
+    public void testSameValuesAsJsonPath() {
+        ResourceDocument document = document();
+
+        for (String key : DIRECT_KEYS) {
+            Object direct = ParsedKey.parse(key).evaluateDirectly(document.tree());
+
+            assertThat(key, direct, not(sameInstance(DefinitePath.UNRESOLVED)));
+            Object expected = document.context().read(key);
+            assertThat(key, direct, is(expected));
+        }
+
+        assertThat(ValueExtractor.extract(document, "$.status.listeners[1].addresses"), is("{host=10.0.0.1, port=9094}"));
+        assertThat(ValueExtractor.extract(document, "$.status.listeners[1].certificates.empty"), is(nullValue()));
+    }
+
+    @Test
+    public void testUnsupportedKeys() {
+        assertThat(DefinitePath.parse("$"), is(nullValue()));
+        assertThat(DefinitePath.parse("$..name"), is(nullValue()));
+        assertThat(DefinitePath.parse("$.status.listeners[*].bootstrapServers"), is(nullValue()));
+        assertThat(DefinitePath.parse("$.status.listeners[-1].bootstrapServers"), is(nullValue()));
+        assertThat(DefinitePath.parse("$.status.listeners[0:1].bootstrapServers"), is(nullValue()));
+        assertThat(DefinitePath.parse("$.status.listeners[?(@.name=='external')].bootstrapServers"), is(nullValue()));
+        assertThat(DefinitePath.parse("$.metadata['name','namespace']"), is(nullValue()));
+        assertThat(DefinitePath.parse("$.metadata['na\\'me']"), is(nullValue()));
+        assertThat(DefinitePath.parse("$.status.listeners.length()"), is(nullValue()));
+        assertThat(DefinitePath.parse("$.metadata.annotations['strimzi.io/node-pools']"), is(notNullValue()));
+    }
+
+    @Test
+    public void testUnresolvedValuesLeftToJsonPath() {
+        ResourceDocument document = document();
+
+        // Missing values, non-string scalars and objects keep the errors raised by JSON Path
+        assertThat(ParsedKey.parse("$.metadata.missing").evaluateDirectly(document.tree()), is(sameInstance(DefinitePath.UNRESOLVED)));
+        assertThat(ParsedKey.parse("$.status.listeners[5].name").evaluateDirectly(document.tree()), is(sameInstance(DefinitePath.UNRESOLVED)));
+        assertThat(ParsedKey.parse("$.status.listeners.name").evaluateDirectly(document.tree()), is(sameInstance(DefinitePath.UNRESOLVED)));
+        assertThat(ParsedKey.parse("$.metadata[0]").evaluateDirectly(document.tree()), is(sameInstance(DefinitePath.UNRESOLVED)));
+        assertThat(ParsedKey.parse("$.spec.kafka.replicas").evaluateDirectly(document.tree()), is(3));
+
+        assertThrows(RuntimeException.class, () -> ValueExtractor.extract(document, "$.metadata.missing"));
+    }
+
+    private static ResourceDocument document()  {
+        return ResourceDocument.fromResource(Serialization.unmarshal(KAFKA, GenericKubernetesResource.class));
+    }
+}
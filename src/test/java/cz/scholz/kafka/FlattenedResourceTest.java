@@ -0,0 +1,58 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FlattenedResourceTest {
+    @Test
+    public void testRootChain() {
+        assertThat(FlattenedResource.rootChain("$"), is(List.of()));
+        assertThat(FlattenedResource.rootChain("$.spec.config"), is(List.of("spec", "config")));
+        assertThat(FlattenedResource.rootChain("$.metadata['annotations']"), is(List.of("metadata", "annotations")));
+
+        assertThrows(ConfigException.class, () -> FlattenedResource.rootChain("spec.config"));
+        assertThrows(ConfigException.class, () -> FlattenedResource.rootChain("$.spec.hosts[0]"));
+        assertThrows(ConfigException.class, () -> FlattenedResource.rootChain("$..config"));
+    }
+
+    @Test
+    public void testFlattening() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("retention.ms", 1000);
+        config.put("cleanup.policy", "compact");
+        config.put("unset", null);
+        config.put("empty", Map.of());
+
+        ResourceDocument document = new ResourceDocument(Map.of("spec", Map.of("config", config, "hosts", List.of("a", "b"))), "1");
+
+        assertThat(FlattenedResource.of(document, List.of()), is(Map.of("spec.config.retention.ms", "1000", "spec.config.cleanup.policy", "compact", "spec.hosts.0", "a", "spec.hosts.1", "b")));
+        assertThat(FlattenedResource.of(document, List.of("spec", "config")), is(Map.of("retention.ms", "1000", "cleanup.policy", "compact")));
+        assertThat(FlattenedResource.of(document, List.of("spec", "hosts", "missing")), is(Map.of()));
+        assertThat(FlattenedResource.of(document, List.of("spec", "config", "retention.ms")), is(Map.of()));
+    }
+
+    @Test
+    public void testMemoizedPerDocument() {
+        Map<String, Object> tree = Map.of("spec", Map.of("replicas", 3));
+        ResourceDocument document = new ResourceDocument(tree, "1");
+
+        Map<String, String> flattened = FlattenedResource.of(document, List.of("spec"));
+        assertThat(FlattenedResource.of(document, List.of("spec")), is(sameInstance(flattened)));
+        assertThat(FlattenedResource.of(new ResourceDocument(tree, "2"), List.of("spec")), is(not(sameInstance(flattened))));
+        assertThrows(UnsupportedOperationException.class, () -> flattened.put("replicas", "5"));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class IndexedFilterTest {
+    private static final String KAFKA = """
+            {
+              "apiVersion": "kafka.strimzi.io/v1beta2",
+              "kind": "Kafka",
+              "metadata": {
+                "name": "my-cluster",
+                "namespace": "myproject",
+                "resourceVersion": "1234"
+              },
+              "spec": {
+                "kafka": {
+                  "listeners": [
+                    {"name": "plain", "port": 9092, "type": "internal", "tls": false},
+                    {"name": "external", "port": 9094, "type": "loadbalancer", "tls": true}
+                  ]
+                }
+              },
+              "status": {
+                "listeners": [
+                  {"name": "plain", "bootstrapServers": "my-cluster-kafka-bootstrap.myproject.svc:9092"},
+                  {"type": "unnamed", "bootstrapServers": "unnamed:9092"},
+                  {"name": "external", "bootstrapServers": "10.0.0.1:9094", "addresses": [{"host": "10.0.0.1", "port": 9094}],
+                    "certificates": {"ca": ["cert1", "cert2"], "empty": null}},
+                  {"name": "external", "bootstrapServers": "10.0.0.2:9094"}
+                ]
+              }
+            }
+            """;
+
+    private static final Set<String> INDEXED_KEYS = Set.of(
+            "$.status.listeners[?(@.name=='external')].bootstrapServers",
+            "$.status.listeners[?(@.name=='external')].addresses",
+            "$.status.listeners[?(@.name=='external')].certificates",
+            "$.status.listeners[?(@.name=='external')].certificates.ca",
+            "$.status.listeners[?(@.name=='external')]['bootstrapServers']",
+            "$.status.listeners[?(@.name == \"external\")].bootstrapServers",
+            "$.status.listeners[?(@.name=='plain')].bootstrapServers",
+            "$.status.listeners[?(@.name=='missing')].bootstrapServers",
+            "$.status.listeners[?(@.name=='external')].missing",
+            "$.status.listeners[?(@.name=='external')].missing.deeper",
+            "$.spec.kafka.listeners[?(@.name=='external')].port",
+            "$.spec.kafka.listeners[?(@.type=='internal')].tls"
+    );
+
+    @Test
+    public void testSameValuesAsJsonPath() {
+        ResourceDocument document = document();
+
+        for (String key : INDEXED_KEYS) {
+            Object indexed = ParsedKey.parse(key).evaluateIndexed(document);
+            List<?> expected = document.context().read(key);
+
+            assertThat(key, indexed, not(sameInstance(IndexedFilter.NOT_INDEXED)));
+            assertThat(key, indexed, is(expected.isEmpty() ? null : expected.get(0)));
+        }
+    }
+
+    @Test
+    public void testUnsupportedKeys() {
+        assertThat(IndexedFilter.parse("$.metadata.name"), is(nullValue()));
+        assertThat(IndexedFilter.parse("$.status.listeners[0].bootstrapServers"), is(nullValue()));
+        assertThat(IndexedFilter.parse("$..listeners[?(@.name=='external')].bootstrapServers"), is(nullValue()));
+        assertThat(IndexedFilter.parse("$.status.listeners[?(@.name=='external' && @.type=='loadbalancer')].bootstrapServers"), is(nullValue()));
+        assertThat(IndexedFilter.parse("$.status.listeners[?(@.name!='external')].bootstrapServers"), is(nullValue()));
+        assertThat(IndexedFilter.parse("$.status.listeners[?(@.name=='ext\\'ernal')].bootstrapServers"), is(nullValue()));
+        assertThat(IndexedFilter.parse("$.status.listeners[?(@.name=='external')].addresses[0].host"), is(nullValue()));
+        assertThat(IndexedFilter.parse("$.status.listeners[?(@.name=='external')].bootstrapServers"), is(notNullValue()));
+    }
+
+    @Test
+    public void testNotIndexedDocuments() {
+        ResourceDocument document = document();
+
+        // Non-string field values and arrays with other items than objects are left to JSON Path
+        assertThat(ParsedKey.parse("$.spec.kafka.listeners[?(@.port=='9094')].name").evaluateIndexed(document), is(sameInstance(IndexedFilter.NOT_INDEXED)));
+        assertThat(ParsedKey.parse("$.status.listeners[?(@.name=='external')].certificates.ca[?(@.name=='cert1')].x").evaluateIndexed(document), is(sameInstance(IndexedFilter.NOT_INDEXED)));
+        assertThat(ParsedKey.parse("$.metadata.name[?(@.name=='external')].x").evaluateIndexed(document), is(sameInstance(IndexedFilter.NOT_INDEXED)));
+        assertThat(ParsedKey.parse("$.status.listeners[?(@.name=='external')].certificates.empty").evaluateIndexed(document), is(sameInstance(IndexedFilter.NOT_INDEXED)));
+    }
+
+    @Test
+    public void testSameValuesThroughValueExtractor() {
+        ResourceDocument document = document();
+
+        assertThat(ValueExtractor.extract(document, "$.status.listeners[?(@.name=='external')].bootstrapServers"), is("10.0.0.1:9094"));
+        assertThat(ValueExtractor.extract(document, "$.status.listeners[?(@.name=='external')].addresses"), is("[{\"host\":\"10.0.0.1\",\"port\":9094}]"));
+        assertThat(ValueExtractor.extract(document, "$.status.listeners[?(@.name=='missing')].bootstrapServers"), is(nullValue()));
+    }
+
+    private static ResourceDocument document()  {
+        return ResourceDocument.fromResource(Serialization.unmarshal(KAFKA, GenericKubernetesResource.class));
+    }
+}
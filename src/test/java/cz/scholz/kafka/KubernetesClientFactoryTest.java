@@ -0,0 +1,75 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.jdkhttp.JdkHttpClientFactory;
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KubernetesClientFactoryTest {
+    @Test
+    public void testOnlyExplicitOptionsInClientConfig()  {
+        assertThat(new KubernetesRawResourceConfigProviderConfig(Map.of()).clientConfig(), is(Map.of()));
+        assertThat(new KubernetesRawResourceConfigProviderConfig(Map.of("cache.ttl.ms", "1000")).clientConfig(), is(Map.of()));
+
+        Map<String, Object> clientConfig = new KubernetesRawResourceConfigProviderConfig(Map.of(
+                "kubernetes.http.client", "jdk",
+                "kubernetes.http.http2.enabled", "false",
+                "kubernetes.http.request.timeout.ms", "2500"
+        )).clientConfig();
+
+        assertThat(clientConfig, is(Map.of("kubernetes.http.client", "jdk", "kubernetes.http.http2.enabled", false, "kubernetes.http.request.timeout.ms", 2500)));
+    }
+
+    @Test
+    public void testInvalidHttpClient()  {
+        assertThrows(ConfigException.class, () -> new KubernetesRawResourceConfigProviderConfig(Map.of("kubernetes.http.client", "okhttp")));
+    }
+
+    @Test
+    public void testOptionsApplied()  {
+        Config config = KubernetesClientFactory.config(Map.of(
+                "kubernetes.http.http2.enabled", false,
+                "kubernetes.http.max.concurrent.requests.per.host", 20,
+                "kubernetes.http.connect.timeout.ms", 1000,
+                "kubernetes.http.request.timeout.ms", 2000
+        ));
+
+        assertThat(config.isHttp2Disable(), is(true));
+        assertThat(config.getMaxConcurrentRequestsPerHost(), is(20));
+        assertThat(config.getConnectionTimeout(), is(1000));
+        assertThat(config.getRequestTimeout(), is(2000));
+    }
+
+    @Test
+    public void testUnsetOptionsKeepEnvironmentConfiguration()  {
+        Config environment = Config.autoConfigure(null);
+        Config config = KubernetesClientFactory.config(Map.of("kubernetes.http.connect.timeout.ms", 1000));
+
+        assertThat(config.getMasterUrl(), is(environment.getMasterUrl()));
+        assertThat(config.isHttp2Disable(), is(environment.isHttp2Disable()));
+        assertThat(config.getRequestTimeout(), is(environment.getRequestTimeout()));
+    }
+
+    @Test
+    public void testHttpClientFactory()  {
+        assertThat(KubernetesClientFactory.httpClientFactory("jdk"), is(instanceOf(JdkHttpClientFactory.class)));
+        // The Vert.x client is not on the test classpath
+        assertThrows(ConfigException.class, () -> KubernetesClientFactory.httpClientFactory("vertx"));
+
+        try (KubernetesClient client = KubernetesClientFactory.create(Map.of("kubernetes.http.client", "jdk", "kubernetes.http.request.timeout.ms", 2000))) {
+            assertThat(client.getConfiguration().getRequestTimeout(), is(2000));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class KubernetesClientRegistryTest {
+    @Test
+    public void testSharedClient()  {
+        List<KubernetesClient> created = new ArrayList<>();
+        KubernetesClientRegistry registry = new KubernetesClientRegistry(config -> {
+            KubernetesClient client = new KubernetesClientBuilder().build();
+            created.add(client);
+            return client;
+        });
+
+        KubernetesClient first = registry.acquire(Map.of());
+        KubernetesClient second = registry.acquire(Map.of());
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(created.size(), is(1));
+        assertThat(registry.size(), is(1));
+
+        registry.release(Map.of());
+        assertThat(registry.size(), is(1));
+
+        registry.release(Map.of());
+        assertThat(registry.size(), is(0));
+
+        // New client is created after the last one was closed
+        KubernetesClient third = registry.acquire(Map.of());
+        assertThat(third, is(not(sameInstance(first))));
+        assertThat(created.size(), is(2));
+
+        registry.release(Map.of());
+    }
+
+    @Test
+    public void testDifferentConfigurations()  {
+        KubernetesClientRegistry registry = new KubernetesClientRegistry(config -> new KubernetesClientBuilder().build());
+
+        KubernetesClient first = registry.acquire(Map.of());
+        KubernetesClient second = registry.acquire(Map.of("http.version", "1.1"));
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(registry.size(), is(2));
+
+        registry.release(Map.of());
+        registry.release(Map.of("http.version", "1.1"));
+        assertThat(registry.size(), is(0));
+    }
+}
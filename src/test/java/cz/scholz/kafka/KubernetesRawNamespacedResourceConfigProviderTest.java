@@ -0,0 +1,346 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesCrudDispatcher;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.mockwebserver.Context;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.apache.kafka.common.config.ConfigData;
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class KubernetesRawNamespacedResourceConfigProviderTest {
+    private static final String NAMESPACE = "my-namespace";
+
+    private KubernetesMockServer server;
+    private KubernetesClient client;
+
+    @BeforeEach
+    public void beforeEach() {
+        server = new KubernetesMockServer(new Context(), new MockWebServer(), new HashMap<>(), new KubernetesCrudDispatcher(), false);
+        server.init();
+        client = server.createClient();
+
+        createConfigMap("my-config-map", "value1");
+        createConfigMap("my-other-config-map", "value2");
+    }
+
+    @AfterEach
+    public void afterEach() {
+        client.close();
+        server.destroy();
+    }
+
+    @Test
+    public void testResource() throws IOException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of());
+        int requestsBefore = server.getRequestCount();
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        assertThat(server.getRequestCount() - requestsBefore, is(2));
+
+        provider.close();
+    }
+
+    @Test
+    public void testCachedResource() throws IOException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("cache.ttl.ms", "60000"));
+        int requestsBefore = server.getRequestCount();
+
+        provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.metadata.name"));
+
+        assertThat(server.getRequestCount() - requestsBefore, is(1));
+
+        provider.close();
+    }
+
+    @Test
+    public void testMissingResource() throws IOException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of());
+
+        Exception e = assertThrows(ConfigException.class, () -> provider.get("v1/ConfigMap/" + NAMESPACE + "/i-do-not-exist", Set.of("$.data.key")));
+        assertThat(e.getMessage(), is("Resource null/v1/ConfigMap with name i-do-not-exist was not found in namespace " + NAMESPACE + "!"));
+
+        provider.close();
+    }
+
+    @Test
+    public void testCachedMissingResource() throws IOException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("negative.cache.ttl.ms", "60000"));
+        int requestsBefore = server.getRequestCount();
+
+        for (int i = 0; i < 3; i++) {
+            Exception e = assertThrows(ConfigException.class, () -> provider.get("v1/ConfigMap/" + NAMESPACE + "/i-do-not-exist", Set.of("$.data.key")));
+            assertThat(e.getMessage(), is("Resource null/v1/ConfigMap with name i-do-not-exist was not found in namespace " + NAMESPACE + "!"));
+        }
+
+        assertThat(server.getRequestCount() - requestsBefore, is(1));
+
+        provider.close();
+    }
+
+    @Test
+    public void testInformer() throws IOException, InterruptedException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("informers.enabled", "true"));
+        int requestsBefore = server.getRequestCount();
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-other-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value2")));
+
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        // A single LIST and WATCH request for all lookups
+        List<String> requests = requests(requestsBefore);
+        assertThat(requests.size(), is(2));
+        assertThat(requests.stream().allMatch(request -> request.startsWith("GET /api/v1/namespaces/" + NAMESPACE + "/configmaps?")), is(true));
+
+        provider.close();
+    }
+
+    @Test
+    public void testInformerWithMissingResource() throws IOException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("informers.enabled", "true"));
+
+        Exception e = assertThrows(ConfigException.class, () -> provider.get("v1/ConfigMap/" + NAMESPACE + "/i-do-not-exist", Set.of("$.data.key")));
+        assertThat(e.getMessage(), is("Resource null/v1/ConfigMap with name i-do-not-exist was not found in namespace " + NAMESPACE + "!"));
+
+        provider.close();
+    }
+
+    @Test
+    public void testPrefetchPaths() throws IOException, InterruptedException {
+        int requestsBefore = server.getRequestCount();
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("prefetch.paths", "v1/ConfigMap/" + NAMESPACE + "/my-config-map,v1/ConfigMap/" + NAMESPACE + "/my-other-config-map"));
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key", "$.kind"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1", "$.kind", "ConfigMap")));
+
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-other-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value2")));
+
+        // GET requests when configuring the provider and no requests for the lookups
+        List<String> requests = requests(requestsBefore);
+        assertThat(Set.copyOf(requests), is(Set.of("GET /api/v1/namespaces/" + NAMESPACE + "/configmaps/my-config-map HTTP/1.1",
+                "GET /api/v1/namespaces/" + NAMESPACE + "/configmaps/my-other-config-map HTTP/1.1")));
+        assertThat(requests.size(), is(2));
+
+        provider.close();
+    }
+
+    @Test
+    public void testPrefetchPathsWithList() throws IOException, InterruptedException {
+        int requestsBefore = server.getRequestCount();
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("prefetch.paths", "v1/ConfigMap/" + NAMESPACE + "/my-config-map,v1/ConfigMap/" + NAMESPACE + "/my-other-config-map",
+                "prefetch.paths.list", "true"));
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-other-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value2")));
+
+        // A single LIST request when configuring the provider and no requests for the lookups
+        List<String> requests = requests(requestsBefore);
+        assertThat(requests, is(List.of("GET /api/v1/namespaces/" + NAMESPACE + "/configmaps HTTP/1.1")));
+
+        provider.close();
+    }
+
+    @Test
+    public void testPrefetchKinds() throws IOException, InterruptedException {
+        client.configMaps().inNamespace(NAMESPACE).resource(new ConfigMapBuilder()
+                .withNewMetadata()
+                    .withName("my-labeled-config-map")
+                    .withNamespace(NAMESPACE)
+                    .withLabels(Map.of("app", "kafka"))
+                .endMetadata()
+                .withData(Map.of("key", "value3"))
+                .build()).create();
+
+        int requestsBefore = server.getRequestCount();
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("prefetch.kinds", "v1/ConfigMap", "prefetch.namespaces", NAMESPACE, "prefetch.label.selector", "app=kafka"));
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-labeled-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value3")));
+
+        // Resources not matching the selector are retrieved on the lookup
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        List<String> requests = requests(requestsBefore);
+        assertThat(requests.size(), is(2));
+        assertThat(requests.get(0), is("GET /api/v1/namespaces/" + NAMESPACE + "/configmaps?labelSelector=app%3Dkafka HTTP/1.1"));
+        assertThat(requests.get(1), is("GET /api/v1/namespaces/" + NAMESPACE + "/configmaps/my-config-map HTTP/1.1"));
+
+        provider.close();
+    }
+
+    @Test
+    public void testPrefetchFailure() throws IOException {
+        // Failed prefetch does not prevent the provider from being configured
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("prefetch.paths", "v1/ConfigMap/" + NAMESPACE + "/i-do-not-exist,invalid-path"));
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        provider.close();
+    }
+
+    @Test
+    public void testStreamingFetch() throws IOException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("fetch.mode", "streaming", "cache.ttl.ms", "60000"));
+        int requestsBefore = server.getRequestCount();
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        // Served from the cached projection
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+        assertThat(server.getRequestCount() - requestsBefore, is(1));
+
+        // Needs other parts of the resource
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.metadata.name"));
+        assertThat(config.data(), is(Map.of("$.metadata.name", "my-config-map")));
+        assertThat(server.getRequestCount() - requestsBefore, is(2));
+
+        provider.close();
+    }
+
+    @Test
+    public void testStreamingFetchWithMissingResource() throws IOException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("fetch.mode", "streaming"));
+
+        Exception e = assertThrows(ConfigException.class, () -> provider.get("v1/ConfigMap/" + NAMESPACE + "/i-do-not-exist", Set.of("$.data.key")));
+        assertThat(e.getMessage(), is("Resource null/v1/ConfigMap with name i-do-not-exist was not found in namespace " + NAMESPACE + "!"));
+
+        provider.close();
+    }
+
+    @Test
+    public void testRevalidation() throws IOException, InterruptedException {
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("cache.ttl.ms", "1", "cache.revalidate", "true"));
+        int requestsBefore = server.getRequestCount();
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        // Expired resource did not change
+        Thread.sleep(10);
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value1")));
+
+        // Expired resource changed
+        client.configMaps().inNamespace(NAMESPACE).withName("my-config-map").edit(cm -> new ConfigMapBuilder(cm).withData(Map.of("key", "value3")).build());
+        int requestsBeforeChange = server.getRequestCount();
+        Thread.sleep(10);
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "/my-config-map", Set.of("$.data.key"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value3")));
+        assertThat(server.getRequestCount() - requestsBeforeChange, is(2));
+
+        List<String> accepts = new ArrayList<>();
+        for (int i = 0; i < requestsBefore; i++) {
+            server.takeRequest(1, TimeUnit.SECONDS);
+        }
+
+        RecordedRequest request;
+        while ((request = server.takeRequest(1, TimeUnit.SECONDS)) != null) {
+            if (request.getPath().endsWith("/my-config-map") && "GET".equals(request.getMethod())) {
+                accepts.add(String.valueOf(request.getHeader("Accept")).contains("PartialObjectMetadata") ? "metadata" : "resource");
+            }
+        }
+
+        assertThat(accepts, is(List.of("resource", "metadata", "resource", "metadata", "resource")));
+
+        provider.close();
+    }
+
+    @Test
+    public void testSelectorPath() throws IOException {
+        createConfigMap("my-labeled-config-map", "value3", Map.of("app", "kafka"));
+        createConfigMap("my-other-labeled-config-map", "value4", Map.of("app", "kafka"));
+
+        KubernetesRawNamespacedResourceConfigProvider provider = provider(Map.of("selector.delimiter", ";"));
+        int requestsBefore = server.getRequestCount();
+
+        ConfigData config = provider.get("v1/ConfigMap/" + NAMESPACE + "?app=kafka", Set.of("$.data.key", "$.metadata.name"));
+        assertThat(config.data(), is(Map.of("$.data.key", "value3;value4", "$.metadata.name", "my-labeled-config-map;my-other-labeled-config-map")));
+        assertThat(server.getRequestCount() - requestsBefore, is(1));
+
+        // Empty selector selects all resources
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "?", Set.of("$.data.key"));
+        assertThat(config.data().get("$.data.key").split(";").length, is(4));
+
+        // No selected resources
+        config = provider.get("v1/ConfigMap/" + NAMESPACE + "?app=zookeeper", Set.of("$.data.key"));
+        assertThat(config.data().containsKey("$.data.key"), is(true));
+        assertThat(config.data().get("$.data.key"), is((String) null));
+
+        assertThrows(ConfigException.class, () -> provider.subscribe("v1/ConfigMap/" + NAMESPACE + "?app=kafka", Set.of("$.data.key"), (path, data) -> { }));
+
+        provider.close();
+    }
+
+    private KubernetesRawNamespacedResourceConfigProvider provider(Map<String, ?> config) {
+        KubernetesRawNamespacedResourceConfigProvider provider = new KubernetesRawNamespacedResourceConfigProvider();
+        provider.configure(config, server.createClient());
+        return provider;
+    }
+
+    private void createConfigMap(String name, String value) {
+        createConfigMap(name, value, Map.of());
+    }
+
+    private void createConfigMap(String name, String value, Map<String, String> labels) {
+        client.configMaps().inNamespace(NAMESPACE).resource(new ConfigMapBuilder()
+                .withNewMetadata()
+                    .withName(name)
+                    .withNamespace(NAMESPACE)
+                    .withLabels(labels)
+                .endMetadata()
+                .withData(Map.of("key", value))
+                .build()).create();
+    }
+
+    private List<String> requests(int requestsBefore) throws InterruptedException {
+        // Skip the requests made before the test
+        for (int i = 0; i < requestsBefore; i++) {
+            server.takeRequest(1, TimeUnit.SECONDS);
+        }
+
+        List<String> requests = new ArrayList<>();
+        RecordedRequest request;
+        while ((request = server.takeRequest(1, TimeUnit.SECONDS)) != null) {
+            requests.add(request.getRequestLine());
+        }
+
+        return requests;
+    }
+}
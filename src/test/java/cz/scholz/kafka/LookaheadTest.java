@@ -0,0 +1,87 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LookaheadTest {
+    @Test
+    public void testSiblingsScheduled() {
+        MockTime time = new MockTime();
+        List<String> scheduled = new ArrayList<>();
+        Lookahead lookahead = new Lookahead(1_000L, 10, time, scheduled::add);
+
+        // First run learns the siblings
+        lookahead.record("first");
+        time.sleep(100);
+        lookahead.record("second");
+        time.sleep(100);
+        lookahead.record("third");
+        lookahead.record("first");
+        assertThat(scheduled, is(List.of()));
+
+        // Second run schedules the siblings on the first lookup
+        time.sleep(2_000);
+        lookahead.record("first");
+        assertThat(scheduled, is(List.of("second", "third")));
+    }
+
+    @Test
+    public void testSeparateRuns() {
+        MockTime time = new MockTime();
+        List<String> scheduled = new ArrayList<>();
+        Lookahead lookahead = new Lookahead(1_000L, 10, time, scheduled::add);
+
+        lookahead.record("first");
+        time.sleep(2_000);
+        lookahead.record("second");
+        time.sleep(2_000);
+        lookahead.record("first");
+        lookahead.record("second");
+
+        // The lookups are too far from each other to be siblings
+        assertThat(scheduled, is(List.of()));
+    }
+
+    @Test
+    public void testExpiredRunsRemoved() throws InterruptedException {
+        MockTime time = new MockTime();
+        Lookahead lookahead = new Lookahead(1_000L, 10, time, path -> { });
+
+        Thread other = new Thread(() -> lookahead.record("other"));
+        other.start();
+        other.join();
+
+        lookahead.record("first");
+        assertThat(lookahead.runs(), is(2));
+
+        // The run of the other thread expired and is removed when a new run starts
+        time.sleep(2_000);
+        lookahead.record("first");
+        assertThat(lookahead.runs(), is(1));
+    }
+
+    @Test
+    public void testClear() {
+        MockTime time = new MockTime();
+        List<String> scheduled = new ArrayList<>();
+        Lookahead lookahead = new Lookahead(1_000L, 10, time, scheduled::add);
+
+        lookahead.record("first");
+        lookahead.record("second");
+        lookahead.clear();
+        time.sleep(2_000);
+        lookahead.record("first");
+
+        assertThat(scheduled, is(List.of()));
+    }
+}
@@ -7,6 +7,8 @@ package cz.scholz.kafka;
 import org.apache.kafka.common.config.ConfigException;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -35,6 +37,36 @@ public class NamespacedResourceIdentifierTest {
         assertThat(id.name(), is("my-resource"));
     }
 
+    @Test
+    public void testSelectorResourceIdentifierParsing()    {
+        NamespacedResourceIdentifier id = NamespacedResourceIdentifier.fromPath("kafka.strimzi.io/v1beta2/KafkaNodePool/my-namespace?strimzi.io/cluster=my-cluster,role in (broker)");
+
+        assertThat(id.group(), is("kafka.strimzi.io"));
+        assertThat(id.version(), is("v1beta2"));
+        assertThat(id.kind(), is("KafkaNodePool"));
+        assertThat(id.namespace(), is("my-namespace"));
+        assertThat(id.name(), is(nullValue()));
+        assertThat(id.labelSelector(), is("strimzi.io/cluster=my-cluster,role in (broker)"));
+
+        id = NamespacedResourceIdentifier.fromPath("v1/Service/my-namespace?");
+        assertThat(id.group(), is(nullValue()));
+        assertThat(id.namespace(), is("my-namespace"));
+        assertThat(id.labelSelector(), is(""));
+
+        assertThat(NamespacedResourceIdentifier.fromPath("v1/Service/my-namespace/my-service").labelSelector(), is(nullValue()));
+
+        Exception e = assertThrows(ConfigException.class, () -> NamespacedResourceIdentifier.fromPath("networking.k8s.io/v1/NetworkPolicy/my-namespace/my-resource?app=kafka"));
+        assertThat(e.getMessage(), is("Invalid path networking.k8s.io/v1/NetworkPolicy/my-namespace/my-resource?app=kafka. Paths with a label selector have to be in format <group>/<version>/<kind>/<namespace>/<name> (or <group>/<version>/<kind>/<namespace>/<name> for core package APIs) with /<name> replaced by ?<labelSelector>."));
+
+        // Control characters, other whitespace and characters which are not part of the label selector syntax
+        for (String selector : List.of("app=kafka\n", "app=kafka\tx", "app=kafka&x=y", "app=kafka\u0000")) {
+            e = assertThrows(ConfigException.class, () -> NamespacedResourceIdentifier.fromPath("v1/Service/my-namespace?" + selector));
+            assertThat(e.getMessage(), is("Invalid label selector in path v1/Service/my-namespace?" + selector + ". It can contain only letters, digits, spaces and the characters . - _ / = ! , ( )"));
+        }
+
+        assertThat(NamespacedResourceIdentifier.fromPath("v1/Service/my-namespace?!canary,tier notin (frontend),app_name=my-app").labelSelector(), is("!canary,tier notin (frontend),app_name=my-app"));
+    }
+
     @Test
     public void testInvalidResourceIdentifierParsing()    {
         Exception e = assertThrows(ConfigException.class, () -> NamespacedResourceIdentifier.fromPath("my-namespace/my-resource"));
@@ -0,0 +1,61 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class NegativeCacheTest {
+    @Test
+    public void testFailureIsCached()    {
+        NegativeCache<String> cache = new NegativeCache<>(1_000L, 10, new MockTime());
+        ConfigException e = new ConfigException("Not found");
+
+        cache.put("path", e);
+
+        assertThat(cache.get("path"), is(sameInstance(e)));
+        assertThat(cache.get("other-path"), is(nullValue()));
+    }
+
+    @Test
+    public void testFailureExpires()    {
+        MockTime time = new MockTime();
+        NegativeCache<String> cache = new NegativeCache<>(1_000L, 10, time);
+
+        cache.put("path", new ConfigException("Not found"));
+        time.sleep(1_000L);
+
+        assertThat(cache.get("path"), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void testDisabled()    {
+        NegativeCache<String> cache = new NegativeCache<>(0L, 10, new MockTime());
+
+        cache.put("path", new ConfigException("Not found"));
+
+        assertThat(cache.get("path"), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void testSizeIsBounded()    {
+        NegativeCache<String> cache = new NegativeCache<>(1_000L, 2, new MockTime());
+
+        cache.put("first", new ConfigException("Not found"));
+        cache.put("second", new ConfigException("Not found"));
+        cache.put("third", new ConfigException("Not found"));
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get("first"), is(nullValue()));
+    }
+}
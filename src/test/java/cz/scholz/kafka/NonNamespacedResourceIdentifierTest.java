@@ -33,6 +33,19 @@ public class NonNamespacedResourceIdentifierTest {
         assertThat(id.name(), is("my-resource"));
     }
 
+    @Test
+    public void testSelectorResourceIdentifierParsing()    {
+        NonNamespacedResourceIdentifier id = NonNamespacedResourceIdentifier.fromPath("v1/Node?node-role.kubernetes.io/worker");
+
+        assertThat(id.group(), is(nullValue()));
+        assertThat(id.version(), is("v1"));
+        assertThat(id.kind(), is("Node"));
+        assertThat(id.name(), is(nullValue()));
+        assertThat(id.labelSelector(), is("node-role.kubernetes.io/worker"));
+
+        assertThrows(ConfigException.class, () -> NonNamespacedResourceIdentifier.fromPath("rbac.authorization.k8s.io/v1/ClusterRole/my-resource?app=kafka"));
+    }
+
     @Test
     public void testInvalidResourceIdentifierParsing()    {
         Exception e = assertThrows(ConfigException.class, () -> NonNamespacedResourceIdentifier.fromPath("my-namespace/my-resource"));
@@ -0,0 +1,71 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import com.jayway.jsonpath.InvalidPathException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParsedKeyCacheTest {
+    @Test
+    public void testParsedKeyIsReused()    {
+        ParsedKeyCache cache = new ParsedKeyCache(10);
+
+        ParsedKey first = cache.get("$.status.listeners[?(@.name=='external')].bootstrapServers");
+        ParsedKey second = cache.get("$.status.listeners[?(@.name=='external')].bootstrapServers");
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(second.jsonPath(), is(sameInstance(first.jsonPath())));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void testCacheIsBounded()    {
+        ParsedKeyCache cache = new ParsedKeyCache(2);
+
+        cache.get("$.spec");
+        cache.get("$.status");
+        cache.get("$.metadata");
+
+        assertThat(cache.size(), is(2));
+    }
+
+    @Test
+    public void testEvictedKeyIsParsedAgain()    {
+        ParsedKeyCache cache = new ParsedKeyCache(1);
+
+        ParsedKey spec = cache.get("$.spec");
+        cache.get("$.status");
+
+        assertThat(cache.get("$.spec"), is(not(sameInstance(spec))));
+    }
+
+    @Test
+    public void testAllFormsOfTheKey()    {
+        ParsedKeyCache cache = new ParsedKeyCache(10);
+        Map<String, Object> tree = Map.of("spec", Map.of("replicas", "3"));
+
+        assertThat(cache.get("$.spec.replicas").evaluateDirectly(tree), is("3"));
+        assertThat(cache.get("$.spec[?(@.name=='external')].replicas").evaluateDirectly(tree), is(sameInstance(DefinitePath.UNRESOLVED)));
+        assertThat(cache.get("$.spec.replicas").evaluateIndexed(new ResourceDocument(tree, "1")), is(sameInstance(IndexedFilter.NOT_INDEXED)));
+        assertThat(cache.get("$..replicas").jsonPath().getPath(), is("$..['replicas']"));
+    }
+
+    @Test
+    public void testInvalidPath()    {
+        ParsedKeyCache cache = new ParsedKeyCache(10);
+
+        ParsedKey invalid = cache.get("$.spec[?(@.name=='external'");
+        assertThrows(InvalidPathException.class, invalid::jsonPath);
+        assertThrows(InvalidPathException.class, invalid::jsonPath);
+    }
+}
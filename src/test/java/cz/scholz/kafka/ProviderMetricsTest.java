@@ -0,0 +1,140 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.utils.MockTime;
+import org.apache.kafka.common.utils.Time;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.management.ObjectName;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+
+public class ProviderMetricsTest {
+    private MockTime time;
+    private ProviderMetrics metrics;
+
+    @BeforeEach
+    public void beforeEach() {
+        time = new MockTime();
+        metrics = new ProviderMetrics(new Metrics(new MetricConfig(), List.of(), time), "test-1", time);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        metrics.close();
+    }
+
+    @Test
+    public void testLatencies() {
+        long startNs = metrics.startTimer();
+        time.sleep(20);
+        metrics.recordLookup(startNs);
+
+        startNs = metrics.startTimer();
+        time.sleep(40);
+        metrics.recordLookup(startNs);
+
+        assertThat(value("lookup-time-avg", Map.of()), is(30.0));
+        assertThat(value("lookup-time-max", Map.of()), is(40.0));
+    }
+
+    @Test
+    public void testEvaluation() {
+        long startNs = metrics.startTimer();
+        time.sleep(2);
+        metrics.recordEvaluation(startNs, 3);
+        metrics.recordEvaluation(metrics.startTimer(), 1);
+
+        assertThat(value("evaluation-time-max", Map.of()), is(2.0));
+        assertThat(value("keys-per-lookup-avg", Map.of()), is(2.0));
+        assertThat(value("keys-per-lookup-max", Map.of()), is(3.0));
+    }
+
+    @Test
+    public void testEvaluationPercentiles() {
+        for (int i = 0; i < 10; i++) {
+            long startNs = metrics.startTimer();
+            time.sleep(1);
+            metrics.recordEvaluation(startNs, 1);
+        }
+
+        assertThat(value("evaluation-time-p50", Map.of()), is(closeTo(1.0, 0.05)));
+        assertThat(value("evaluation-time-p99", Map.of()), is(closeTo(1.0, 0.05)));
+    }
+
+    @Test
+    public void testApiRequestsPerKind() {
+        NamespacedResourceIdentifier kafka = NamespacedResourceIdentifier.fromPath("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster");
+        NamespacedResourceIdentifier configMap = NamespacedResourceIdentifier.fromPath("v1/ConfigMap/myproject/my-config-map");
+
+        metrics.recordApiRequest(kafka, metrics.startTimer(), false);
+        metrics.recordApiRequest(kafka, metrics.startTimer(), true);
+        metrics.recordApiRequest(configMap, metrics.startTimer(), false);
+
+        Map<String, String> kafkaTags = Map.of("group", "kafka.strimzi.io", "version", "v1beta2", "kind", "Kafka");
+        assertThat(value("api-request-total", kafkaTags), is(2.0));
+        assertThat(value("api-error-total", kafkaTags), is(1.0));
+
+        Map<String, String> configMapTags = Map.of("group", "core", "version", "v1", "kind", "ConfigMap");
+        assertThat(value("api-request-total", configMapTags), is(1.0));
+        assertThat(value("api-error-total", configMapTags), is(0.0));
+    }
+
+    @Test
+    public void testCache() {
+        ResourceCache<String> cache = new ResourceCache<>(60_000L, 1, Long.MAX_VALUE, time);
+        metrics.registerCache(cache);
+
+        cache.put("first", new ResourceDocument(Map.of("data", "value"), "1"));
+        cache.put("second", new ResourceDocument(Map.of("data", "value"), "1"));
+        metrics.recordCacheHit();
+        metrics.recordCacheHit();
+        metrics.recordCacheMiss();
+
+        assertThat(value("cache-size", Map.of()), is(1.0));
+        assertThat(value("cache-eviction-total", Map.of()), is(1.0));
+        assertThat(value("cache-hit-total", Map.of()), is(2.0));
+        assertThat(value("cache-miss-total", Map.of()), is(1.0));
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        ProviderMetrics jmxMetrics = new ProviderMetrics("TestProvider", Time.SYSTEM);
+        String providerId = jmxMetrics.tags().get("provider-id");
+        ObjectName name = new ObjectName(ProviderMetrics.JMX_PREFIX + ":type=" + ProviderMetrics.METRICS_GROUP + ",provider-id=" + providerId);
+
+        try {
+            jmxMetrics.recordCacheHit();
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "cache-hit-total"), is(1.0));
+        } finally {
+            jmxMetrics.close();
+        }
+
+        assertThat(ManagementFactory.getPlatformMBeanServer().queryNames(name, null), is(Set.of()));
+    }
+
+    private double value(String name, Map<String, String> additionalTags)  {
+        Map<String, String> tags = new HashMap<>(metrics.tags());
+        tags.putAll(additionalTags);
+
+        MetricName metricName = metrics.metrics().metricName(name, ProviderMetrics.METRICS_GROUP, tags);
+        KafkaMetric metric = metrics.metrics().metric(metricName);
+        return (double) metric.metricValue();
+    }
+}
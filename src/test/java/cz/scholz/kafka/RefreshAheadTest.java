@@ -0,0 +1,71 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RefreshAheadTest {
+    private static final NamespacedResourceIdentifier RESOURCE = NamespacedResourceIdentifier.fromPath("v1/ConfigMap/my-namespace/my-config-map");
+
+    @Test
+    public void testRefresh() throws InterruptedException {
+        CountDownLatch refreshes = new CountDownLatch(3);
+        RefreshAhead<NamespacedResourceIdentifier> refreshAhead = new RefreshAhead<>(50L, 60_000L, 1, new MockTime(), ri -> refreshes.countDown());
+
+        // Scheduled only once
+        refreshAhead.cached(RESOURCE);
+        refreshAhead.cached(RESOURCE);
+        assertThat(refreshAhead.size(), is(1));
+
+        assertThat(refreshes.await(5, TimeUnit.SECONDS), is(true));
+        refreshAhead.close();
+        assertThat(refreshAhead.size(), is(0));
+    }
+
+    @Test
+    public void testIdleResourcesAreDropped() throws InterruptedException {
+        MockTime time = new MockTime();
+        AtomicInteger refreshes = new AtomicInteger();
+        RefreshAhead<NamespacedResourceIdentifier> refreshAhead = new RefreshAhead<>(10L, 1_000L, 1, time, ri -> refreshes.incrementAndGet());
+
+        refreshAhead.cached(RESOURCE);
+        time.sleep(2_000L);
+
+        waitForSize(refreshAhead, 0);
+        assertThat(refreshes.get(), is(0));
+        refreshAhead.close();
+    }
+
+    @Test
+    public void testFailedRefreshIsNotRescheduled() throws InterruptedException {
+        AtomicInteger refreshes = new AtomicInteger();
+        RefreshAhead<NamespacedResourceIdentifier> refreshAhead = new RefreshAhead<>(10L, 60_000L, 1, new MockTime(), ri -> {
+            refreshes.incrementAndGet();
+            throw new RuntimeException("Failed");
+        });
+
+        refreshAhead.cached(RESOURCE);
+
+        waitForSize(refreshAhead, 0);
+        assertThat(refreshes.get(), is(1));
+        refreshAhead.close();
+    }
+
+    private static void waitForSize(RefreshAhead<?> refreshAhead, int size) throws InterruptedException {
+        for (int i = 0; i < 500 && refreshAhead.size() != size; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(refreshAhead.size(), is(size));
+    }
+}
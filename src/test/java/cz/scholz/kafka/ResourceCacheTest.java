@@ -0,0 +1,109 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ResourceCacheTest {
+    private static final ResourceDocument SMALL = new ResourceDocument(Map.of("metadata", Map.of("name", "small")), "1");
+    private static final ResourceDocument OTHER = new ResourceDocument(Map.of("metadata", Map.of("name", "other")), "1");
+
+    @Test
+    public void testCachedResource()    {
+        MockTime time = new MockTime();
+        ResourceCache<String> cache = new ResourceCache<>(1_000L, 10, 1_000_000L, time);
+
+        cache.put("my-resource", SMALL);
+
+        assertThat(cache.get("my-resource"), is(sameInstance(SMALL)));
+        assertThat(cache.get("my-other-resource"), is(nullValue()));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.bytes(), is(SMALL.weight()));
+    }
+
+    @Test
+    public void testExpiredResource()    {
+        MockTime time = new MockTime();
+        ResourceCache<String> cache = new ResourceCache<>(1_000L, 10, 1_000_000L, time);
+
+        cache.put("my-resource", SMALL);
+        time.sleep(999L);
+        assertThat(cache.get("my-resource"), is(sameInstance(SMALL)));
+
+        time.sleep(1L);
+        assertThat(cache.get("my-resource"), is(nullValue()));
+        assertThat(cache.size(), is(0));
+        assertThat(cache.bytes(), is(0L));
+    }
+
+    @Test
+    public void testDisabledCache()    {
+        ResourceCache<String> cache = new ResourceCache<>(0L, 10, 1_000_000L, new MockTime());
+
+        cache.put("my-resource", SMALL);
+
+        assertThat(cache.enabled(), is(false));
+        assertThat(cache.get("my-resource"), is(nullValue()));
+    }
+
+    @Test
+    public void testEvictionByEntries()    {
+        ResourceCache<String> cache = new ResourceCache<>(1_000L, 2, 1_000_000L, new MockTime());
+
+        cache.put("first", SMALL);
+        cache.put("second", SMALL);
+        // Use the first entry to make the second entry the least recently used one
+        cache.get("first");
+        cache.put("third", SMALL);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get("first"), is(sameInstance(SMALL)));
+        assertThat(cache.get("second"), is(nullValue()));
+        assertThat(cache.get("third"), is(sameInstance(SMALL)));
+    }
+
+    @Test
+    public void testEvictionByBytes()    {
+        ResourceCache<String> cache = new ResourceCache<>(1_000L, 10, SMALL.weight() + OTHER.weight(), new MockTime());
+
+        cache.put("first", SMALL);
+        cache.put("second", OTHER);
+        cache.put("third", SMALL);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get("first"), is(nullValue()));
+        assertThat(cache.bytes(), is(SMALL.weight() + OTHER.weight()));
+    }
+
+    @Test
+    public void testTooBigResourceIsNotCached()    {
+        ResourceCache<String> cache = new ResourceCache<>(1_000L, 10, SMALL.weight() - 1, new MockTime());
+
+        cache.put("first", SMALL);
+
+        assertThat(cache.size(), is(0));
+        assertThat(cache.get("first"), is(nullValue()));
+    }
+
+    @Test
+    public void testReplacedResource()    {
+        ResourceCache<String> cache = new ResourceCache<>(1_000L, 10, 1_000_000L, new MockTime());
+
+        cache.put("first", SMALL);
+        cache.put("first", OTHER);
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.get("first"), is(sameInstance(OTHER)));
+        assertThat(cache.bytes(), is(OTHER.weight()));
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ResourceKindTest {
+    @Test
+    public void testKindParsing()    {
+        ResourceKind kind = ResourceKind.fromString("kafka.strimzi.io/v1beta2/Kafka", "my-namespace");
+
+        assertThat(kind.group(), is("kafka.strimzi.io"));
+        assertThat(kind.version(), is("v1beta2"));
+        assertThat(kind.kind(), is("Kafka"));
+        assertThat(kind.namespace(), is("my-namespace"));
+        assertThat(kind.apiVersion(), is("kafka.strimzi.io/v1beta2"));
+        assertThat(kind.pathOf("my-namespace", "my-cluster"), is("kafka.strimzi.io/v1beta2/Kafka/my-namespace/my-cluster"));
+        assertThat(kind.description(), is("kafka.strimzi.io/v1beta2/Kafka in namespace my-namespace"));
+    }
+
+    @Test
+    public void testCoreKindParsing()    {
+        ResourceKind kind = ResourceKind.fromString("v1/Node", null);
+
+        assertThat(kind.group(), is(nullValue()));
+        assertThat(kind.version(), is("v1"));
+        assertThat(kind.kind(), is("Node"));
+        assertThat(kind.apiVersion(), is("v1"));
+        assertThat(kind.pathOf(null, "my-node"), is("v1/Node/my-node"));
+        assertThat(kind.description(), is("null/v1/Node"));
+    }
+
+    @Test
+    public void testKindOfResource()    {
+        ResourceKind kind = ResourceKind.of(NamespacedResourceIdentifier.fromPath("v1/ConfigMap/my-namespace/my-config-map"));
+
+        assertThat(kind, is(new ResourceKind(null, "v1", "ConfigMap", "my-namespace")));
+        assertThat(kind.name(), is(nullValue()));
+    }
+
+    @Test
+    public void testInvalidKindParsing()    {
+        Exception e = assertThrows(ConfigException.class, () -> ResourceKind.fromString("v1", null));
+        assertThat(e.getMessage(), is("Invalid kind v1. It has to be in format <group>/<version>/<kind> (or <version>/<kind> for core package APIs)."));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ResourcePathParserTest {
+    private static final String LEGACY_REGEX = "([A-Za-z0-9.-]+/)?([A-Za-z0-9.-]+/)([A-Za-z0-9.-]+/)([A-Za-z0-9.-]+/)[A-Za-z0-9.-]+";
+
+    @Test
+    public void testSplit()    {
+        assertThat(List.of(ResourcePathParser.split("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster", 5)),
+                is(List.of("kafka.strimzi.io", "v1beta2", "Kafka", "myproject", "my-cluster")));
+        assertThat(ResourcePathParser.split("v1/ConfigMap/myproject/my-config-map", 5),
+                is(new String[] {null, "v1", "ConfigMap", "myproject", "my-config-map"}));
+    }
+
+    @Test
+    public void testSplitMatchesLegacyRegex()    {
+        List<String> paths = List.of(
+                "a/b/c/d/e",
+                "b/c/d/e",
+                "c/d/e",
+                "a/b/c/d/e/f",
+                "/b/c/d/e",
+                "a/b/c/d/",
+                "a//c/d/e",
+                "a/b/c/d/e/",
+                "a/b/c/d/e_f",
+                "a/b/c/d/e f",
+                "a/b/c/d/é",
+                "",
+                "/",
+                "a.b-c/V1/K/n-s/n.m"
+        );
+
+        for (String path : paths)   {
+            assertThat(path, ResourcePathParser.split(path, 5) != null, is(path.matches(LEGACY_REGEX)));
+        }
+    }
+
+    @Test
+    public void testParsedIdentifiersAreReused()    {
+        ResourcePathParser<NamespacedResourceIdentifier> parser = new ResourcePathParser<>(5, "<format>",
+                segments -> new NamespacedResourceIdentifier(segments[0], segments[1], segments[2], segments[3], segments[4]),
+                10);
+
+        NamespacedResourceIdentifier first = parser.parse("v1/ConfigMap/myproject/my-config-map");
+        NamespacedResourceIdentifier second = parser.parse("v1/ConfigMap/myproject/my-config-map");
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(parser.size(), is(1));
+    }
+
+    @Test
+    public void testInvalidPathsAreNotCached()    {
+        ResourcePathParser<NamespacedResourceIdentifier> parser = new ResourcePathParser<>(5, "<format>",
+                segments -> new NamespacedResourceIdentifier(segments[0], segments[1], segments[2], segments[3], segments[4]),
+                10);
+
+        Exception e = assertThrows(ConfigException.class, () -> parser.parse("my-namespace/my-resource"));
+        assertThat(e.getMessage(), is("Invalid path my-namespace/my-resource. It has to be in format <format>."));
+        assertThat(parser.size(), is(0));
+    }
+
+    @Test
+    public void testParserIsBounded()    {
+        ResourcePathParser<NonNamespacedResourceIdentifier> parser = new ResourcePathParser<>(4, "<format>",
+                segments -> new NonNamespacedResourceIdentifier(segments[0], segments[1], segments[2], segments[3]),
+                2);
+
+        parser.parse("v1/Namespace/first");
+        parser.parse("v1/Namespace/second");
+        parser.parse("v1/Namespace/third");
+
+        assertThat(parser.size(), is(2));
+    }
+
+    @Test
+    public void testDefinitionContextIsShared()    {
+        NamespacedResourceIdentifier first = NamespacedResourceIdentifier.fromPath("kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster");
+        NamespacedResourceIdentifier second = NamespacedResourceIdentifier.fromPath("kafka.strimzi.io/v1beta2/Kafka/other-project/other-cluster");
+
+        assertThat(first.resourceDefinitionContext(), is(notNullValue()));
+        assertThat(second.resourceDefinitionContext(), is(sameInstance(first.resourceDefinitionContext())));
+        assertThat(first.resourceDefinitionContext().isNamespaceScoped(), is(true));
+
+        NonNamespacedResourceIdentifier core = NonNamespacedResourceIdentifier.fromPath("v1/Namespace/myproject");
+        assertThat(core.resourceDefinitionContext().getGroup(), is(nullValue()));
+        assertThat(core.resourceDefinitionContext().isNamespaceScoped(), is(false));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ResourceProjectionTest {
+    @Test
+    public void testDefinitePrefix() {
+        assertThat(ResourceProjection.definitePrefix("$.metadata.name"), is(List.of("metadata", "name")));
+        assertThat(ResourceProjection.definitePrefix("$.status.listeners[?(@.name=='external')].bootstrapServers"), is(List.of("status", "listeners")));
+        assertThat(ResourceProjection.definitePrefix("$.metadata.annotations['strimzi.io/node-pools']"), is(List.of("metadata", "annotations", "strimzi.io/node-pools")));
+        assertThat(ResourceProjection.definitePrefix("$['spec'][\"kafka\"].listeners[0].port"), is(List.of("spec", "kafka", "listeners")));
+        assertThat(ResourceProjection.definitePrefix("$.spec.kafka.listeners.length()"), is(List.of("spec", "kafka", "listeners")));
+        assertThat(ResourceProjection.definitePrefix("$.status.*.name"), is(List.of("status")));
+        assertThat(ResourceProjection.definitePrefix("$.spec..port"), is(List.of("spec")));
+        assertThat(ResourceProjection.definitePrefix("$.metadata['name','namespace']"), is(List.of("metadata")));
+    }
+
+    @Test
+    public void testWholeResource() {
+        assertThat(ResourceProjection.definitePrefix("$"), is(List.of()));
+        assertThat(ResourceProjection.definitePrefix("$..name"), is(List.of()));
+        assertThat(ResourceProjection.definitePrefix("$[*]"), is(List.of()));
+        assertThat(ResourceProjection.definitePrefix("$.spec.listeners[?(@.name == $.metadata.name)].port"), is(List.of()));
+
+        assertThat(ResourceProjection.of(Set.of("$.metadata.name", "$..name")).isAll(), is(true));
+    }
+
+    @Test
+    public void testProjection() {
+        ResourceProjection projection = ResourceProjection.of(List.of("$.metadata.name", "$.metadata.namespace", "$.metadata", "$.status.listeners[0].name"));
+
+        assertThat(projection.isAll(), is(false));
+        assertThat(projection.chains(), is(List.of(List.of("metadata"), List.of("status", "listeners"))));
+    }
+
+    @Test
+    public void testCoversAndUnion() {
+        ResourceProjection metadata = ResourceProjection.of(Set.of("$.metadata.name"));
+        ResourceProjection status = ResourceProjection.of(Set.of("$.status.listeners[0].name"));
+        ResourceProjection listeners = ResourceProjection.of(Set.of("$.status.listeners[1].name"));
+
+        assertThat(metadata.covers(status), is(false));
+        assertThat(status.covers(listeners), is(true));
+        assertThat(ResourceProjection.ALL.covers(status), is(true));
+        assertThat(status.covers(ResourceProjection.ALL), is(false));
+
+        ResourceProjection union = metadata.union(status);
+        assertThat(union.covers(metadata), is(true));
+        assertThat(union.covers(status), is(true));
+        assertThat(union.chains(), is(List.of(List.of("metadata", "resourceVersion"), List.of("metadata", "name"), List.of("status", "listeners"))));
+        assertThat(union.union(ResourceProjection.ALL).isAll(), is(true));
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResourceBuilder;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import org.apache.kafka.common.config.ConfigChangeCallback;
+import org.apache.kafka.common.config.ConfigData;
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ResourceSubscriptionsTest {
+    private static final String PATH = "kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster";
+    private static final String KEY = "$.status.listeners[?(@.name=='external')].bootstrapServers";
+
+    @Test
+    public void testCallbackOnlyOnValueChange() {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("1", "10.0.0.1:9094", 1));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+        List<ConfigData> changes = new ArrayList<>();
+
+        subscriptions.subscribe(PATH, Set.of(KEY), (path, data) -> changes.add(data));
+        assertThat(kubernetes.watchers.size(), is(1));
+
+        // Initial event with the same values => no change
+        kubernetes.event(Watcher.Action.ADDED, kafka("1", "10.0.0.1:9094", 1));
+        assertThat(changes.size(), is(0));
+
+        // Status update which does not change the value => no change
+        kubernetes.event(Watcher.Action.MODIFIED, kafka("2", "10.0.0.1:9094", 2));
+        assertThat(changes.size(), is(0));
+
+        // Changed value
+        kubernetes.event(Watcher.Action.MODIFIED, kafka("3", "10.0.0.2:9094", 3));
+        assertThat(changes.size(), is(1));
+        assertThat(changes.get(0).data(), is(Map.of(KEY, "10.0.0.2:9094")));
+    }
+
+    @Test
+    public void testSharedWatch() {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("1", "10.0.0.1:9094", 1));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+        List<ConfigData> bootstrapChanges = new ArrayList<>();
+        List<ConfigData> generationChanges = new ArrayList<>();
+
+        subscriptions.subscribe(PATH, Set.of(KEY), (path, data) -> bootstrapChanges.add(data));
+        subscriptions.subscribe(PATH, Set.of("$.status.observedGeneration"), (path, data) -> generationChanges.add(data));
+        assertThat(kubernetes.watchers.size(), is(1));
+        assertThat(subscriptions.size(), is(1));
+
+        kubernetes.event(Watcher.Action.MODIFIED, kafka("2", "10.0.0.1:9094", 2));
+        assertThat(bootstrapChanges.size(), is(0));
+        assertThat(generationChanges.size(), is(1));
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("1", "10.0.0.1:9094", 1));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+        List<ConfigData> changes = new ArrayList<>();
+
+        subscriptions.subscribe(PATH, Set.of(KEY), (path, data) -> changes.add(data));
+        Watcher<GenericKubernetesResource> watcher = kubernetes.watchers.get(0);
+
+        subscriptions.unsubscribe(PATH, Set.of(KEY), (path, data) -> changes.add(data));
+        assertThat(subscriptions.size(), is(1));
+        assertThat(kubernetes.closedWatches, is(0));
+
+        subscriptions.unsubscribeAll();
+        assertThat(subscriptions.size(), is(0));
+        assertThat(kubernetes.closedWatches, is(1));
+
+        watcher.eventReceived(Watcher.Action.MODIFIED, kafka("3", "10.0.0.2:9094", 3));
+        assertThat(changes.size(), is(0));
+    }
+
+    @Test
+    public void testLastCallbackUnsubscribed() {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("1", "10.0.0.1:9094", 1));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+        TestCallback callback = new TestCallback();
+
+        subscriptions.subscribe(PATH, Set.of(KEY), callback);
+        subscriptions.unsubscribe(PATH, Set.of(KEY), callback);
+
+        assertThat(subscriptions.size(), is(0));
+        assertThat(kubernetes.closedWatches, is(1));
+    }
+
+    @Test
+    public void testRestartedWatch() {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("1", "10.0.0.1:9094", 1));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+        TestCallback callback = new TestCallback();
+
+        subscriptions.subscribe(PATH, Set.of(KEY), callback);
+
+        // The resource changes while the watch is not running
+        kubernetes.current = kafka("2", "10.0.0.2:9094", 2);
+        kubernetes.watchers.get(0).onClose(new WatcherException("Gone"));
+
+        assertThat(kubernetes.watchers.size(), is(2));
+        assertThat(callback.changes.size(), is(1));
+        assertThat(callback.changes.get(0).data(), is(Map.of(KEY, "10.0.0.2:9094")));
+    }
+
+    @Test
+    public void testUpdatedBeforeCallback() {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("1", "10.0.0.1:9094", 1));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+        List<String> updatedVersions = new ArrayList<>();
+
+        // The callback sees the new version already passed to the updater
+        subscriptions.subscribe(PATH, Set.of(KEY), (path, data) -> updatedVersions.add(kubernetes.updated.resourceVersion()));
+
+        kubernetes.event(Watcher.Action.MODIFIED, kafka("2", "10.0.0.1:9094", 2));
+        assertThat(kubernetes.updated.resourceVersion(), is("2"));
+        assertThat(updatedVersions.size(), is(0));
+
+        kubernetes.event(Watcher.Action.MODIFIED, kafka("3", "10.0.0.2:9094", 3));
+        assertThat(updatedVersions, is(List.of("3")));
+    }
+
+    @Test
+    public void testFailedRestartRetried() throws InterruptedException {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("1", "10.0.0.1:9094", 1));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+        TestCallback callback = new TestCallback();
+
+        subscriptions.subscribe(PATH, Set.of(KEY), callback);
+
+        // The Kubernetes API is not available when the watch is restarted
+        kubernetes.current = kafka("2", "10.0.0.2:9094", 2);
+        kubernetes.failures = 1;
+        kubernetes.watchers.get(0).onClose(new WatcherException("Gone"));
+        assertThat(callback.changes.size(), is(0));
+
+        for (int i = 0; i < 500 && callback.changes.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(callback.changes.size(), is(1));
+        assertThat(callback.changes.get(0).data(), is(Map.of(KEY, "10.0.0.2:9094")));
+        assertThat(kubernetes.watchers.size(), is(3));
+        subscriptions.close();
+    }
+
+    @Test
+    public void testWatchOpenedBeforeFetch() {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("2", "10.0.0.1:9094", 2));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+        TestCallback callback = new TestCallback();
+
+        subscriptions.subscribe(PATH, Set.of(KEY), callback);
+        assertThat(kubernetes.fetchedWhileWatching, is(true));
+
+        // Events older than the retrieved version are ignored
+        kubernetes.event(Watcher.Action.ADDED, kafka("1", "10.0.0.2:9094", 1));
+        assertThat(callback.changes.size(), is(0));
+    }
+
+    @Test
+    public void testDeletedResourceRemoved() {
+        FakeKubernetes kubernetes = new FakeKubernetes(kafka("1", "10.0.0.1:9094", 1));
+        ResourceSubscriptions subscriptions = new ResourceSubscriptions(kubernetes::fetch, kubernetes::update, kubernetes::remove, kubernetes::watch, 10L, 100L);
+
+        subscriptions.subscribe(PATH, Set.of(KEY), new TestCallback());
+        kubernetes.event(Watcher.Action.DELETED, kafka("2", "10.0.0.1:9094", 1));
+
+        assertThat(kubernetes.removed, is(List.of(PATH)));
+    }
+
+    private static GenericKubernetesResource kafka(String resourceVersion, String bootstrapServers, int observedGeneration) {
+        return new GenericKubernetesResourceBuilder()
+                .withApiVersion("kafka.strimzi.io/v1beta2")
+                .withKind("Kafka")
+                .withNewMetadata()
+                    .withName("my-cluster")
+                    .withNamespace("myproject")
+                    .withResourceVersion(resourceVersion)
+                .endMetadata()
+                .withAdditionalProperties(Map.of("status", Map.of(
+                        "observedGeneration", String.valueOf(observedGeneration),
+                        "listeners", List.of(Map.of("name", "external", "bootstrapServers", bootstrapServers)))))
+                .build();
+    }
+
+    static class TestCallback implements ConfigChangeCallback {
+        final List<ConfigData> changes = new ArrayList<>();
+
+        @Override
+        public void onChange(String path, ConfigData data) {
+            changes.add(data);
+        }
+    }
+
+    static class FakeKubernetes {
+        final List<Watcher<GenericKubernetesResource>> watchers = new ArrayList<>();
+        final List<String> removed = new ArrayList<>();
+        GenericKubernetesResource current;
+        ResourceDocument updated;
+        int closedWatches = 0;
+        int failures = 0;
+        boolean fetchedWhileWatching = false;
+
+        FakeKubernetes(GenericKubernetesResource current) {
+            this.current = current;
+        }
+
+        synchronized ResourceDocument fetch(String path) {
+            fetchedWhileWatching = !watchers.isEmpty();
+
+            if (failures > 0)   {
+                failures--;
+                throw new ConfigException("Service Unavailable");
+            }
+
+            return ResourceDocument.fromResource(current);
+        }
+
+        void update(String path, ResourceDocument document) {
+            updated = document;
+        }
+
+        void remove(String path) {
+            removed.add(path);
+        }
+
+        synchronized Watch watch(String path, Watcher<GenericKubernetesResource> watcher) {
+            watchers.add(watcher);
+            return () -> closedWatches++;
+        }
+
+        void event(Watcher.Action action, GenericKubernetesResource resource) {
+            current = resource;
+            watchers.get(watchers.size() - 1).eventReceived(action, resource);
+        }
+    }
+}
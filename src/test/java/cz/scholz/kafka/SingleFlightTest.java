@@ -0,0 +1,115 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SingleFlightTest {
+    private static final int WAITERS = 10;
+
+    @Test
+    public void testConcurrentCallsAreCoalesced() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger(0);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WAITERS);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < WAITERS; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("my-resource", () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return "value";
+                })));
+            }
+
+            // Wait until the first call is in progress and all other threads had the time to join it
+            while (calls.get() == 0) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(500);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS), is("value"));
+            }
+
+            assertThat(calls.get(), is(1));
+            assertThat(singleFlight.size(), is(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testErrorIsSharedByAllWaiters() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        ConfigException error = new ConfigException("Resource was not found!");
+        AtomicInteger calls = new AtomicInteger(0);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WAITERS);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < WAITERS; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("my-resource", () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    throw error;
+                })));
+            }
+
+            while (calls.get() == 0) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(500);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+                assertThat(e.getCause(), is(sameInstance(error)));
+            }
+
+            assertThat(calls.get(), is(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialCallsAreNotCoalesced() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger(0);
+
+        singleFlight.execute("my-resource", () -> "value" + calls.incrementAndGet());
+        assertThat(singleFlight.execute("my-resource", () -> "value" + calls.incrementAndGet()), is("value2"));
+        assertThat(calls.get(), is(2));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
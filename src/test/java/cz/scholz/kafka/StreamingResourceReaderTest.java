@@ -0,0 +1,92 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class StreamingResourceReaderTest {
+    private static final String KAFKA = """
+            {
+              "apiVersion": "kafka.strimzi.io/v1beta2",
+              "kind": "Kafka",
+              "metadata": {
+                "name": "my-cluster",
+                "namespace": "myproject",
+                "resourceVersion": "1234",
+                "annotations": {
+                  "strimzi.io/node-pools": "enabled"
+                }
+              },
+              "spec": {
+                "kafka": {
+                  "replicas": 3,
+                  "listeners": [
+                    {"name": "plain", "port": 9092, "type": "internal", "tls": false},
+                    {"name": "external", "port": 9094, "type": "loadbalancer", "tls": true}
+                  ]
+                }
+              },
+              "status": {
+                "listeners": [
+                  {"name": "plain", "bootstrapServers": "my-cluster-kafka-bootstrap.myproject.svc:9092"},
+                  {"name": "external", "bootstrapServers": "10.0.0.1:9094", "addresses": [{"host": "10.0.0.1", "port": 9094}],
+                    "certificates": {"ca": ["cert1", "cert2"], "empty": null}}
+                ],
+                "conditions": [{"type": "Ready", "status": "True"}]
+              }
+            }
+            """;
+
+    private static final Set<String> KEYS = Set.of(
+            "$.metadata.name",
+            "$.metadata.annotations['strimzi.io/node-pools']",
+            "$.status.listeners[?(@.name=='external')].bootstrapServers",
+            "$.status.listeners[?(@.name=='external')].addresses",
+            "$.status.listeners[?(@.name=='external')].certificates"
+    );
+
+    @Test
+    public void testOnlyProjectionMaterialized() throws IOException {
+        ResourceDocument document = parse(ResourceProjection.of(KEYS));
+
+        assertThat(document.tree().keySet(), is(Set.of("metadata", "status")));
+        assertThat(((Map<?, ?>) document.tree().get("metadata")).keySet(), is(Set.of("name", "resourceVersion", "annotations")));
+        assertThat(((Map<?, ?>) document.tree().get("status")).keySet(), is(Set.of("listeners")));
+        assertThat(document.resourceVersion(), is("1234"));
+        assertThat(document.covers(ResourceProjection.of(Set.of("$.metadata.name"))), is(true));
+        assertThat(document.covers(ResourceProjection.of(Set.of("$.spec.kafka.replicas"))), is(false));
+    }
+
+    @Test
+    public void testSameValuesAsFullResource() throws IOException {
+        ResourceDocument full = ResourceDocument.fromResource(Serialization.unmarshal(KAFKA, GenericKubernetesResource.class));
+
+        assertThat(ValueExtractor.extract(parse(ResourceProjection.of(KEYS)), KEYS), is(ValueExtractor.extract(full, KEYS)));
+        assertThat(ValueExtractor.extract(parse(ResourceProjection.ALL), KEYS), is(ValueExtractor.extract(full, KEYS)));
+    }
+
+    @Test
+    public void testWholeResource() throws IOException {
+        ResourceDocument document = parse(ResourceProjection.ALL);
+
+        assertThat(document.tree().keySet(), is(Set.of("apiVersion", "kind", "metadata", "spec", "status")));
+        assertThat(document.resourceVersion(), is("1234"));
+    }
+
+    private static ResourceDocument parse(ResourceProjection projection) throws IOException {
+        return StreamingResourceReader.parse(new ByteArrayInputStream(KAFKA.getBytes(StandardCharsets.UTF_8)), projection);
+    }
+}
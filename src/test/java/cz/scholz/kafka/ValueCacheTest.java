@@ -0,0 +1,96 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ValueCacheTest {
+    private static final String PATH = "kafka.strimzi.io/v1beta2/Kafka/myproject/my-cluster";
+
+    @Test
+    public void testCachedValues()    {
+        ValueCache cache = new ValueCache(1_000L, 10, 1_000_000L, new MockTime());
+
+        Map<String, String> values = new HashMap<>();
+        values.put("$.metadata.name", "my-cluster");
+        values.put("$.metadata.missing", null);
+        cache.put(PATH, "1", values);
+
+        assertThat(cache.get(PATH, Set.of("$.metadata.name")), is(Map.of("$.metadata.name", "my-cluster")));
+        assertThat(cache.get(PATH, Set.of("$.metadata.name", "$.metadata.missing")), is(values));
+        assertThat(cache.get(PATH, Set.of("$.metadata.name", "$.metadata.namespace")), is(nullValue()));
+        assertThat(cache.get("v1/ConfigMap/myproject/my-cluster", Set.of("$.metadata.name")), is(nullValue()));
+        assertThat(cache.size(), is(2));
+    }
+
+    @Test
+    public void testExpiredValues()    {
+        MockTime time = new MockTime();
+        ValueCache cache = new ValueCache(1_000L, 10, 1_000_000L, time);
+
+        cache.put(PATH, "1", Map.of("$.metadata.name", "my-cluster"));
+        time.sleep(999L);
+        assertThat(cache.get(PATH, Set.of("$.metadata.name")), is(Map.of("$.metadata.name", "my-cluster")));
+
+        time.sleep(1L);
+        assertThat(cache.get(PATH, Set.of("$.metadata.name")), is(nullValue()));
+        assertThat(cache.size(), is(0));
+        assertThat(cache.bytes(), is(0L));
+    }
+
+    @Test
+    public void testValuesFromDifferentResourceVersions()    {
+        ValueCache cache = new ValueCache(1_000L, 10, 1_000_000L, new MockTime());
+
+        cache.put(PATH, "1", Map.of("$.metadata.name", "my-cluster"));
+        cache.put(PATH, "2", Map.of("$.metadata.namespace", "myproject"));
+
+        assertThat(cache.get(PATH, Set.of("$.metadata.name", "$.metadata.namespace")), is(nullValue()));
+
+        cache.put(PATH, "2", Map.of("$.metadata.name", "my-cluster"));
+        assertThat(cache.get(PATH, Set.of("$.metadata.name", "$.metadata.namespace")), is(Map.of("$.metadata.name", "my-cluster", "$.metadata.namespace", "myproject")));
+        assertThat(cache.size(), is(2));
+    }
+
+    @Test
+    public void testEvictionByEntries()    {
+        ValueCache cache = new ValueCache(1_000L, 2, 1_000_000L, new MockTime());
+
+        cache.put(PATH, "1", Map.of("a", "1", "b", "2"));
+        // Access a to make b the least recently used value
+        cache.get(PATH, Set.of("a"));
+        cache.put(PATH, "1", Map.of("c", "3"));
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.evictions(), is(1L));
+        assertThat(cache.get(PATH, Set.of("a", "c")), is(Map.of("a", "1", "c", "3")));
+        assertThat(cache.get(PATH, Set.of("b")), is(nullValue()));
+    }
+
+    @Test
+    public void testEvictionByBytes()    {
+        ValueCache cache = new ValueCache(1_000L, 100, 500L, new MockTime());
+
+        cache.put(PATH, "1", Map.of("a", "x".repeat(200)));
+        cache.put(PATH, "1", Map.of("b", "y".repeat(200)));
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.get(PATH, Set.of("b")), is(Map.of("b", "y".repeat(200))));
+        assertThat(cache.bytes() <= 500L, is(true));
+
+        // Values bigger than the whole cache are not cached
+        cache.put(PATH, "1", Map.of("c", "z".repeat(1_000)));
+        assertThat(cache.get(PATH, Set.of("c")), is(nullValue()));
+    }
+}
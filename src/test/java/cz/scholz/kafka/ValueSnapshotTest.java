@@ -0,0 +1,136 @@
+/*
+ * Copyright Jakub Scholz.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package cz.scholz.kafka;
+
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ValueSnapshotTest {
+    private static final String PATH = "v1/ConfigMap/my-namespace/my-config-map";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRoundTrip() {
+        MockTime time = new MockTime();
+        Path file = directory.resolve("snapshot");
+
+        ValueSnapshot snapshot = new ValueSnapshot(file, 60_000L, time, Runnable::run);
+        snapshot.put(PATH, "1", Map.of("$.data.key", "value"));
+        snapshot.put(PATH, "1", nullableValue("$.data.missing"));
+        snapshot.put("v1/ConfigMap/my-namespace/other", "5", Map.of("$.data.key", "other"));
+
+        // Values resolved in this process are not served from the snapshot
+        assertThat(snapshot.get(PATH, Set.of("$.data.key")), is(nullValue()));
+
+        ValueSnapshot loaded = new ValueSnapshot(file, 60_000L, time, Runnable::run);
+        assertThat(loaded.size(), is(2));
+        assertThat(loaded.get(PATH, Set.of("$.data.key")), is(Map.of("$.data.key", "value")));
+        assertThat(loaded.get(PATH, Set.of("$.data.key", "$.data.missing")), is(nullableValue("$.data.missing", "$.data.key", "value")));
+        assertThat(loaded.get(PATH, Set.of("$.data.other")), is(nullValue()));
+
+        // Revalidated values are not served from the snapshot anymore
+        loaded.put(PATH, "2", Map.of("$.data.key", "new-value"));
+        assertThat(loaded.get(PATH, Set.of("$.data.key")), is(nullValue()));
+    }
+
+    @Test
+    public void testMaxStaleness() {
+        MockTime time = new MockTime();
+        Path file = directory.resolve("snapshot");
+
+        new ValueSnapshot(file, 60_000L, time, Runnable::run).put(PATH, "1", Map.of("$.data.key", "value"));
+
+        time.sleep(30_000L);
+        assertThat(new ValueSnapshot(file, 60_000L, time, Runnable::run).get(PATH, Set.of("$.data.key")), is(Map.of("$.data.key", "value")));
+
+        time.sleep(60_000L);
+        assertThat(new ValueSnapshot(file, 60_000L, time, Runnable::run).get(PATH, Set.of("$.data.key")), is(nullValue()));
+    }
+
+    @Test
+    public void testUnchangedValuesAreNotSaved() {
+        MockTime time = new MockTime();
+        AtomicInteger saves = new AtomicInteger();
+        ValueSnapshot snapshot = new ValueSnapshot(directory.resolve("snapshot"), 60_000L, time, task -> {
+            saves.incrementAndGet();
+            task.run();
+        });
+
+        snapshot.put(PATH, "1", Map.of("$.data.key", "value"));
+        assertThat(saves.get(), is(1));
+
+        // Same resource version and values
+        snapshot.put(PATH, "1", Map.of("$.data.key", "value"));
+        assertThat(saves.get(), is(1));
+
+        // New key of the same resource version
+        snapshot.put(PATH, "1", Map.of("$.data.other", "other"));
+        assertThat(saves.get(), is(2));
+
+        // New resource version
+        snapshot.put(PATH, "2", Map.of("$.data.key", "value"));
+        assertThat(saves.get(), is(3));
+    }
+
+    @Test
+    public void testSharedFile() {
+        MockTime time = new MockTime();
+        Path file = directory.resolve("snapshot");
+
+        ValueSnapshot first = new ValueSnapshot(file, 60_000L, time, Runnable::run);
+        ValueSnapshot second = new ValueSnapshot(file, 60_000L, time, Runnable::run);
+
+        first.put(PATH, "1", Map.of("$.data.key", "value"));
+        time.sleep(1_000L);
+        second.put("v1/ConfigMap/my-namespace/other", "5", Map.of("$.data.key", "other"));
+        time.sleep(1_000L);
+        second.put(PATH, "2", Map.of("$.data.key", "new-value"));
+        time.sleep(1_000L);
+        first.put("v1/ConfigMap/my-namespace/third", "7", Map.of("$.data.key", "third"));
+
+        // The paths of both snapshots are kept and the most recently resolved values win
+        ValueSnapshot loaded = new ValueSnapshot(file, 60_000L, time, Runnable::run);
+        assertThat(loaded.size(), is(3));
+        assertThat(loaded.get(PATH, Set.of("$.data.key")), is(Map.of("$.data.key", "new-value")));
+        assertThat(loaded.get("v1/ConfigMap/my-namespace/other", Set.of("$.data.key")), is(Map.of("$.data.key", "other")));
+        assertThat(loaded.get("v1/ConfigMap/my-namespace/third", Set.of("$.data.key")), is(Map.of("$.data.key", "third")));
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        Path file = directory.resolve("snapshot");
+        Files.writeString(file, "not a snapshot");
+
+        assertThat(new ValueSnapshot(file, 60_000L, new MockTime(), Runnable::run).size(), is(0));
+        assertThat(new ValueSnapshot(directory.resolve("missing"), 60_000L, new MockTime(), Runnable::run).size(), is(0));
+    }
+
+    private static Map<String, String> nullableValue(String key) {
+        Map<String, String> values = new HashMap<>();
+        values.put(key, null);
+        return values;
+    }
+
+    private static Map<String, String> nullableValue(String key, String otherKey, String otherValue) {
+        Map<String, String> values = nullableValue(key);
+        values.put(otherKey, otherValue);
+        return values;
+    }
+}